@@ -0,0 +1,49 @@
+package com.project.googledrive.config;
+
+import com.project.googledrive.model.Embedding;
+import org.bson.types.Binary;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import java.util.List;
+
+@Configuration
+public class MongoConfig {
+    
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(List.of(
+                new EmbeddingToBinaryConverter(),
+                new BinaryToEmbeddingConverter(),
+                new BytesToEmbeddingConverter()
+        ));
+    }
+    
+    @WritingConverter
+    static class EmbeddingToBinaryConverter implements Converter<Embedding, Binary> {
+        @Override
+        public Binary convert(Embedding source) {
+            return new Binary(source.toBytes());
+        }
+    }
+    
+    @ReadingConverter
+    static class BinaryToEmbeddingConverter implements Converter<Binary, Embedding> {
+        @Override
+        public Embedding convert(Binary source) {
+            return Embedding.fromBytes(source.getData());
+        }
+    }
+    
+    @ReadingConverter
+    static class BytesToEmbeddingConverter implements Converter<byte[], Embedding> {
+        @Override
+        public Embedding convert(byte[] source) {
+            return Embedding.fromBytes(source);
+        }
+    }
+}
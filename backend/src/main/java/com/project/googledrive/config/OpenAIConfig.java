@@ -0,0 +1,61 @@
+package com.project.googledrive.config;
+
+import com.project.googledrive.service.OpenAICallInterceptor;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// One OpenAI client for the whole application, so every service shares one connection pool and
+// one set of rate limits. The library default keeps idle connections for a single second, so
+// nearly every call paid for a new TLS handshake; here they are kept for minutes.
+@Configuration
+public class OpenAIConfig {
+
+    @Bean
+    public OpenAICallInterceptor openAICallInterceptor(
+            MeterRegistry meterRegistry,
+            @Value("${openai.bulkhead.chat:8}") int chatConcurrency,
+            @Value("${openai.bulkhead.embeddings:16}") int embeddingConcurrency,
+            @Value("${openai.bulkhead.max-wait-ms:30000}") long bulkheadWaitMs,
+            @Value("${openai.rate-limit.requests-per-minute:3000}") long requestsPerMinute,
+            @Value("${openai.rate-limit.tokens-per-minute:1000000}") long tokensPerMinute,
+            @Value("${openai.rate-limit.max-wait-ms:30000}") long rateLimitWaitMs,
+            @Value("${openai.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${openai.circuit.open-ms:30000}") long circuitOpenMs,
+            @Value("${openai.retry.max-attempts:4}") int maxAttempts,
+            @Value("${openai.retry.base-ms:250}") long retryBaseMs,
+            @Value("${openai.retry.max-ms:10000}") long retryMaxMs) {
+        return new OpenAICallInterceptor(meterRegistry, chatConcurrency, embeddingConcurrency, bulkheadWaitMs,
+                requestsPerMinute, tokensPerMinute, rateLimitWaitMs, failureThreshold, circuitOpenMs,
+                maxAttempts, retryBaseMs, retryMaxMs);
+    }
+
+    @Bean(destroyMethod = "shutdownExecutor")
+    public OpenAiService openAiService(OpenAICallInterceptor interceptor,
+                                       @Value("${openai.api.key}") String apiKey,
+                                       @Value("${openai.base-url:https://api.openai.com/}") String baseUrl,
+                                       @Value("${openai.http.max-idle-connections:32}") int maxIdleConnections,
+                                       @Value("${openai.http.keep-alive-ms:300000}") long keepAliveMs,
+                                       @Value("${openai.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+                                       @Value("${openai.http.read-timeout-ms:60000}") long readTimeoutMs) {
+        // Adds the API key header; the guard runs after it on every attempt
+        OkHttpClient client = OpenAiService.defaultClient(apiKey, Duration.ofMillis(readTimeoutMs)).newBuilder()
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .addInterceptor(interceptor)
+                .build();
+        OpenAiApi api = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper()).newBuilder()
+                .baseUrl(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/")
+                .build()
+                .create(OpenAiApi.class);
+        return new OpenAiService(api, client.dispatcher().executorService());
+    }
+}
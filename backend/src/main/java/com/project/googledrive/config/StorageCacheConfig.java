@@ -0,0 +1,32 @@
+package com.project.googledrive.config;
+
+import com.project.googledrive.service.BlobStore;
+import com.project.googledrive.service.CachingBlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Puts the disk cache in front of whichever backend storage.backend selected; services
+// get the cache because it is the primary BlobStore
+@Configuration
+@ConditionalOnProperty(name = "storage.cache.enabled", havingValue = "true")
+public class StorageCacheConfig {
+
+    @Bean
+    @Primary
+    public CachingBlobStore cachingBlobStore(BlobStore origin,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${storage.cache.dir:./data/cache}") String directory,
+                                             @Value("${storage.cache.max-bytes:10737418240}") long maxBytes,
+                                             @Value("${storage.cache.block-size:4194304}") long blockSize)
+            throws IOException {
+        System.out.println("📦 Caching blobs under " + directory + " (up to " + (maxBytes / (1024 * 1024)) + " MB)");
+        return new CachingBlobStore(origin, Path.of(directory), maxBytes, blockSize, meterRegistry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.project.googledrive.controller;
+
+import com.project.googledrive.dto.DedupReport;
+import com.project.googledrive.model.ReembedJob;
+import com.project.googledrive.service.BlobService;
+import com.project.googledrive.service.ReembedService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+    
+    private final ReembedService reembedService;
+    private final BlobService blobService;
+    private final Set<String> adminEmails;
+    
+    public AdminController(ReembedService reembedService,
+                           BlobService blobService,
+                           @Value("${admin.emails:}") Set<String> adminEmails) {
+        this.reembedService = reembedService;
+        this.blobService = blobService;
+        this.adminEmails = adminEmails;
+    }
+    
+    // Start re-embedding every document with the configured model
+    @PostMapping("/reembed")
+    public ResponseEntity<ReembedJob> startReembed(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        try {
+            return ResponseEntity.ok(reembedService.start(authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+    
+    @GetMapping("/reembed")
+    public ResponseEntity<ReembedJob> getReembedStatus(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return reembedService.getLatestJob()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    // Storage saved by content deduplication
+    @GetMapping("/storage/dedup")
+    public ResponseEntity<DedupReport> getDedupReport(Authentication authentication) {
+        if (!isAdmin(authentication)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(blobService.report());
+    }
+    
+    private boolean isAdmin(Authentication authentication) {
+        return authentication != null && adminEmails.contains(authentication.getName());
+    }
+}
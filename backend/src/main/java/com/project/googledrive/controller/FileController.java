@@ -1,20 +1,35 @@
 package com.project.googledrive.controller;
 
+import com.project.googledrive.dto.FileListPage;
+import com.project.googledrive.dto.SearchPage;
 import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.FileVersion;
+import com.project.googledrive.service.FileListingService;
 import com.project.googledrive.service.FileService;
+import com.project.googledrive.service.FileVersionService;
+import com.project.googledrive.service.HybridSearchService;
 
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -23,6 +38,9 @@ import java.util.List;
 public class FileController {
     
     private final FileService fileService;
+    private final FileListingService fileListingService;
+    private final FileVersionService fileVersionService;
+    private final HybridSearchService hybridSearchService;
     
     @PostMapping("/upload")
     public ResponseEntity<FileMetadata> uploadFile(
@@ -44,19 +62,126 @@ public class FileController {
         return ResponseEntity.ok(files);
     }
     
-    @GetMapping("/download/{fileId}")
-    public ResponseEntity<ByteArrayResource> downloadFile(@PathVariable String fileId) {
+    // One page of the user's files with only the fields a file list shows. The ETag covers the
+    // user's whole listing, so an unchanged listing is answered with 304 before any page is read.
+    @GetMapping("/page")
+    public ResponseEntity<FileListPage> listFiles(
+            @RequestParam(defaultValue = "uploadedAt") String sort,
+            @RequestParam(defaultValue = "desc") String direction,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            Authentication authentication) {
         try {
-            byte[] data = fileService.downloadFile(fileId);
-            ByteArrayResource resource = new ByteArrayResource(data);
+            String userEmail = authentication.getName();
+            FileListingService.SortField sortField = FileListingService.SortField.parse(sort);
+            Sort.Direction sortDirection = Sort.Direction.fromString(direction);
             
+            String eTag = fileListingService.listingVersion(userEmail,
+                    sortField.name(), sortDirection.name(), String.valueOf(limit), String.valueOf(cursor));
+            if (matchesETag(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            
+            FileListPage page = fileListingService.listFiles(userEmail, sortField, sortDirection, limit, cursor);
             return ResponseEntity.ok()
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment")
-                    .body(resource);
+                    .eTag(eTag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Only concrete tags count: "*" would turn every listing request into a 304, and a listing
+    // is never a create-if-absent target
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @GetMapping("/download/{fileId}")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable String fileId,
+            @RequestHeader HttpHeaders requestHeaders) {
+        FileMetadata metadata;
+        try {
+            metadata = fileService.getFileMetadata(fileId);
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
         }
+        return streamFile(fileId, metadata, requestHeaders);
+    }
+    
+    // Streams the requested byte range (or all) of a file's or version's content
+    private ResponseEntity<StreamingResponseBody> streamFile(String fileId, FileMetadata metadata, HttpHeaders requestHeaders) {
+        long fileSize = metadata.getFileSize();
+        long start = 0;
+        long end = fileSize - 1;
+        boolean partial = false;
+        
+        // Only single ranges are honoured; multi-range requests get the whole file
+        List<HttpRange> ranges;
+        try {
+            ranges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();
+        }
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(fileSize);
+                end = ranges.get(0).getRangeEnd(fileSize);
+                partial = true;
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                        .build();
+            }
+        }
+        
+        long rangeStart = start;
+        long rangeEnd = end;
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream inputStream = fileService.openDownloadStream(metadata, rangeStart, rangeEnd)) {
+                inputStream.transferTo(outputStream);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to stream file " + fileId, e);
+            }
+        };
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                .contentType(resolveContentType(metadata.getFileType()))
+                .contentLength(fileSize == 0 ? 0 : end - start + 1)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(metadata.getOriginalFileName(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString());
+        if (partial) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize);
+        }
+        return response.body(body);
+    }
+    
+    private MediaType resolveContentType(String fileType) {
+        try {
+            return fileType != null ? MediaType.parseMediaType(fileType) : MediaType.APPLICATION_OCTET_STREAM;
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
     }
     
     @DeleteMapping("/{fileId}")
@@ -69,6 +194,57 @@ public class FileController {
         }
     }
     
+    // Upload new content for an existing file; the current content is kept as a version
+    @PutMapping("/{fileId}/content")
+    public ResponseEntity<FileMetadata> updateContent(
+            @PathVariable String fileId,
+            @RequestParam("file") MultipartFile file,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(fileVersionService.updateContent(fileId, file, authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/{fileId}/versions")
+    public ResponseEntity<List<FileVersion>> listVersions(
+            @PathVariable String fileId,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(fileVersionService.listVersions(fileId, authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    @GetMapping("/{fileId}/versions/{version}/download")
+    public ResponseEntity<StreamingResponseBody> downloadVersion(
+            @PathVariable String fileId,
+            @PathVariable int version,
+            @RequestHeader HttpHeaders requestHeaders,
+            Authentication authentication) {
+        FileMetadata content;
+        try {
+            content = fileVersionService.getVersionContent(fileId, version, authentication.getName());
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+        return streamFile(fileId, content, requestHeaders);
+    }
+    
+    @PostMapping("/{fileId}/versions/{version}/restore")
+    public ResponseEntity<FileMetadata> restoreVersion(
+            @PathVariable String fileId,
+            @PathVariable int version,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(fileVersionService.restore(fileId, version, authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     // For file sharing
     @PostMapping("/share")
     public ResponseEntity<FileMetadata> shareFile(
@@ -102,6 +278,37 @@ public class FileController {
         }
     }
 
+    // Keyword Search (local full-text index)
+    @GetMapping("/search")
+    public ResponseEntity<List<FileMetadata>> search(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit,
+            Authentication authentication) {
+        try {
+            String userEmail = authentication.getName();
+            List<FileMetadata> results = fileService.searchByText(query, userEmail, Math.max(1, Math.min(limit, 100)));
+            return ResponseEntity.ok(results);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Keyword and AI search fused into one ranking, with scores and a cursor for the next page
+    @GetMapping("/search/hybrid")
+    public ResponseEntity<SearchPage> hybridSearch(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
+            Authentication authentication) {
+        try {
+            String userEmail = authentication.getName();
+            SearchPage page = hybridSearchService.search(userEmail, query, Math.max(1, Math.min(limit, 100)), cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // AI Search
     @GetMapping("/search/ai")
     public ResponseEntity<List<FileMetadata>> aiSearch(
@@ -0,0 +1,101 @@
+package com.project.googledrive.controller;
+
+import com.project.googledrive.dto.ChunkCommitRequest;
+import com.project.googledrive.dto.ChunkHashes;
+import com.project.googledrive.dto.ChunkManifest;
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.service.SyncService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Chunk-level sync protocol used by the desktop client (see SyncService)
+@RestController
+@RequestMapping("/api/sync")
+@RequiredArgsConstructor
+public class SyncController {
+    
+    private final SyncService syncService;
+    
+    // Which of these chunks still have to be uploaded
+    @PostMapping("/chunks/missing")
+    public ResponseEntity<ChunkHashes> findMissingChunks(
+            @RequestBody @Valid ChunkHashes request,
+            Authentication authentication) {
+        return ResponseEntity.ok(new ChunkHashes(syncService.findMissing(authentication.getName(), request.getHashes())));
+    }
+    
+    @PutMapping(value = "/chunks/{hash}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> uploadChunk(
+            @PathVariable String hash,
+            InputStream body,
+            Authentication authentication) {
+        try {
+            syncService.storeChunk(authentication.getName(), hash, body);
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/chunks/{hash}")
+    public ResponseEntity<StreamingResponseBody> downloadChunk(
+            @PathVariable String hash,
+            Authentication authentication) {
+        Blob blob;
+        try {
+            blob = syncService.getReadableChunk(hash, authentication.getName());
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream inputStream = syncService.openChunk(blob)) {
+                inputStream.transferTo(outputStream);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to stream chunk " + hash, e);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(blob.getSize())
+                .body(body);
+    }
+    
+    // Create or update a file from chunks; 409 lists the chunks that still have to be sent
+    @PostMapping("/files")
+    public ResponseEntity<?> commitFile(
+            @RequestBody @Valid ChunkCommitRequest request,
+            Authentication authentication) {
+        try {
+            FileMetadata metadata = syncService.commit(authentication.getName(), request);
+            return ResponseEntity.ok(metadata);
+        } catch (SyncService.MissingChunksException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ChunkHashes(e.getMissing()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/files/{fileId}/manifest")
+    public ResponseEntity<ChunkManifest> getManifest(
+            @PathVariable String fileId,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(syncService.getManifest(fileId, authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.project.googledrive.controller;
+
+import com.project.googledrive.dto.UploadSessionRequest;
+import com.project.googledrive.dto.UploadSessionStatus;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.service.UploadSessionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+// Resumable uploads for large files (see UploadSessionService)
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+    
+    private final UploadSessionService uploadSessionService;
+    
+    @PostMapping
+    public ResponseEntity<UploadSessionStatus> createSession(
+            @RequestBody @Valid UploadSessionRequest request,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(UploadSessionStatus.from(
+                    uploadSessionService.create(authentication.getName(), request)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    // Part layout and received ranges, to resume after an interruption
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionStatus> getSession(
+            @PathVariable String sessionId,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(UploadSessionStatus.from(
+                    uploadSessionService.getSession(sessionId, authentication.getName())));
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+    
+    // One part; offset must be a multiple of the session's part size
+    @PutMapping(value = "/{sessionId}/parts", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionStatus> uploadPart(
+            @PathVariable String sessionId,
+            @RequestParam long offset,
+            InputStream body,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(UploadSessionStatus.from(
+                    uploadSessionService.uploadPart(sessionId, authentication.getName(), offset, body)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @PostMapping("/{sessionId}/commit")
+    public ResponseEntity<FileMetadata> commit(
+            @PathVariable String sessionId,
+            Authentication authentication) {
+        try {
+            return ResponseEntity.ok(uploadSessionService.commit(sessionId, authentication.getName()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> abort(
+            @PathVariable String sessionId,
+            Authentication authentication) {
+        try {
+            uploadSessionService.abort(sessionId, authentication.getName());
+            return ResponseEntity.ok().build();
+        } catch (Exception e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.project.googledrive.dto;
+
+import com.project.googledrive.model.ChunkRef;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class ChunkCommitRequest {
+    // Existing file to replace; null creates a new file
+    private String fileId;
+    
+    // updatedAt of the version the client changed (from its manifest); the commit is refused if
+    // the file has moved on since, so two devices can't silently overwrite each other
+    private LocalDateTime baseUpdatedAt;
+    
+    @NotBlank
+    private String fileName;
+    
+    private String contentType;
+    
+    // The file's chunks in order
+    @NotNull
+    private List<ChunkRef> chunks;
+}
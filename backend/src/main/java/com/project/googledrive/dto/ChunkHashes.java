@@ -0,0 +1,19 @@
+package com.project.googledrive.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Chunk hashes a client asks about, or the ones the server still needs from it
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkHashes {
+    @NotNull
+    @Size(max = 10000)
+    private List<String> hashes;
+}
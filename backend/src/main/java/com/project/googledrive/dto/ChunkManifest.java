@@ -0,0 +1,18 @@
+package com.project.googledrive.dto;
+
+import com.project.googledrive.model.ChunkRef;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ChunkManifest {
+    private String fileId;
+    private long fileSize;
+    // Changes with every commit; send it back as the base of the next one
+    private LocalDateTime updatedAt;
+    private List<ChunkRef> chunks;
+}
@@ -0,0 +1,15 @@
+package com.project.googledrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DedupReport {
+    private long files;
+    private long blobs;
+    // Bytes users uploaded versus bytes actually stored
+    private long logicalBytes;
+    private long storedBytes;
+    private long savedBytes;
+}
@@ -0,0 +1,13 @@
+package com.project.googledrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class DocumentInsights {
+    private List<String> keywords;
+    private String summary;
+}
@@ -0,0 +1,34 @@
+package com.project.googledrive.dto;
+
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.model.FileMetadata;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// What a file listing shows; everything else on FileMetadata stays in the database
+@Data
+public class FileListItem {
+    private String id;
+    private String originalFileName;
+    private String fileType;
+    private long fileSize;
+    private String ownerEmail;
+    private LocalDateTime uploadedAt;
+    private List<String> sharedWith;
+    private EnrichmentStatus enrichmentStatus;
+    
+    public static FileListItem from(FileMetadata file) {
+        FileListItem item = new FileListItem();
+        item.setId(file.getId());
+        item.setOriginalFileName(file.getOriginalFileName());
+        item.setFileType(file.getFileType());
+        item.setFileSize(file.getFileSize());
+        item.setOwnerEmail(file.getOwnerEmail());
+        item.setUploadedAt(file.getUploadedAt());
+        item.setSharedWith(file.getSharedWith());
+        item.setEnrichmentStatus(file.getEnrichmentStatus());
+        return item;
+    }
+}
@@ -0,0 +1,14 @@
+package com.project.googledrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class FileListPage {
+    private List<FileListItem> items;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,16 @@
+package com.project.googledrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SearchHit {
+    private FileListItem file;
+    // Fused rank score; only meaningful for ordering within one search
+    private double score;
+    // BM25 score from the full-text index, null if it didn't match the words
+    private Float lexicalScore;
+    // Cosine similarity to the query, null if not among the nearest files
+    private Float semanticScore;
+}
@@ -0,0 +1,16 @@
+package com.project.googledrive.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class SearchPage {
+    private List<SearchHit> results;
+    // Pass back as ?cursor= for the next page; null on the last page
+    private String nextCursor;
+    // True when a retrieval missed the latency budget or failed and its results are missing
+    private boolean partial;
+}
@@ -0,0 +1,17 @@
+package com.project.googledrive.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class UploadSessionRequest {
+    @NotBlank
+    private String fileName;
+    
+    private String contentType;
+    
+    // Total size in bytes; reserved against the quota when the session is created
+    @Positive
+    private long size;
+}
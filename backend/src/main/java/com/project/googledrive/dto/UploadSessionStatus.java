@@ -0,0 +1,51 @@
+package com.project.googledrive.dto;
+
+import com.project.googledrive.model.UploadSession;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// What a client needs to resume: part layout and the byte ranges already received
+@Data
+public class UploadSessionStatus {
+    private String id;
+    private UploadSession.Status status;
+    private String fileName;
+    private long size;
+    private long partSize;
+    private int partCount;
+    // Inclusive [start, end] ranges, merged
+    private List<long[]> receivedRanges;
+    private LocalDateTime expiresAt;
+    private String fileId;
+    
+    public static UploadSessionStatus from(UploadSession session) {
+        UploadSessionStatus status = new UploadSessionStatus();
+        status.setId(session.getId());
+        status.setStatus(session.getStatus());
+        status.setFileName(session.getFileName());
+        status.setSize(session.getSize());
+        status.setPartSize(session.getPartSize());
+        status.setPartCount(session.getPartCount());
+        status.setExpiresAt(session.getExpiresAt());
+        status.setFileId(session.getFileId());
+        
+        List<long[]> ranges = new ArrayList<>();
+        IntStream.rangeClosed(1, session.getPartCount())
+                .filter(part -> session.getParts().containsKey(String.valueOf(part)))
+                .forEach(part -> {
+                    long start = (part - 1) * session.getPartSize();
+                    long end = Math.min(start + session.getPartSize(), session.getSize()) - 1;
+                    if (!ranges.isEmpty() && ranges.get(ranges.size() - 1)[1] + 1 == start) {
+                        ranges.get(ranges.size() - 1)[1] = end;
+                    } else {
+                        ranges.add(new long[] { start, end });
+                    }
+                });
+        status.setReceivedRanges(ranges);
+        return status;
+    }
+}
@@ -0,0 +1,29 @@
+package com.project.googledrive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// One stored copy of a distinct piece of content, shared by every file (or chunk) whose
+// plaintext has the same SHA-256
+@Data
+@Document(collection = "blobs")
+public class Blob {
+    // Hex SHA-256 of the plaintext
+    @Id
+    private String id;
+    
+    private String s3Key;
+    private long size;
+    private long storedSize;
+    private int encryptionVersion;
+    
+    // Data key wrapped with the blob KEK (see KeyWrappingService); files hold their own owner-wrapped copy
+    private String wrappedKey;
+    
+    // Number of files, versions or chunk manifests pointing at this blob; removed at zero
+    private long refCount;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,14 @@
+package com.project.googledrive.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One entry of a file's chunk manifest; the hash is the id of the blob holding the chunk
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChunkRef {
+    private String hash;
+    private long size;
+}
@@ -0,0 +1,75 @@
+package com.project.googledrive.model;
+
+import com.project.googledrive.util.VectorMath;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+// A document or query embedding as primitive floats with its L2 norm computed once up front.
+// Stored in Mongo as a BSON binary of little-endian float32 values (see MongoConfig), which is
+// 4 bytes per dimension instead of a boxed Double array.
+public final class Embedding {
+    
+    private final float[] values;
+    private final float norm;
+    
+    public Embedding(float[] values) {
+        this.values = values;
+        this.norm = VectorMath.norm(values);
+    }
+    
+    public static Embedding of(List<Double> vector) {
+        if (vector == null) {
+            return null;
+        }
+        float[] values = new float[vector.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = vector.get(i).floatValue();
+        }
+        return new Embedding(values);
+    }
+    
+    public static Embedding fromBytes(byte[] bytes) {
+        float[] values = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        return new Embedding(values);
+    }
+    
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        return buffer.array();
+    }
+    
+    // The backing array; callers must not modify it
+    public float[] getValues() {
+        return values;
+    }
+    
+    public float getNorm() {
+        return norm;
+    }
+    
+    public int dimension() {
+        return values.length;
+    }
+    
+    public boolean isEmpty() {
+        return values.length == 0 || norm == 0f;
+    }
+    
+    // Unit-length copy for indexes that compare by dot product; null if the vector is all zeros
+    public float[] normalized() {
+        if (isEmpty()) {
+            return null;
+        }
+        float[] unit = values.clone();
+        VectorMath.scale(unit, 1f / norm);
+        return unit;
+    }
+    
+    public double cosineSimilarity(Embedding other) {
+        return VectorMath.cosine(values, norm, other.values, other.norm);
+    }
+}
@@ -0,0 +1,30 @@
+package com.project.googledrive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "enrichment_jobs")
+@CompoundIndex(name = "status_next_attempt", def = "{'status': 1, 'nextAttemptAt': 1}")
+public class EnrichmentJob {
+    @Id
+    private String id;
+    
+    @Indexed(unique = true)
+    private String fileId;
+    
+    private EnrichmentStatus status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    
+    // Set while a worker holds the job; an expired lease means the worker died and the job can be reclaimed
+    private LocalDateTime lockedUntil;
+    
+    private String lastError;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,7 @@
+package com.project.googledrive.model;
+
+public enum EnrichmentStatus {
+    PENDING,
+    DONE,
+    FAILED
+}
@@ -1,14 +1,24 @@
 package com.project.googledrive.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Data
 @Document(collection = "files")
+// Keyset pagination of a user's own files, one index per sort order
+@CompoundIndex(name = "owner_name", def = "{'ownerEmail': 1, 'originalFileName': 1, '_id': 1}")
+@CompoundIndex(name = "owner_size", def = "{'ownerEmail': 1, 'fileSize': 1, '_id': 1}")
+@CompoundIndex(name = "owner_uploaded", def = "{'ownerEmail': 1, 'uploadedAt': 1, '_id': 1}")
+// "Which of these chunks do I already have" during delta sync
+@CompoundIndex(name = "owner_chunks", def = "{'ownerEmail': 1, 'chunks.hash': 1}")
 public class FileMetadata {
     @Id
     private String id;
@@ -18,19 +28,59 @@ public class FileMetadata {
     private String fileType;
     private long fileSize;
     private String filePath;
+    @Indexed
     private String ownerEmail;
     private LocalDateTime uploadedAt;
+    
+    // Last change to a listed field (upload, rename, share); feeds the listing ETag
+    private LocalDateTime updatedAt;
+    
+    // Current content version (see FileVersion) and when that content was stored; null on
+    // files from before versioning, which are on their first version
+    private Integer version;
+    private LocalDateTime contentUpdatedAt;
+    
+    // Never sent to clients
+    @JsonIgnore
     private String encryptionKey;
     
-    // Field for sharing
+    // Content-addressed blob (hex SHA-256) holding this file's bytes; null for files stored
+    // before deduplication, which own their S3 object outright
+    private String blobId;
+    
+    // The blob's data key wrapped with the owner's KEK; replaces encryptionKey for blob-backed files
+    @JsonIgnore
+    private String wrappedKey;
+    
+    // Chunk manifest for files stored as content-defined chunks (delta sync, large uploads);
+    // null when the content is a single blob or legacy object. Served via /api/sync only.
+    @JsonIgnore
+    private List<ChunkRef> chunks;
+    
+    // Ciphertext format of the stored object; null for legacy AES/ECB objects
+    private Integer encryptionVersion;
+    
+    // Field for sharing; multikey index so "shared with me" is an index lookup
+    @Indexed
     private List<String> sharedWith = new ArrayList<>();
 
-    // Field for AI semantic search
-    private List<Double> embedding;
+    // Field for AI semantic search; stored as packed float32 under a new name so that
+    // documents still holding the old double array can be told apart (see EmbeddingMigration)
+    @JsonIgnore
+    @Field("embeddingVector")
+    private Embedding embedding;
+    
+    // Model id of the embedding (see EmbeddingProvider); only embeddings of the current model
+    // are searched
+    @JsonIgnore
+    private String embeddingModel;
     
     // Field for NLP keyword extraction
     private List<String> keywords = new ArrayList<>();
     
     // 🆕 NEW: Field for document summary
     private String summary;
+    
+    // Background NLP enrichment progress; null for files that aren't enriched (e.g. images)
+    private EnrichmentStatus enrichmentStatus;
 }
\ No newline at end of file
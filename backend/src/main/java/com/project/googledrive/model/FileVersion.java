@@ -0,0 +1,86 @@
+package com.project.googledrive.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// A previous content version of a file. It takes over the file's references to its stored
+// bytes when it is replaced, so keeping it costs nothing extra, and chunks it shares with
+// newer versions are stored once. Kept out of the files collection so listings never see it.
+@Data
+@Document(collection = "file_versions")
+@CompoundIndex(name = "file_version", def = "{'fileId': 1, 'version': -1}", unique = true)
+// Delta sync treats chunks kept by old versions as already stored
+@CompoundIndex(name = "owner_chunks", def = "{'ownerEmail': 1, 'chunks.hash': 1}")
+@CompoundIndex(name = "owner_blob", def = "{'ownerEmail': 1, 'blobId': 1}")
+public class FileVersion {
+    @Id
+    private String id;
+    
+    private String fileId;
+    private int version;
+    private String ownerEmail;
+    
+    private String originalFileName;
+    private String fileType;
+    private long fileSize;
+    
+    // Content fields, exactly as they were on the file (see FileMetadata)
+    @JsonIgnore
+    private String fileName;
+    @JsonIgnore
+    private String encryptionKey;
+    @JsonIgnore
+    private String blobId;
+    @JsonIgnore
+    private String wrappedKey;
+    @JsonIgnore
+    private Integer encryptionVersion;
+    @JsonIgnore
+    private List<ChunkRef> chunks;
+    
+    // When this content became current, and when it was replaced
+    private LocalDateTime createdAt;
+    private LocalDateTime replacedAt;
+    
+    public static FileVersion of(FileMetadata file, LocalDateTime replacedAt) {
+        FileVersion version = new FileVersion();
+        version.setFileId(file.getId());
+        version.setVersion(file.getVersion() != null ? file.getVersion() : 1);
+        version.setOwnerEmail(file.getOwnerEmail());
+        version.setOriginalFileName(file.getOriginalFileName());
+        version.setFileType(file.getFileType());
+        version.setFileSize(file.getFileSize());
+        version.setFileName(file.getFileName());
+        version.setEncryptionKey(file.getEncryptionKey());
+        version.setBlobId(file.getBlobId());
+        version.setWrappedKey(file.getWrappedKey());
+        version.setEncryptionVersion(file.getEncryptionVersion());
+        version.setChunks(file.getChunks());
+        version.setCreatedAt(file.getContentUpdatedAt() != null ? file.getContentUpdatedAt() : file.getUploadedAt());
+        version.setReplacedAt(replacedAt);
+        return version;
+    }
+    
+    // The version's content in the shape downloads and storage release work with
+    public FileMetadata toContent() {
+        FileMetadata content = new FileMetadata();
+        content.setId(fileId);
+        content.setOwnerEmail(ownerEmail);
+        content.setOriginalFileName(originalFileName);
+        content.setFileType(fileType);
+        content.setFileSize(fileSize);
+        content.setFileName(fileName);
+        content.setEncryptionKey(encryptionKey);
+        content.setBlobId(blobId);
+        content.setWrappedKey(wrappedKey);
+        content.setEncryptionVersion(encryptionVersion);
+        content.setChunks(chunks);
+        return content;
+    }
+}
@@ -0,0 +1,39 @@
+package com.project.googledrive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+@Data
+@Document(collection = "reembed_jobs")
+public class ReembedJob {
+    
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+    
+    @Id
+    private String id;
+    
+    private Status status;
+    private String model;
+    private String requestedBy;
+    
+    // Id of the last file whose embedding was written; the job resumes after it
+    private String lastFileId;
+    
+    private long processed;
+    private long failed;
+    
+    // Renewed after every page; once it lapses another run (or node) may pick the job up
+    private LocalDateTime lockedUntil;
+    
+    private String lastError;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+}
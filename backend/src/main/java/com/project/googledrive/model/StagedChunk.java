@@ -0,0 +1,24 @@
+package com.project.googledrive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// A chunk a client uploaded that no committed manifest uses yet. It holds one reference on
+// the chunk's blob until it is committed or expires.
+@Data
+@Document(collection = "staged_chunks")
+public class StagedChunk {
+    // ownerEmail + ":" + hash, so a chunk is staged at most once per user
+    @Id
+    private String id;
+    
+    private String ownerEmail;
+    private String hash;
+    // Expired by SyncService.expireStagedChunks
+    @Indexed
+    private LocalDateTime stagedAt;
+}
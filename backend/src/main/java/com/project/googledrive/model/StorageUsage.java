@@ -0,0 +1,21 @@
+package com.project.googledrive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+// Running total of the bytes a user stores, kept in step with uploads and deletes
+@Data
+@Document(collection = "storage_usage")
+public class StorageUsage {
+    @Id
+    private String ownerEmail;
+    
+    private long usedBytes;
+    
+    // Bumped by every change, so reconciliation can tell whether a total moved underneath it
+    private LocalDateTime updatedAt;
+    private LocalDateTime reconciledAt;
+}
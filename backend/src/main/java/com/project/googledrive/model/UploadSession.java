@@ -0,0 +1,68 @@
+package com.project.googledrive.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+// A resumable upload: one S3 multipart upload whose parts arrive in separate requests
+@Data
+@Document(collection = "upload_sessions")
+public class UploadSession {
+    
+    public enum Status {
+        OPEN,
+        COMMITTING,
+        COMMITTED,
+        ABORTED
+    }
+    
+    @Data
+    public static class Part {
+        private String eTag;
+        private long size;
+        private LocalDateTime receivedAt;
+    }
+    
+    @Id
+    private String id;
+    
+    private Status status;
+    private String ownerEmail;
+    private String fileName;
+    private String contentType;
+    private long size;
+    
+    // Plaintext bytes per part, a multiple of the encryption segment size
+    private long partSize;
+    private int partCount;
+    
+    private String s3Key;
+    private String s3UploadId;
+    
+    // Ciphertext header shared by every part, and the data key wrapped for the owner
+    private String header;
+    private String wrappedKey;
+    
+    // Received parts by part number (1-based, as in S3); each part is its own field so
+    // parallel part uploads don't overwrite each other
+    private Map<String, Part> parts = new HashMap<>();
+    
+    // Keyed MAC of each part's plaintext by part number, claimed before the part is encrypted.
+    // Every attempt at a part encrypts under the same key and nonces, so only the same bytes may
+    // be sent again; different bytes would reuse a GCM nonce.
+    private Map<String, String> partDigests = new HashMap<>();
+    
+    private LocalDateTime createdAt;
+    
+    // Pushed back by every part; an idle session is aborted once it passes
+    @Indexed
+    private LocalDateTime expiresAt;
+    
+    // The file created by the commit
+    private String fileId;
+}
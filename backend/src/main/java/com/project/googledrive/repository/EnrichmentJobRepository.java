@@ -0,0 +1,8 @@
+package com.project.googledrive.repository;
+
+import com.project.googledrive.model.EnrichmentJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface EnrichmentJobRepository extends MongoRepository<EnrichmentJob, String> {
+    void deleteByFileId(String fileId);
+}
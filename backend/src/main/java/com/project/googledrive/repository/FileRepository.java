@@ -6,4 +6,7 @@ import java.util.List;
 
 public interface FileRepository extends MongoRepository<FileMetadata, String> {
     List<FileMetadata> findByOwnerEmail(String ownerEmail);
+    
+    // sharedWith is an array, so this matches files whose list contains the email
+    List<FileMetadata> findBySharedWith(String email);
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.project.googledrive.repository;
+
+import com.project.googledrive.model.ReembedJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ReembedJobRepository extends MongoRepository<ReembedJob, String> {
+    Optional<ReembedJob> findFirstByOrderByStartedAtDesc();
+    List<ReembedJob> findByStatus(ReembedJob.Status status);
+}
@@ -0,0 +1,158 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.util.AdaptiveConcurrencyLimiter;
+import com.theokanning.openai.OpenAiHttpException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Coalesces embedding requests from concurrent callers into batched provider calls. Batches are
+// bounded by input count and estimated tokens, and are sent with an adaptive concurrency
+// limit that backs off when the API answers 429. Retrying is left to the shared OpenAI client
+// (OpenAICallInterceptor), so a 429 that reaches this class fails its batch instead of being
+// retried a second time. A local provider gains too: one call per batch instead of per file, on
+// a bounded number of threads.
+@Service
+public class BatchEmbeddingService {
+    
+    private static final int RATE_LIMITED = 429;
+    
+    private final EmbeddingProvider embeddingProvider;
+    private final int maxInputs;
+    private final int maxTokens;
+    private final long lingerMs;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ExecutorService batchExecutor;
+    private final BlockingQueue<PendingEmbedding> pending = new LinkedBlockingQueue<>();
+    private Thread dispatcher;
+    
+    public BatchEmbeddingService(EmbeddingProvider embeddingProvider,
+                                 @Value("${embedding.batch.max-inputs:256}") int maxInputs,
+                                 @Value("${embedding.batch.max-tokens:250000}") int maxTokens,
+                                 @Value("${embedding.batch.linger-ms:20}") long lingerMs,
+                                 @Value("${embedding.batch.max-concurrency:8}") int maxConcurrency) {
+        this.embeddingProvider = embeddingProvider;
+        this.maxInputs = maxInputs;
+        this.maxTokens = maxTokens;
+        this.lingerMs = lingerMs;
+        this.limiter = new AdaptiveConcurrencyLimiter(2, maxConcurrency);
+        this.batchExecutor = Executors.newFixedThreadPool(maxConcurrency);
+    }
+    
+    @PostConstruct
+    public void start() {
+        dispatcher = new Thread(this::dispatchLoop, "embedding-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+        batchExecutor.shutdownNow();
+    }
+    
+    public CompletableFuture<Embedding> embedAsync(String text) {
+        CompletableFuture<Embedding> future = new CompletableFuture<>();
+        pending.add(new PendingEmbedding(text, future));
+        return future;
+    }
+    
+    public Embedding embed(String text) throws InterruptedException, ExecutionException {
+        return embedAsync(text).get();
+    }
+    
+    // Results line up with the inputs; a failed batch fails only its own entries (returned as null)
+    public List<Embedding> embedAll(List<String> texts) throws InterruptedException {
+        List<CompletableFuture<Embedding>> futures = texts.stream().map(this::embedAsync).toList();
+        List<Embedding> embeddings = new ArrayList<>(texts.size());
+        for (CompletableFuture<Embedding> future : futures) {
+            try {
+                embeddings.add(future.get());
+            } catch (ExecutionException e) {
+                embeddings.add(null);
+            }
+        }
+        return embeddings;
+    }
+    
+    public int getCurrentConcurrency() {
+        return limiter.getLimit();
+    }
+    
+    private void dispatchLoop() {
+        PendingEmbedding carry = null;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<PendingEmbedding> batch = new ArrayList<>();
+                PendingEmbedding first = carry != null ? carry : pending.take();
+                carry = null;
+                batch.add(first);
+                int tokens = estimateTokens(first.text());
+                
+                // Wait briefly for more callers, but never past the batch bounds
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < maxInputs) {
+                    PendingEmbedding next = pending.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (tokens + estimateTokens(next.text()) > maxTokens) {
+                        carry = next;
+                        break;
+                    }
+                    batch.add(next);
+                    tokens += estimateTokens(next.text());
+                }
+                
+                limiter.acquire();
+                batchExecutor.execute(() -> send(batch));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // Runs with one limiter slot already held
+    private void send(List<PendingEmbedding> batch) {
+        try {
+            List<Embedding> embeddings = embeddingProvider.embed(
+                    batch.stream().map(PendingEmbedding::text).toList());
+            limiter.onSuccess();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future().complete(embeddings.get(i));
+            }
+        } catch (OpenAiHttpException e) {
+            // Still rate limited after the client's retries: fewer batches in flight from now on
+            if (e.statusCode == RATE_LIMITED) {
+                limiter.onRateLimited();
+            } else {
+                limiter.onFailure();
+            }
+            batch.forEach(item -> item.future().completeExceptionally(e));
+        } catch (Exception e) {
+            limiter.onFailure();
+            batch.forEach(item -> item.future().completeExceptionally(e));
+        }
+    }
+    
+    // Rough OpenAI tokenizer estimate: ~4 characters per token
+    static int estimateTokens(String text) {
+        return text.length() / 4 + 1;
+    }
+    
+    private record PendingEmbedding(String text, CompletableFuture<Embedding> future) {
+    }
+}
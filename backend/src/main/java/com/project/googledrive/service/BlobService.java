@@ -0,0 +1,159 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.DedupReport;
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.util.EncryptionUtil;
+import com.project.googledrive.util.ParallelEncryptionEngine;
+import org.bson.Document;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.UUID;
+
+// Content-addressed storage: each distinct plaintext is encrypted and stored once, under its
+// own random data key, and reference counted. Files point at a blob and keep the data key
+// wrapped for their owner, so sharing storage never means sharing a key across owners in the
+// database.
+@Service
+public class BlobService {
+    
+    private static final int MAX_STORE_ATTEMPTS = 3;
+    
+    private final MongoTemplate mongoTemplate;
+    private final BlobStore blobStore;
+    private final ParallelEncryptionEngine encryptionEngine;
+    private final KeyWrappingService keyWrappingService;
+    
+    public BlobService(MongoTemplate mongoTemplate,
+                       BlobStore blobStore,
+                       ParallelEncryptionEngine encryptionEngine,
+                       KeyWrappingService keyWrappingService) {
+        this.mongoTemplate = mongoTemplate;
+        this.blobStore = blobStore;
+        this.encryptionEngine = encryptionEngine;
+        this.keyWrappingService = keyWrappingService;
+    }
+    
+    public static String sha256(InputStream inputStream) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new DigestInputStream(inputStream, digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    // Adds a reference to the blob with this hash, uploading the content only if no live copy exists
+    public Blob storeOrReference(String hash, long size, String contentType, InputStreamSource content) throws Exception {
+        for (int attempt = 0; attempt < MAX_STORE_ATTEMPTS; attempt++) {
+            Blob existing = addReference(hash);
+            if (existing != null) {
+                return existing;
+            }
+            
+            // Each upload gets its own object key, so a concurrent upload of the same content
+            // can never overwrite an object that another blob record points at
+            Blob blob = upload(hash, size, contentType, content);
+            try {
+                return mongoTemplate.insert(blob);
+            } catch (DuplicateKeyException e) {
+                // Lost the race to another upload of the same content (or a blob still being
+                // collected); drop our copy and reference theirs
+                blobStore.delete(blob.getS3Key());
+            }
+        }
+        throw new RuntimeException("Could not store blob " + hash);
+    }
+    
+    public Blob addReference(String hash) {
+        // refCount > 0: a blob that reached zero is being collected and must not be revived
+        Query query = new Query(Criteria.where("_id").is(hash).and("refCount").gt(0));
+        return mongoTemplate.findAndModify(query, new Update().inc("refCount", 1),
+                FindAndModifyOptions.options().returnNew(true), Blob.class);
+    }
+    
+    // Drops one reference and deletes the stored object once nothing points at it
+    public void release(String hash) {
+        Blob blob = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(hash)),
+                new Update().inc("refCount", -1), FindAndModifyOptions.options().returnNew(true), Blob.class);
+        if (blob == null || blob.getRefCount() > 0) {
+            return;
+        }
+        long removed = mongoTemplate.remove(new Query(Criteria.where("_id").is(hash).and("refCount").lte(0)), Blob.class)
+                .getDeletedCount();
+        if (removed > 0) {
+            blobStore.delete(blob.getS3Key());
+            System.out.println("🗑️ Collected blob " + hash);
+        }
+    }
+    
+    public Blob getBlob(String hash) {
+        Blob blob = mongoTemplate.findById(hash, Blob.class);
+        if (blob == null) {
+            throw new RuntimeException("Blob not found: " + hash);
+        }
+        return blob;
+    }
+    
+    public String dataKey(Blob blob) {
+        return keyWrappingService.unwrapForBlob(blob.getWrappedKey(), blob.getId());
+    }
+    
+    private Blob upload(String hash, long size, String contentType, InputStreamSource content) throws Exception {
+        String dataKey = EncryptionUtil.generateKey();
+        String s3Key = "blobs/" + hash + "/" + UUID.randomUUID();
+        long storedSize = EncryptionUtil.encryptedLength(size);
+        
+        try (InputStream encryptedStream = encryptionEngine.encryptingStream(content.getInputStream(), size, dataKey)) {
+            blobStore.upload(s3Key, encryptedStream, storedSize, contentType);
+        }
+        
+        Blob blob = new Blob();
+        blob.setId(hash);
+        blob.setS3Key(s3Key);
+        blob.setSize(size);
+        blob.setStoredSize(storedSize);
+        blob.setEncryptionVersion(EncryptionUtil.FORMAT_VERSION);
+        blob.setWrappedKey(keyWrappingService.wrapForBlob(dataKey, hash));
+        blob.setRefCount(1);
+        blob.setCreatedAt(LocalDateTime.now());
+        return blob;
+    }
+    
+    // How much storage deduplication saves: bytes referenced by files versus bytes held in blobs
+    public DedupReport report() {
+        Criteria blobBacked = new Criteria().orOperator(
+                Criteria.where("blobId").ne(null), Criteria.where("chunks").ne(null));
+        Document files = sum(blobBacked, "fileSize", FileMetadata.class);
+        Document blobs = sum(new Criteria(), "size", Blob.class);
+        long logicalBytes = files.get("bytes", Number.class).longValue();
+        long storedBytes = blobs.get("bytes", Number.class).longValue();
+        return new DedupReport(
+                files.get("count", Number.class).longValue(),
+                blobs.get("count", Number.class).longValue(),
+                logicalBytes,
+                storedBytes,
+                logicalBytes - storedBytes);
+    }
+    
+    private Document sum(Criteria criteria, String field, Class<?> type) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group().count().as("count").sum(field).as("bytes"));
+        Document result = mongoTemplate.aggregate(aggregation, type, Document.class).getUniqueMappedResult();
+        return result != null ? result : new Document("count", 0).append("bytes", 0);
+    }
+}
@@ -0,0 +1,34 @@
+package com.project.googledrive.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+// Where encrypted objects live. Everything above this interface deals in keys and ciphertext
+// only, so the backend is picked by storage.backend (s3, local or memory) without touching the
+// services. Keys are opaque strings; a store must accept any key S3 would.
+public interface BlobStore {
+
+    // Stores exactly contentLength bytes under key, replacing any previous object. Readers see
+    // either the old object or the complete new one, never a partial write.
+    void upload(String key, InputStream inputStream, long contentLength, String contentType) throws Exception;
+
+    // Opens a byte range (inclusive) of an object
+    InputStream openRange(String key, long start, long end) throws IOException;
+
+    void delete(String key);
+
+    // Multipart uploads, for resumable upload sessions whose parts arrive in separate requests.
+    // Parts may be sent in any order and re-sent; completing takes the tags returned for parts
+    // 1..n in order and makes the object visible in one step.
+    String startMultipartUpload(String key, String contentType);
+
+    String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length);
+
+    void completeMultipartUpload(String key, String uploadId, List<String> partTags);
+
+    void abortMultipartUpload(String key, String uploadId);
+
+    // Where the object lives, for display and operators (e.g. s3://bucket/key)
+    String locationOf(String key);
+}
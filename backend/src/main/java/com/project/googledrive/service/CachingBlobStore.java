@@ -0,0 +1,385 @@
+package com.project.googledrive.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import com.project.googledrive.util.EncryptionUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// Node-local disk cache in front of another BlobStore, normally S3. Objects are cached in
+// blocks: a read fetches only the blocks its range covers, and every later range inside them is
+// served from disk. Block boundaries fall on encryption segment boundaries, so the segment range
+// behind a download or seek fills whole blocks and no more; an object smaller than one block is
+// simply cached whole on its first read. Concurrent misses for one block wait on a single fetch.
+// The total size is bounded with Caffeine's W-TinyLFU eviction, so a burst of one-off downloads
+// can't push out the files read all day. Only ciphertext is cached, so the files are as safe at
+// rest as the bucket.
+public class CachingBlobStore implements BlobStore {
+
+    // Bytes of one stored segment, ciphertext plus tag
+    private static final long SEGMENT_STRIDE = EncryptionUtil.SEGMENT_SIZE + EncryptionUtil.TAG_SIZE;
+
+    private final BlobStore origin;
+    private final LocalBlobStore disk;
+    private final long blockSize;
+    // Block -> bytes of it on disk; fewer than a full block means the object ends there
+    private final AsyncCache<Block, Long> cached;
+    // Object key -> indexes of its cached blocks, so a write can drop all of them
+    private final Map<String, Set<Long>> blocksByKey = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter bypasses;
+    private final Counter bytesFromCache;
+    private final Counter bytesFromOrigin;
+    private final Counter bytesFetched;
+
+    public CachingBlobStore(BlobStore origin, Path directory, long maxBytes, long blockSize,
+                            MeterRegistry meterRegistry) throws IOException {
+        if (blockSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("blockSize must fit in one array");
+        }
+        this.origin = origin;
+        // Whole segments only, so block boundaries line up with segment boundaries
+        this.blockSize = Math.max(1, blockSize / SEGMENT_STRIDE) * SEGMENT_STRIDE;
+        // The index lives in memory, so files from a previous run are unknown; start empty
+        deleteContents(directory);
+        this.disk = new LocalBlobStore(directory, 64L * 1024 * 1024);
+        this.cached = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Block block, Long size) -> (int) Math.min(size, Integer.MAX_VALUE))
+                // Evicted files are deleted before the evicting call returns
+                .executor(Runnable::run)
+                .removalListener((Block block, Long size, RemovalCause cause) -> {
+                    if (block != null && cause != RemovalCause.REPLACED) {
+                        deleteFromDisk(block);
+                        forget(block);
+                    }
+                })
+                .buildAsync();
+
+        this.hits = meterRegistry.counter("storage.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("storage.cache.requests", "result", "miss");
+        this.bypasses = meterRegistry.counter("storage.cache.requests", "result", "bypass");
+        this.bytesFromCache = meterRegistry.counter("storage.cache.bytes.served", "source", "cache");
+        this.bytesFromOrigin = meterRegistry.counter("storage.cache.bytes.served", "source", "origin");
+        this.bytesFetched = meterRegistry.counter("storage.cache.bytes.fetched");
+        meterRegistry.gauge("storage.cache.size.bytes", this, CachingBlobStore::cachedBytes);
+        // Of the block reads the cache could take, how many it answered without a fetch of their own
+        meterRegistry.gauge("storage.cache.hit.ratio", this, store -> {
+            double lookups = store.hits.count() + store.misses.count();
+            return lookups == 0 ? 0 : store.hits.count() / lookups;
+        });
+    }
+
+    @Override
+    public InputStream openRange(String key, long start, long end) throws IOException {
+        if (start < 0 || start > end) {
+            return origin.openRange(key, start, end);
+        }
+        BlockRangeInputStream in = new BlockRangeInputStream(key, start, end);
+        try {
+            // Open the first block now, so a missing object fails here as it would at the origin
+            in.advance();
+            return in;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    long getBlockSize() {
+        return blockSize;
+    }
+
+    // The header sits in front of the first segment, so block 0 carries it as well
+    private long blockStart(long index) {
+        return index == 0 ? 0 : EncryptionUtil.HEADER_SIZE + index * blockSize;
+    }
+
+    private long blockOf(long position) {
+        return Math.max(0, (position - EncryptionUtil.HEADER_SIZE) / blockSize);
+    }
+
+    private long blockLength(long index) {
+        return blockStart(index + 1) - blockStart(index);
+    }
+
+    // The bytes of the block on disk, or null if it can't be cached
+    private Long lookup(Block block) {
+        CompletableFuture<Long> fill = new CompletableFuture<>();
+        CompletableFuture<Long> existing = cached.asMap().putIfAbsent(block, fill);
+        if (existing != null) {
+            hits.increment();
+            return existing.join();
+        }
+
+        // Indexed before the fetch, so a write racing with it finds the block to drop
+        blocksByKey.computeIfAbsent(block.key(), key -> ConcurrentHashMap.newKeySet()).add(block.index());
+        misses.increment();
+        try {
+            Long size = fetch(block);
+            fill.complete(size);
+            if (cached.asMap().get(block) != fill) {
+                // Deleted or replaced while fetching; the bytes on disk are stale
+                deleteFromDisk(block);
+                return null;
+            }
+            return size;
+        } catch (Exception e) {
+            // Every waiter goes to the origin, which reports the real error
+            cached.asMap().remove(block, fill);
+            forget(block);
+            fill.complete(null);
+            return null;
+        }
+    }
+
+    private Long fetch(Block block) throws Exception {
+        long start = blockStart(block.index());
+        int length = (int) blockLength(block.index());
+        byte[] data;
+        try (InputStream in = origin.openRange(block.key(), start, start + length - 1)) {
+            data = in.readNBytes(length);
+        }
+        bytesFetched.increment(data.length);
+        disk.upload(block.diskKey(), new ByteArrayInputStream(data), data.length, null);
+        return (long) data.length;
+    }
+
+    // Writes and deletes go to the origin first and then drop the cached copy, so a read
+    // racing with them can't cache what is about to disappear
+
+    @Override
+    public void upload(String key, InputStream inputStream, long contentLength, String contentType) throws Exception {
+        origin.upload(key, inputStream, contentLength, contentType);
+        invalidate(key);
+    }
+
+    @Override
+    public void delete(String key) {
+        origin.delete(key);
+        invalidate(key);
+    }
+
+    @Override
+    public String startMultipartUpload(String key, String contentType) {
+        return origin.startMultipartUpload(key, contentType);
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length) {
+        return origin.uploadPart(key, uploadId, partNumber, data, length);
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> partTags) {
+        origin.completeMultipartUpload(key, uploadId, partTags);
+        invalidate(key);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        origin.abortMultipartUpload(key, uploadId);
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return origin.locationOf(key);
+    }
+
+    public void invalidate(String key) {
+        Set<Long> indexes = blocksByKey.remove(key);
+        if (indexes != null) {
+            for (Long index : indexes) {
+                cached.synchronous().invalidate(new Block(key, index));
+            }
+        }
+    }
+
+    public long cachedBytes() {
+        return cached.synchronous().policy().eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+    }
+
+    private void deleteFromDisk(Block block) {
+        try {
+            disk.delete(block.diskKey());
+        } catch (RuntimeException e) {
+            System.err.println("❌ Failed to delete cached block " + block.diskKey() + ": " + e.getMessage());
+        }
+    }
+
+    // Unless the block was cached again meanwhile, it no longer needs invalidating
+    private void forget(Block block) {
+        if (cached.asMap().containsKey(block)) {
+            return;
+        }
+        blocksByKey.computeIfPresent(block.key(), (key, indexes) -> {
+            indexes.remove(block.index());
+            return indexes.isEmpty() ? null : indexes;
+        });
+    }
+
+    private static void deleteContents(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                if (!path.equals(directory)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private record Block(String key, long index) {
+
+        String diskKey() {
+            return key + "#" + index;
+        }
+    }
+
+    // Reads a range block by block, fetching each block only when the reader gets to it. If a
+    // block can't be cached, the rest of the range comes straight from the origin
+    private final class BlockRangeInputStream extends InputStream {
+
+        private final String key;
+        private final long end;
+        private long position;
+        private InputStream current;
+        private boolean lastPart;
+        private boolean opened;
+
+        BlockRangeInputStream(String key, long start, long end) {
+            this.key = key;
+            this.position = start;
+            this.end = end;
+        }
+
+        // Opens the part of the range at position; false once the range or the object is done
+        boolean advance() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (lastPart || position > end) {
+                return false;
+            }
+            long index = blockOf(position);
+            long blockStart = blockStart(index);
+            Block block = new Block(key, index);
+            Long size = lookup(block);
+            if (size != null) {
+                if (position >= blockStart + size) {
+                    // The object ended inside an earlier part of this block
+                    lastPart = true;
+                    return false;
+                }
+                long blockEnd = Math.min(end, blockStart + size - 1);
+                try {
+                    current = new CountingInputStream(
+                            disk.openRange(block.diskKey(), position - blockStart, blockEnd - blockStart),
+                            bytesFromCache);
+                    lastPart = size < blockLength(index) || blockEnd == end;
+                    opened = true;
+                    return true;
+                } catch (NoSuchFileException e) {
+                    // Evicted between the lookup and the open
+                    cached.synchronous().invalidate(block);
+                }
+            }
+            bypasses.increment();
+            lastPart = true;
+            try {
+                current = new CountingInputStream(origin.openRange(key, position, end), bytesFromOrigin);
+            } catch (IOException | RuntimeException e) {
+                // After a full block, a range running past the end finds nothing at the next block;
+                // like the origin, return what there is
+                if (opened && position == blockStart) {
+                    return false;
+                }
+                throw e;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current != null) {
+                int read = current.read(b, off, len);
+                if (read > 0) {
+                    position += read;
+                    return read;
+                }
+                if (!advance()) {
+                    break;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                counter.increment(read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.project.googledrive.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.googledrive.dto.DocumentInsights;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.service.OpenAiService;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Keywords and summary from a single chat completion, instead of one request each
+@Service
+public class DocumentInsightsService {
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private final OpenAiService openAiService;
+    
+    public DocumentInsightsService(OpenAiService openAiService) {
+        this.openAiService = openAiService;
+    }
+    
+    public DocumentInsights extractInsights(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new DocumentInsights(new ArrayList<>(), "");
+        }
+        
+        try {
+            // Same prefix the summary used on its own; keywords previously saw the first 3000 of it
+            String textForInsights = text.length() > 4000 
+                ? text.substring(0, 4000) 
+                : text;
+            
+            String prompt = "Analyze this document and respond with ONLY a JSON object of the form " +
+                          "{\"keywords\": [\"...\"], \"summary\": \"...\"}. " +
+                          "keywords: 5-7 main keywords or topics, each a single word or short phrase (2-3 words max). " +
+                          "summary: 2-3 concise sentences on the main topic and key points. " +
+                          "Text: " + textForInsights;
+            
+            ChatMessage systemMessage = new ChatMessage("system", 
+                "You are a document analysis expert. Respond with valid JSON only.");
+            ChatMessage userMessage = new ChatMessage("user", prompt);
+            
+            ChatCompletionRequest request = ChatCompletionRequest.builder()
+                    .model("gpt-3.5-turbo")
+                    .messages(Arrays.asList(systemMessage, userMessage))
+                    .maxTokens(250)
+                    .temperature(0.3)
+                    .build();
+            
+            String response = openAiService.createChatCompletion(request)
+                    .getChoices()
+                    .get(0)
+                    .getMessage()
+                    .getContent()
+                    .trim();
+            
+            DocumentInsights insights = parseInsights(response);
+            System.out.println("✅ Extracted insights: " + insights.getKeywords());
+            return insights;
+            
+        } catch (Exception e) {
+            System.err.println("❌ Insight extraction failed: " + e.getMessage());
+            return new DocumentInsights(new ArrayList<>(), "");
+        }
+    }
+    
+    // Accepts the JSON we asked for, including when wrapped in prose or a code fence. Otherwise
+    // falls back to "Keywords: a, b" / "Summary: ..." lines, and with no labels at all to the
+    // usual comma-split keyword parsing of the whole response.
+    public static DocumentInsights parseInsights(String response) {
+        int start = response.indexOf('{');
+        int end = response.lastIndexOf('}');
+        if (start >= 0 && end > start) {
+            try {
+                JsonNode json = OBJECT_MAPPER.readTree(response.substring(start, end + 1));
+                JsonNode keywordsNode = json.path("keywords");
+                List<String> keywords = new ArrayList<>();
+                if (keywordsNode.isArray()) {
+                    keywordsNode.forEach(keyword -> keywords.add(keyword.asText()));
+                } else if (keywordsNode.isTextual()) {
+                    keywords.add(keywordsNode.asText());
+                }
+                return new DocumentInsights(
+                        KeywordExtractionService.parseKeywords(String.join(",", keywords)),
+                        json.path("summary").asText("").trim());
+            } catch (Exception e) {
+                // Not valid JSON after all; try the labelled form below
+            }
+        }
+        
+        List<String> keywords = new ArrayList<>();
+        StringBuilder summary = new StringBuilder();
+        boolean inSummary = false;
+        boolean labelled = false;
+        for (String line : response.split("\\R")) {
+            String trimmed = line.trim();
+            String lower = trimmed.toLowerCase();
+            if (lower.startsWith("keywords:")) {
+                keywords = KeywordExtractionService.parseKeywords(trimmed.substring("keywords:".length()));
+                inSummary = false;
+                labelled = true;
+            } else if (lower.startsWith("summary:")) {
+                summary.append(trimmed.substring("summary:".length()).trim());
+                inSummary = true;
+                labelled = true;
+            } else if (inSummary && !trimmed.isEmpty()) {
+                summary.append(' ').append(trimmed);
+            }
+        }
+        if (!labelled) {
+            // A bare "a, b, c" list: keywords only, so the summary still counts as missing
+            keywords = KeywordExtractionService.parseKeywords(response);
+        }
+        return new DocumentInsights(keywords, summary.toString().trim());
+    }
+}
@@ -3,7 +3,6 @@ package com.project.googledrive.service;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.service.OpenAiService;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Arrays;
@@ -13,8 +12,8 @@ public class DocumentSummaryService {
     
     private final OpenAiService openAiService;
     
-    public DocumentSummaryService(@Value("${openai.api.key}") String apiKey) {
-        this.openAiService = new OpenAiService(apiKey);
+    public DocumentSummaryService(OpenAiService openAiService) {
+        this.openAiService = openAiService;
     }
     
     public String generateSummary(String text) {
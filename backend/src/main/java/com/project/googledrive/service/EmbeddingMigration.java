@@ -0,0 +1,95 @@
+package com.project.googledrive.service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.FileMetadata;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// One-off conversion of embeddings stored as an array of doubles in "embedding" to the packed
+// float32 binary in "embeddingVector", and tagging of embeddings stored before models were
+// tracked with the OpenAI model, their only possible source. Runs at startup and is idempotent:
+// converted documents no longer match, so an interrupted run simply continues where it stopped.
+@Component
+public class EmbeddingMigration {
+    
+    private static final String LEGACY_FIELD = "embedding";
+    private static final String FIELD = "embeddingVector";
+    private static final String MODEL_FIELD = "embeddingModel";
+    
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+    private final String legacyModel;
+    
+    public EmbeddingMigration(MongoTemplate mongoTemplate,
+                              @Value("${embedding.migration.batch-size:500}") int batchSize,
+                              @Value("${openai.model}") String legacyModel) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+        this.legacyModel = legacyModel;
+    }
+    
+    @PostConstruct
+    public void migrate() {
+        try {
+            long migrated = migrateLegacyEmbeddings();
+            if (migrated > 0) {
+                System.out.println("✅ Migrated " + migrated + " embeddings to float32 storage");
+            }
+            long tagged = tagUnversionedEmbeddings();
+            if (tagged > 0) {
+                System.out.println("✅ Tagged " + tagged + " embeddings with model " + legacyModel);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Embedding migration failed: " + e.getMessage());
+        }
+    }
+    
+    long migrateLegacyEmbeddings() {
+        MongoCollection<Document> files = mongoTemplate.getCollection(mongoTemplate.getCollectionName(FileMetadata.class));
+        long migrated = 0;
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        
+        for (Document file : files.find(Filters.type(LEGACY_FIELD, "array"))
+                .projection(Projections.include(LEGACY_FIELD))
+                .batchSize(batchSize)) {
+            List<Double> legacy = file.getList(LEGACY_FIELD, Double.class);
+            batch.add(new UpdateOneModel<>(
+                    Filters.eq("_id", file.get("_id")),
+                    Updates.combine(
+                            Updates.set(FIELD, new Binary(Embedding.of(legacy).toBytes())),
+                            Updates.set(MODEL_FIELD, legacyModel),
+                            Updates.unset(LEGACY_FIELD))));
+            
+            if (batch.size() == batchSize) {
+                files.bulkWrite(batch);
+                migrated += batch.size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            files.bulkWrite(batch);
+            migrated += batch.size();
+        }
+        return migrated;
+    }
+    
+    long tagUnversionedEmbeddings() {
+        MongoCollection<Document> files = mongoTemplate.getCollection(mongoTemplate.getCollectionName(FileMetadata.class));
+        return files.updateMany(
+                Filters.and(Filters.ne(FIELD, null), Filters.exists(MODEL_FIELD, false)),
+                Updates.set(MODEL_FIELD, legacyModel)).getModifiedCount();
+    }
+}
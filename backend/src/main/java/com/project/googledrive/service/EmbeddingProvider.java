@@ -0,0 +1,16 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+
+import java.util.List;
+
+// Where embeddings come from. The model id names the model and whatever else changes its
+// vectors, such as the dimension: embeddings are only comparable when their ids are equal, so
+// files and queries carry the id of the model that embedded them.
+public interface EmbeddingProvider {
+    
+    String modelId();
+    
+    // One embedding per input, in input order
+    List<Embedding> embed(List<String> texts);
+}
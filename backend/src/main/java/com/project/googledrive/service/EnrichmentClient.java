@@ -0,0 +1,22 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.DocumentInsights;
+import com.project.googledrive.model.Embedding;
+
+import java.util.List;
+
+// The model calls used to enrich a document; swapped for a stub when testing offline
+public interface EnrichmentClient {
+    
+    Embedding generateEmbedding(String text);
+    
+    // Model id of the embeddings generateEmbedding returns
+    String embeddingModel();
+    
+    List<String> extractKeywords(String text);
+    
+    String generateSummary(String text);
+    
+    // Keywords and summary from one combined request
+    DocumentInsights extractInsights(String text);
+}
@@ -0,0 +1,107 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.EnrichmentJob;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.repository.EnrichmentJobRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Durable queue of enrichment work backed by the enrichment_jobs collection. Jobs are claimed
+// with an atomic findAndModify lease, so several workers (or nodes) can drain it safely.
+@Service
+public class EnrichmentQueue {
+    
+    private final EnrichmentJobRepository jobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration lease;
+    
+    public EnrichmentQueue(EnrichmentJobRepository jobRepository,
+                           MongoTemplate mongoTemplate,
+                           @Value("${enrichment.max-attempts:5}") int maxAttempts,
+                           @Value("${enrichment.backoff-ms:30000}") long baseBackoffMs,
+                           @Value("${enrichment.lease-ms:600000}") long leaseMs) {
+        this.jobRepository = jobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = Duration.ofMillis(baseBackoffMs);
+        this.lease = Duration.ofMillis(leaseMs);
+    }
+    
+    // One job per file. Enqueueing a file that already has a job (pending, failed, or leased by a
+    // worker still busy with older content) starts that job over instead of adding another.
+    public void enqueue(String fileId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("fileId").is(fileId));
+        Update update = new Update()
+                .set("status", EnrichmentStatus.PENDING)
+                .set("attempts", 0)
+                .set("nextAttemptAt", now)
+                .unset("lockedUntil")
+                .unset("lastError")
+                .setOnInsert("createdAt", now);
+        try {
+            mongoTemplate.upsert(query, update, EnrichmentJob.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent enqueue inserted it first; now there is a job to update
+            mongoTemplate.upsert(query, update, EnrichmentJob.class);
+        }
+    }
+    
+    // Atomically lease the next due job, or return null if none is ready
+    public EnrichmentJob claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("status").is(EnrichmentStatus.PENDING)
+                .and("nextAttemptAt").lte(now)
+                .orOperator(Criteria.where("lockedUntil").is(null), Criteria.where("lockedUntil").lt(now)))
+                .with(Sort.by("nextAttemptAt"));
+        Update update = new Update()
+                .set("lockedUntil", now.plus(lease))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), EnrichmentJob.class);
+    }
+    
+    // Completing and rescheduling only apply while the worker still holds its lease; a job that
+    // was enqueued again meanwhile is for newer content and is left alone
+    public void complete(EnrichmentJob job) {
+        mongoTemplate.remove(heldLease(job), EnrichmentJob.class);
+    }
+    
+    // Reschedules with exponential backoff; returns false once the job has used all its attempts
+    public boolean retryOrFail(EnrichmentJob job, Exception error) {
+        Query query = heldLease(job);
+        Update update = new Update()
+                .unset("lockedUntil")
+                .set("lastError", error.getMessage());
+        
+        boolean retry = job.getAttempts() < maxAttempts;
+        if (retry) {
+            long multiplier = 1L << Math.min(job.getAttempts() - 1, 10);
+            update.set("nextAttemptAt", LocalDateTime.now().plus(baseBackoff.multipliedBy(multiplier)));
+        } else {
+            update.set("status", EnrichmentStatus.FAILED);
+        }
+        mongoTemplate.updateFirst(query, update, EnrichmentJob.class);
+        return retry;
+    }
+    
+    private static Query heldLease(EnrichmentJob job) {
+        return new Query(Criteria.where("_id").is(job.getId()).and("lockedUntil").is(job.getLockedUntil()));
+    }
+    
+    public void remove(String fileId) {
+        jobRepository.deleteByFileId(fileId);
+    }
+}
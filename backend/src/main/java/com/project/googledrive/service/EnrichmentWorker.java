@@ -0,0 +1,280 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.DocumentInsights;
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.EnrichmentJob;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.repository.FileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Drains the enrichment queue on a fixed worker pool: extracts text from the stored file,
+// runs the independent model calls concurrently and writes the results back onto the file's metadata.
+@Service
+public class EnrichmentWorker {
+    
+    private final EnrichmentQueue enrichmentQueue;
+    private final FileRepository fileRepository;
+    private final TextExtractionService textExtractionService;
+    private final MongoTemplate mongoTemplate;
+    private final EnrichmentClient enrichmentClient;
+    private final VectorIndexService vectorIndexService;
+    private final FullTextIndexService fullTextIndexService;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final ExecutorService callExecutor;
+    private final Semaphore freeWorkers;
+    private final long callTimeoutMs;
+    private final boolean combinedMode;
+    
+    public EnrichmentWorker(EnrichmentQueue enrichmentQueue,
+                            FileRepository fileRepository,
+                            TextExtractionService textExtractionService,
+                            MongoTemplate mongoTemplate,
+                            EnrichmentClient enrichmentClient,
+                            VectorIndexService vectorIndexService,
+                            FullTextIndexService fullTextIndexService,
+                            MeterRegistry meterRegistry,
+                            @Value("${enrichment.workers:4}") int workers,
+                            @Value("${enrichment.call-timeout-ms:30000}") long callTimeoutMs,
+                            @Value("${enrichment.mode:separate}") String mode) {
+        this.enrichmentQueue = enrichmentQueue;
+        this.fileRepository = fileRepository;
+        this.textExtractionService = textExtractionService;
+        this.mongoTemplate = mongoTemplate;
+        this.enrichmentClient = enrichmentClient;
+        this.vectorIndexService = vectorIndexService;
+        this.fullTextIndexService = fullTextIndexService;
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newFixedThreadPool(workers);
+        // Each job fans out into at most three concurrent model calls
+        this.callExecutor = Executors.newFixedThreadPool(workers * 3);
+        this.freeWorkers = new Semaphore(workers);
+        this.callTimeoutMs = callTimeoutMs;
+        // "combined" asks for keywords and summary in one request; "separate" issues one request each
+        this.combinedMode = "combined".equalsIgnoreCase(mode);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        callExecutor.shutdownNow();
+    }
+    
+    // Only claim as many jobs as there are idle workers, so unclaimed jobs stay available to other nodes
+    @Scheduled(fixedDelayString = "${enrichment.poll-interval-ms:2000}")
+    public void poll() {
+        while (freeWorkers.tryAcquire()) {
+            EnrichmentJob job = enrichmentQueue.claimNext();
+            if (job == null) {
+                freeWorkers.release();
+                return;
+            }
+            executor.execute(() -> {
+                try {
+                    process(job);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+    
+    void process(EnrichmentJob job) {
+        FileMetadata file = fileRepository.findById(job.getFileId()).orElse(null);
+        if (file == null) {
+            // Deleted before we got to it
+            enrichmentQueue.complete(job);
+            return;
+        }
+        
+        try {
+            // Extracted once, as much as full-text search indexes; the model calls only get the
+            // start of it, within the extraction budget
+            int modelChars = textExtractionService.getMaxChars();
+            String extractedText = timed("extract", () -> textExtractionService.extractText(file,
+                    Math.max(fullTextIndexService.getMaxChars(), modelChars)));
+            String modelText = extractedText.length() > modelChars ? extractedText.substring(0, modelChars) : extractedText;
+            List<String> failures = new ArrayList<>();
+            Update update = new Update();
+            Embedding newEmbedding = null;
+            
+            if (!extractedText.isEmpty()) {
+                // Limit text to first 8000 characters to avoid token limits
+                String textForEmbedding = modelText.length() > 8000
+                    ? modelText.substring(0, 8000)
+                    : modelText;
+                
+                // The model calls are independent, so run them side by side. Stages that already
+                // succeeded on an earlier attempt are skipped.
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(callTimeoutMs);
+                // An embedding from another model can't be compared with the index, so it is redone
+                String embeddingModel = enrichmentClient.embeddingModel();
+                Future<Embedding> embedding = file.getEmbedding() == null
+                        || !Objects.equals(file.getEmbeddingModel(), embeddingModel)
+                    ? startStage("embedding", () -> enrichmentClient.generateEmbedding(textForEmbedding))
+                    : null;
+                boolean needKeywords = isEmpty(file.getKeywords());
+                boolean needSummary = isEmpty(file.getSummary());
+                
+                if (combinedMode) {
+                    Future<DocumentInsights> insights = needKeywords || needSummary
+                        ? startStage("insights", () -> enrichmentClient.extractInsights(modelText))
+                        : null;
+                    
+                    newEmbedding = awaitStage("embedding", embedding, deadline, failures);
+                    setIfPresent(update, "embedding", newEmbedding);
+                    DocumentInsights result = awaitStage("insights", insights, deadline, failures);
+                    if (result != null) {
+                        if (needKeywords) {
+                            setIfPresent(update, "keywords", presentOrFail("keywords", result.getKeywords(), failures));
+                        }
+                        if (needSummary) {
+                            setIfPresent(update, "summary", presentOrFail("summary", result.getSummary(), failures));
+                        }
+                    }
+                } else {
+                    // The OpenAI services log and swallow their errors, returning nothing instead
+                    Future<List<String>> keywords = needKeywords
+                        ? startStage("keywords", () -> nonEmpty(enrichmentClient.extractKeywords(modelText)))
+                        : null;
+                    Future<String> summary = needSummary
+                        ? startStage("summary", () -> nonEmpty(enrichmentClient.generateSummary(modelText)))
+                        : null;
+                    
+                    newEmbedding = awaitStage("embedding", embedding, deadline, failures);
+                    setIfPresent(update, "embedding", newEmbedding);
+                    setIfPresent(update, "keywords", awaitStage("keywords", keywords, deadline, failures));
+                    setIfPresent(update, "summary", awaitStage("summary", summary, deadline, failures));
+                }
+                if (newEmbedding != null) {
+                    update.set("embeddingModel", embeddingModel);
+                }
+            }
+            
+            // Keep whatever succeeded; a retry only repeats the stages that are still missing
+            update.set("enrichmentStatus", failures.isEmpty() ? EnrichmentStatus.DONE : EnrichmentStatus.PENDING);
+            
+            // Partial update so a rename or share that happened meanwhile isn't overwritten, and
+            // only onto the content version that was enriched
+            if (mongoTemplate.updateFirst(sameContent(file), update, FileMetadata.class).getMatchedCount() == 0) {
+                // Replaced or deleted meanwhile. New text content was enqueued again, which
+                // voids this lease, so completing only drops the job when nothing is left to do.
+                enrichmentQueue.complete(job);
+                System.out.println("⏭️ Skipped stale enrichment of " + file.getOriginalFileName());
+                return;
+            }
+            if (newEmbedding != null) {
+                vectorIndexService.index(file.getId(), file.getOwnerEmail(), file.getSharedWith(), newEmbedding);
+            }
+            fullTextIndexService.index(file.getId(), extractedText);
+            if (!failures.isEmpty()) {
+                throw new RuntimeException(String.join("; ", failures));
+            }
+            enrichmentQueue.complete(job);
+            System.out.println("✅ Enriched: " + file.getOriginalFileName());
+        } catch (Exception e) {
+            boolean willRetry = enrichmentQueue.retryOrFail(job, e);
+            System.err.println("❌ Enrichment attempt " + job.getAttempts() + " failed for "
+                    + file.getOriginalFileName() + ": " + e.getMessage() + (willRetry ? " (will retry)" : ""));
+            if (!willRetry) {
+                mongoTemplate.updateFirst(sameContent(file),
+                        new Update().set("enrichmentStatus", EnrichmentStatus.FAILED), FileMetadata.class);
+            }
+        }
+    }
+    
+    private <T> Future<T> startStage(String stage, Callable<T> call) {
+        return callExecutor.submit(() -> timed(stage, call));
+    }
+    
+    // Waits for a stage until the shared deadline; failures and timeouts are recorded and yield null
+    private <T> T awaitStage(String stage, Future<T> future, long deadline, List<String> failures) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            meterRegistry.counter("enrichment.stage.timeouts", "stage", stage).increment();
+            failures.add(stage + " timed out");
+        } catch (ExecutionException e) {
+            failures.add(stage + " failed: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            failures.add(stage + " interrupted");
+        }
+        return null;
+    }
+    
+    // Records the latency of one stage, tagged with its outcome
+    private <T> T timed(String stage, Callable<T> call) throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            T result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(meterRegistry.timer("enrichment.stage", "stage", stage, "outcome", outcome));
+        }
+    }
+    
+    // The combined response can parse but still lack a part; treat that part as failed so it is retried
+    private static <T> T presentOrFail(String part, T value, List<String> failures) {
+        if (isEmpty(value)) {
+            failures.add("insights missing " + part);
+            return null;
+        }
+        return value;
+    }
+    
+    // An empty answer for non-empty text means the call failed; fail the stage so it is retried
+    private static <T> T nonEmpty(T value) {
+        if (isEmpty(value)) {
+            throw new IllegalStateException("no result");
+        }
+        return value;
+    }
+    
+    private static void setIfPresent(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        }
+    }
+    
+    private static boolean isEmpty(Object value) {
+        return value == null
+                || (value instanceof String text && text.isEmpty())
+                || (value instanceof List<?> list && list.isEmpty());
+    }
+    
+    // The file as long as it still holds the content version that was read; files from before
+    // versioning have no version until their content is first replaced
+    private static Query sameContent(FileMetadata file) {
+        return new Query(Criteria.where("_id").is(file.getId()).and("version").is(file.getVersion()));
+    }
+}
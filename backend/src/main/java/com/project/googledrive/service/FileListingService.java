@@ -0,0 +1,161 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.FileListItem;
+import com.project.googledrive.dto.FileListPage;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.model.FileMetadata;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.GroupOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+// Keyset-paginated listing of the files a user owns or has been shared. Pages are read with a
+// field projection, so embeddings, keys and summaries never leave the database.
+@Service
+public class FileListingService {
+    
+    public static final int MAX_PAGE_SIZE = 200;
+    
+    private static final String[] LISTING_FIELDS = {
+            "originalFileName", "fileType", "fileSize", "ownerEmail", "uploadedAt", "sharedWith", "enrichmentStatus"
+    };
+    
+    private final MongoTemplate mongoTemplate;
+    
+    public FileListingService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+    
+    public enum SortField {
+        NAME("originalFileName"),
+        SIZE("fileSize"),
+        UPLOADED("uploadedAt");
+        
+        private final String field;
+        
+        SortField(String field) {
+            this.field = field;
+        }
+        
+        public static SortField parse(String value) {
+            return switch (value.toLowerCase()) {
+                case "name" -> NAME;
+                case "size" -> SIZE;
+                case "uploadedat", "uploaded", "date" -> UPLOADED;
+                default -> throw new IllegalArgumentException("Unknown sort field: " + value);
+            };
+        }
+    }
+    
+    public FileListPage listFiles(String userEmail, SortField sortField, Sort.Direction direction, int limit, String cursor) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Criteria criteria = accessibleBy(userEmail);
+        if (cursor != null && !cursor.isBlank()) {
+            criteria = new Criteria().andOperator(criteria, after(sortField, direction, cursor));
+        }
+        
+        // _id breaks ties so equal names or sizes still page deterministically
+        Query query = new Query(criteria)
+                .with(Sort.by(direction, sortField.field).and(Sort.by(direction, "_id")))
+                .limit(pageSize + 1);
+        query.fields().include(LISTING_FIELDS);
+        
+        List<FileMetadata> files = mongoTemplate.find(query, FileMetadata.class);
+        String nextCursor = null;
+        if (files.size() > pageSize) {
+            files = files.subList(0, pageSize);
+            nextCursor = encodeCursor(sortField, files.get(pageSize - 1));
+        }
+        return new FileListPage(files.stream().map(FileListItem::from).toList(), nextCursor);
+    }
+    
+    // Changes whenever a file is added, removed, renamed or shared in the user's view, or its
+    // enrichment status moves on. The worker writes that status without touching updatedAt (which
+    // content updates use as their precondition), so files per status are counted alongside.
+    // Cheap compared to a page read: one grouped pass that returns a handful of numbers.
+    public String listingVersion(String userEmail, String... requestParts) {
+        GroupOperation group = Aggregation.group().count().as("count").max("updatedAt").as("lastUpdated");
+        for (EnrichmentStatus status : EnrichmentStatus.values()) {
+            group = group.sum(ConditionalOperators.when(Criteria.where("enrichmentStatus").is(status.name()))
+                    .then(1).otherwise(0)).as(status.name());
+        }
+        Aggregation aggregation = Aggregation.newAggregation(Aggregation.match(accessibleBy(userEmail)), group);
+        Document summary = mongoTemplate.aggregate(aggregation, FileMetadata.class, Document.class).getUniqueMappedResult();
+        
+        StringBuilder version = new StringBuilder(userEmail);
+        if (summary != null) {
+            Object lastUpdated = summary.get("lastUpdated");
+            version.append('|').append(summary.get("count"))
+                    .append('|').append(lastUpdated instanceof Date date ? date.getTime() : lastUpdated);
+            for (EnrichmentStatus status : EnrichmentStatus.values()) {
+                version.append('|').append(summary.get(status.name()));
+            }
+        }
+        for (String part : requestParts) {
+            version.append('|').append(part);
+        }
+        
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(version.toString().getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (Exception e) {
+            throw new RuntimeException("SHA-256 unavailable", e);
+        }
+    }
+    
+    private static Criteria accessibleBy(String userEmail) {
+        return new Criteria().orOperator(
+                Criteria.where("ownerEmail").is(userEmail),
+                Criteria.where("sharedWith").is(userEmail));
+    }
+    
+    // Rows strictly after the cursor position in (sort field, _id) order
+    private static Criteria after(SortField sortField, Sort.Direction direction, String cursor) {
+        // sort field \n value \n id; the value is a file name and may itself contain newlines
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int first = raw.indexOf('\n');
+        int last = raw.lastIndexOf('\n');
+        if (first < 0 || first == last || !raw.substring(0, first).equals(sortField.name())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        String rawValue = raw.substring(first + 1, last);
+        Object value = switch (sortField) {
+            case NAME -> rawValue;
+            case SIZE -> Long.parseLong(rawValue);
+            case UPLOADED -> LocalDateTime.parse(rawValue);
+        };
+        String id = raw.substring(last + 1);
+        
+        boolean ascending = direction.isAscending();
+        Criteria beyondValue = ascending
+                ? Criteria.where(sortField.field).gt(value)
+                : Criteria.where(sortField.field).lt(value);
+        Criteria sameValue = ascending
+                ? new Criteria().andOperator(Criteria.where(sortField.field).is(value), Criteria.where("_id").gt(id))
+                : new Criteria().andOperator(Criteria.where(sortField.field).is(value), Criteria.where("_id").lt(id));
+        return new Criteria().orOperator(beyondValue, sameValue);
+    }
+    
+    private static String encodeCursor(SortField sortField, FileMetadata last) {
+        Object value = switch (sortField) {
+            case NAME -> last.getOriginalFileName();
+            case SIZE -> last.getFileSize();
+            case UPLOADED -> last.getUploadedAt();
+        };
+        String raw = sortField.name() + "\n" + value + "\n" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,137 +1,198 @@
 package com.project.googledrive.service;
 
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.PutObjectRequest;
-import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.model.ChunkRef;
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.EnrichmentStatus;
 import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.FileVersion;
 import com.project.googledrive.repository.FileRepository;
+import com.project.googledrive.util.ContentDefinedChunker;
 import com.project.googledrive.util.EncryptionUtil;
+import com.project.googledrive.util.HnswIndex;
+import com.project.googledrive.util.ParallelEncryptionEngine;
 import lombok.RequiredArgsConstructor;
-import org.apache.tika.Tika;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class FileService {
     
     private final FileRepository fileRepository;
-    private final AmazonS3 amazonS3;
-    private final OpenAIService openAIService;
-    private final KeywordExtractionService keywordExtractionService;
-    private final DocumentSummaryService documentSummaryService;
+    private final MongoTemplate mongoTemplate;
+    private final BlobStore blobStore;
+    private final ParallelEncryptionEngine encryptionEngine;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final EnrichmentQueue enrichmentQueue;
+    private final VectorIndexService vectorIndexService;
+    private final FullTextIndexService fullTextIndexService;
+    private final StorageUsageService storageUsageService;
+    private final BlobService blobService;
+    private final KeyWrappingService keyWrappingService;
     
-    @Value("${aws.s3.bucket.name}")
-    private String bucketName;
+    // Uploads larger than this are split into content-defined chunks
+    @Value("${sync.chunking-threshold:8388608}")
+    private long chunkingThreshold;
     
-    private final Tika tika = new Tika();
+    // How many files /search/ai returns at most, and the cosine similarity they need
+    @Value("${search.semantic.k:3}")
+    private int semanticK;
+    
+    @Value("${search.semantic.min-similarity:0.78}")
+    private double semanticMinSimilarity;
+    
+    static final String CHUNK_CONTENT_TYPE = "application/octet-stream";
+    
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker();
     
     // Storage limit: 15 GB in bytes
-    private static final long STORAGE_LIMIT = 15L * 1024 * 1024 * 1024; // 15 GB
+    static final long STORAGE_LIMIT = 15L * 1024 * 1024 * 1024; // 15 GB
     
     public FileMetadata uploadFile(MultipartFile file, String ownerEmail) throws Exception {
         // Generate unique filename
         String originalFileName = file.getOriginalFilename();
         
-        // Check storage limit before upload
-        long currentStorage = getTotalStorageUsed(ownerEmail);
+        // Reserve the space up front so concurrent uploads can't overshoot the limit together
         long newFileSize = file.getSize();
-        
-        if (currentStorage + newFileSize > STORAGE_LIMIT) {
-            long availableSpace = STORAGE_LIMIT - currentStorage;
-            throw new RuntimeException(
-                "Storage limit exceeded! You have " + 
-                (availableSpace / (1024 * 1024)) + " MB available, but file is " + 
-                (newFileSize / (1024 * 1024)) + " MB"
-            );
+        storageUsageService.reserve(ownerEmail, newFileSize, STORAGE_LIMIT);
+        try {
+            return storeFile(file, originalFileName, ownerEmail);
+        } catch (Exception e) {
+            storageUsageService.release(ownerEmail, newFileSize);
+            throw e;
+        }
+    }
+    
+    private FileMetadata storeFile(MultipartFile file, String originalFileName, String ownerEmail) throws Exception {
+        FileMetadata content = storeContent(file, ownerEmail);
+        try {
+            return saveNewFile(content, originalFileName, file.getContentType(), ownerEmail);
+        } catch (Exception e) {
+            releaseContent(content);
+            throw e;
+        }
+    }
+    
+    // Stores an upload's bytes and returns an unsaved FileMetadata holding only the content
+    // fields (size, where the bytes are, their key). New files and new versions of existing
+    // files are both built from it.
+    public FileMetadata storeContent(MultipartFile file, String ownerEmail) throws Exception {
+        // Large files are stored as content-defined chunks, so a later edit synced through
+        // /api/sync only has to send the chunks that changed
+        if (file.getSize() > chunkingThreshold) {
+            return chunkedContent(storeChunks(file), file.getSize());
         }
         
-        String fileName = UUID.randomUUID().toString() + "_" + originalFileName;
-        
-        // Generate encryption key
-        String encryptionKey = EncryptionUtil.generateKey();
-        
-        // Encrypt file data
-        byte[] fileData = file.getBytes();
-        byte[] encryptedData = EncryptionUtil.encrypt(fileData, encryptionKey);
-        
-        // Prepare S3 metadata
-        ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentLength(encryptedData.length);
-        metadata.setContentType(file.getContentType());
-        
-        // Upload to S3
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(encryptedData);
-        PutObjectRequest putObjectRequest = new PutObjectRequest(
-                bucketName, 
-                fileName, 
-                inputStream, 
-                metadata
-        );
-        
-        amazonS3.putObject(putObjectRequest);
-        
-        // Generate embedding, keywords, and summary for text-based files only
-        List<Double> embedding = null;
-        List<String> keywords = null;
-        String summary = null;
-        
-        if (isTextBasedFile(file.getContentType())) {
-            try {
-                String extractedText = extractText(fileData, file.getContentType());
-                if (extractedText != null && !extractedText.trim().isEmpty()) {
-                    // Limit text to first 8000 characters to avoid token limits
-                    String textForEmbedding = extractedText.length() > 8000 
-                        ? extractedText.substring(0, 8000) 
-                        : extractedText;
-                    
-                    // Generate embedding
-                    embedding = openAIService.generateEmbedding(textForEmbedding);
-                    System.out.println("✅ Generated embedding for: " + originalFileName);
-                    
-                    // Extract keywords
-                    keywords = keywordExtractionService.extractKeywords(extractedText);
-                    System.out.println("✅ Extracted keywords for: " + originalFileName + " → " + keywords);
-                    
-                    // Generate summary
-                    summary = documentSummaryService.generateSummary(extractedText);
-                    System.out.println("✅ Generated summary for: " + originalFileName);
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to generate NLP features for " + originalFileName + ": " + e.getMessage());
-                // Continue without NLP features - file still uploads successfully
-            }
+        // Hash first (the upload is already spooled by Spring), so content that is already
+        // stored is only referenced instead of being encrypted and uploaded again
+        String hash;
+        try (InputStream content = file.getInputStream()) {
+            hash = BlobService.sha256(content);
         }
-        // Images don't get any NLP processing
+        Blob blob = blobService.storeOrReference(hash, file.getSize(), file.getContentType(), file);
         
-        // Save metadata to database
-        FileMetadata fileMetadata = new FileMetadata();
-        fileMetadata.setFileName(fileName);
+        try {
+            return blobContent(blob, ownerEmail);
+        } catch (RuntimeException e) {
+            blobService.release(blob.getId());
+            throw e;
+        }
+    }
+    
+    // Each chunk becomes (or references) a blob; every manifest entry holds one reference
+    private List<ChunkRef> storeChunks(MultipartFile file) throws Exception {
+        List<ChunkRef> chunks = new ArrayList<>();
+        try (InputStream content = file.getInputStream()) {
+            chunker.chunk(content, (chunk, data) -> {
+                blobService.storeOrReference(chunk.hash(), chunk.length(), CHUNK_CONTENT_TYPE, new ByteArrayResource(data));
+                chunks.add(new ChunkRef(chunk.hash(), chunk.length()));
+            });
+        } catch (Exception e) {
+            releaseChunks(chunks);
+            throw e;
+        }
+        return chunks;
+    }
+    
+    // Content held by one blob reference; the file keeps the blob's key wrapped for its owner
+    private FileMetadata blobContent(Blob blob, String ownerEmail) {
+        FileMetadata content = objectContent(blob.getS3Key(),
+                keyWrappingService.wrapForOwner(blobService.dataKey(blob), ownerEmail), blob.getSize());
+        content.setBlobId(blob.getId());
+        content.setEncryptionVersion(blob.getEncryptionVersion());
+        return content;
+    }
+    
+    // Content made of chunk blobs, one reference per entry (see SyncService); each chunk has its own key
+    public static FileMetadata chunkedContent(List<ChunkRef> chunks, long size) {
+        FileMetadata content = new FileMetadata();
+        content.setFileSize(size);
+        content.setChunks(chunks);
+        content.setEncryptionVersion(EncryptionUtil.FORMAT_VERSION);
+        return content;
+    }
+    
+    // Content in an object the file owns outright, e.g. written by an upload session
+    public FileMetadata objectContent(String s3Key, String wrappedKey, long size) {
+        FileMetadata content = new FileMetadata();
+        content.setFileSize(size);
+        content.setFileName(s3Key);
+        content.setFilePath(blobStore.locationOf(s3Key));
+        content.setWrappedKey(wrappedKey);
+        content.setEncryptionVersion(EncryptionUtil.FORMAT_VERSION);
+        return content;
+    }
+    
+    // Saves a new file around stored content; the caller has reserved the quota
+    public FileMetadata saveNewFile(FileMetadata fileMetadata, String originalFileName, String contentType, String ownerEmail) {
         fileMetadata.setOriginalFileName(originalFileName);
-        fileMetadata.setFileType(file.getContentType());
-        fileMetadata.setFileSize(file.getSize());
-        fileMetadata.setFilePath("s3://" + bucketName + "/" + fileName);
+        fileMetadata.setFileType(contentType);
         fileMetadata.setOwnerEmail(ownerEmail);
         fileMetadata.setUploadedAt(LocalDateTime.now());
-        fileMetadata.setEncryptionKey(encryptionKey);
-        fileMetadata.setEmbedding(embedding);
-        fileMetadata.setKeywords(keywords != null ? keywords : List.of());
-        fileMetadata.setSummary(summary != null ? summary : "");
+        fileMetadata.setUpdatedAt(fileMetadata.getUploadedAt());
+        fileMetadata.setVersion(1);
+        fileMetadata.setContentUpdatedAt(fileMetadata.getUploadedAt());
+        fileMetadata.setKeywords(List.of());
+        fileMetadata.setSummary("");
+        
+        // Embedding, keywords and summary are generated in the background for text-based files only
+        if (isTextBasedFile(contentType)) {
+            fileMetadata.setEnrichmentStatus(EnrichmentStatus.PENDING);
+        }
         
-        return fileRepository.save(fileMetadata);
+        // Save metadata to database
+        FileMetadata saved = fileRepository.save(fileMetadata);
+        if (saved.getEnrichmentStatus() == EnrichmentStatus.PENDING) {
+            enrichmentQueue.enqueue(saved.getId());
+        }
+        // Findable by name right away; enrichment adds the text
+        fullTextIndexService.refresh(saved.getId());
+        return saved;
     }
     
     // Check if file is text-based (for embedding generation)
-    private boolean isTextBasedFile(String contentType) {
+    boolean isTextBasedFile(String contentType) {
         return contentType != null && (
             contentType.contains("pdf") ||
             contentType.contains("text") ||
@@ -141,50 +202,33 @@ public class FileService {
         );
     }
     
-    // Extract text from files using Apache Tika
-    private String extractText(byte[] fileData, String contentType) {
-        try {
-            String text = tika.parseToString(new ByteArrayInputStream(fileData));
-            return text != null ? text.trim() : "";
-        } catch (Exception e) {
-            System.err.println("Text extraction failed: " + e.getMessage());
-            return "";
-        }
+    // Semantic search using OpenAI embeddings
+    public List<FileMetadata> searchBySemanticQuery(String query, String userEmail) throws Exception {
+        // Embedding for the search query; repeated queries are served from the cache
+        Embedding queryEmbedding = queryEmbeddingCache.getEmbedding(query);
+        
+        // Top matches from the user's own and shared files above the similarity cutoff
+        List<String> fileIds = vectorIndexService.search(userEmail, queryEmbedding, semanticK, semanticMinSimilarity).stream()
+                .map(HnswIndex.Match::key)
+                .collect(Collectors.toList());
+        return loadInOrder(fileIds);
     }
     
-    // Calculate total storage used by user
-    private long getTotalStorageUsed(String ownerEmail) {
-        List<FileMetadata> userFiles = fileRepository.findByOwnerEmail(ownerEmail);
-        return userFiles.stream()
-                .mapToLong(FileMetadata::getFileSize)
-                .sum();
+    // Keyword search over names, keywords, summaries and text, answered from the local index
+    public List<FileMetadata> searchByText(String query, String userEmail, int limit) {
+        List<String> fileIds = fullTextIndexService.search(userEmail, query, limit).stream()
+                .map(FullTextIndexService.Hit::fileId)
+                .collect(Collectors.toList());
+        return loadInOrder(fileIds);
     }
     
-    // Semantic search using OpenAI embeddings
-    public List<FileMetadata> searchBySemanticQuery(String query, String userEmail) throws Exception {
-        // Generate embedding for the search query
-        List<Double> queryEmbedding = openAIService.generateEmbedding(query);
-        
-        // Get all user's files
-        List<FileMetadata> allFiles = getUserFiles(userEmail);
-        
-        // Calculate similarity scores and return top matches
-        class FileWithScore {
-            FileMetadata file;
-            double score;
-            FileWithScore(FileMetadata file, double score) {
-                this.file = file;
-                this.score = score;
-            }
-        }
-        
-        return allFiles.stream()
-                .filter(file -> file.getEmbedding() != null && !file.getEmbedding().isEmpty())
-                .map(file -> new FileWithScore(file, openAIService.calculateSimilarity(queryEmbedding, file.getEmbedding())))
-                .filter(item -> item.score > 0.78) // Only return results with >78% similarity
-                .sorted((a, b) -> Double.compare(b.score, a.score)) // Sort by relevance
-                .limit(3)
-                .map(item -> item.file)
+    // Loads search matches and keeps them in relevance order
+    private List<FileMetadata> loadInOrder(List<String> fileIds) {
+        Map<String, FileMetadata> filesById = new HashMap<>();
+        fileRepository.findAllById(fileIds).forEach(file -> filesById.put(file.getId(), file));
+        return fileIds.stream()
+                .map(filesById::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
     
@@ -201,29 +245,137 @@ public class FileService {
         return ownedFiles;
     }
     
-    public byte[] downloadFile(String fileId) throws Exception {
-        FileMetadata metadata = fileRepository.findById(fileId)
+    public FileMetadata getFileMetadata(String fileId) {
+        return fileRepository.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
+    }
+    
+    // Stream the decrypted bytes [start, end] of a file, fetching only the ciphertext that covers them
+    public InputStream openDownloadStream(FileMetadata metadata, long start, long end) throws Exception {
+        if (metadata.getFileSize() == 0) {
+            return InputStream.nullInputStream();
+        }
+        
+        if (metadata.getEncryptionVersion() == null) {
+            long[] ciphertextRange = EncryptionUtil.legacyCiphertextRange(start, end);
+            InputStream encryptedStream = blobStore.openRange(
+                    metadata.getFileName(), ciphertextRange[0], ciphertextRange[1]);
+            return EncryptionUtil.legacyDecryptingRangeStream(encryptedStream, keyWrappingService.dataKeyFor(metadata), start, end);
+        }
+        
+        if (metadata.getChunks() != null) {
+            return openChunkedRange(metadata.getChunks(), start, end);
+        }
+        
+        return openSegmentedRange(metadata.getFileName(), metadata.getFileSize(), keyWrappingService.dataKeyFor(metadata), start, end);
+    }
+    
+    // Decrypted bytes [start, end] of one blob (e.g. a single chunk)
+    public InputStream openBlobRange(Blob blob, long start, long end) throws Exception {
+        if (blob.getSize() == 0) {
+            return InputStream.nullInputStream();
+        }
+        return openSegmentedRange(blob.getS3Key(), blob.getSize(), blobService.dataKey(blob), start, end);
+    }
+    
+    private InputStream openSegmentedRange(String s3Key, long size, String dataKey, long start, long end) throws Exception {
+        long[] ciphertextRange = EncryptionUtil.ciphertextRange(start, end, size);
+        byte[] header;
+        InputStream segments;
+        if (ciphertextRange[0] == EncryptionUtil.HEADER_SIZE) {
+            // Range starts at the first segment, so the header comes along in the same request
+            segments = blobStore.openRange(s3Key, 0, ciphertextRange[1]);
+            header = segments.readNBytes(EncryptionUtil.HEADER_SIZE);
+        } else {
+            try (InputStream headerStream = blobStore.openRange(s3Key, 0, EncryptionUtil.HEADER_SIZE - 1)) {
+                header = headerStream.readAllBytes();
+            }
+            segments = blobStore.openRange(s3Key, ciphertextRange[0], ciphertextRange[1]);
+        }
+        
+        try {
+            return encryptionEngine.decryptingRangeStream(segments, header, dataKey, start, end, size);
+        } catch (Exception e) {
+            segments.close();
+            throw e;
+        }
+    }
+    
+    // Concatenates the covered parts of the chunks overlapping [start, end]; each chunk is only
+    // opened once the previous one has been read
+    private InputStream openChunkedRange(List<ChunkRef> chunks, long start, long end) {
+        List<ChunkRef> covering = new ArrayList<>();
+        List<long[]> ranges = new ArrayList<>();
+        long offset = 0;
+        for (ChunkRef chunk : chunks) {
+            long chunkEnd = offset + chunk.getSize() - 1;
+            if (chunk.getSize() > 0 && chunkEnd >= start && offset <= end) {
+                covering.add(chunk);
+                ranges.add(new long[] { Math.max(start, offset) - offset, Math.min(end, chunkEnd) - offset });
+            }
+            offset += chunk.getSize();
+        }
         
-        // Download from S3
-        S3Object s3Object = amazonS3.getObject(bucketName, metadata.getFileName());
-        S3ObjectInputStream inputStream = s3Object.getObjectContent();
-        byte[] encryptedData = inputStream.readAllBytes();
-        inputStream.close();
+        Map<String, Blob> blobs = new HashMap<>();
+        Query query = new Query(Criteria.where("_id").in(covering.stream().map(ChunkRef::getHash).distinct().toList()));
+        mongoTemplate.find(query, Blob.class).forEach(blob -> blobs.put(blob.getId(), blob));
         
-        // Decrypt and return
-        return EncryptionUtil.decrypt(encryptedData, metadata.getEncryptionKey());
+        Iterator<Integer> indexes = IntStream.range(0, covering.size()).iterator();
+        return new SequenceInputStream(new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return indexes.hasNext();
+            }
+            
+            @Override
+            public InputStream nextElement() {
+                int i = indexes.next();
+                Blob blob = blobs.get(covering.get(i).getHash());
+                if (blob == null) {
+                    throw new RuntimeException("Chunk not found: " + covering.get(i).getHash());
+                }
+                try {
+                    return openBlobRange(blob, ranges.get(i)[0], ranges.get(i)[1]);
+                } catch (Exception e) {
+                    throw new RuntimeException("Failed to open chunk " + blob.getId(), e);
+                }
+            }
+        });
     }
     
     public void deleteFile(String fileId) throws Exception {
         FileMetadata metadata = fileRepository.findById(fileId)
                 .orElseThrow(() -> new RuntimeException("File not found"));
         
-        // Delete from S3
-        amazonS3.deleteObject(bucketName, metadata.getFileName());
-        
-        // Delete metadata from database
-        fileRepository.deleteById(fileId);
+        // Delete metadata from database; only the request that actually removed it releases the
+        // stored bytes and the quota
+        long deleted = mongoTemplate.remove(new Query(Criteria.where("_id").is(fileId)), FileMetadata.class).getDeletedCount();
+        if (deleted > 0) {
+            releaseContent(metadata);
+            // Old versions go with the file
+            mongoTemplate.findAllAndRemove(new Query(Criteria.where("fileId").is(fileId)), FileVersion.class)
+                    .forEach(version -> releaseContent(version.toContent()));
+            storageUsageService.release(metadata.getOwnerEmail(), metadata.getFileSize());
+        }
+        enrichmentQueue.remove(fileId);
+        vectorIndexService.remove(fileId);
+        fullTextIndexService.remove(fileId);
+    }
+
+    // Drops the file's hold on its stored bytes; shared content is only removed from S3 with
+    // its last reference
+    public void releaseContent(FileMetadata metadata) {
+        if (metadata.getChunks() != null) {
+            releaseChunks(metadata.getChunks());
+        } else if (metadata.getBlobId() != null) {
+            blobService.release(metadata.getBlobId());
+        } else {
+            blobStore.delete(metadata.getFileName());
+        }
+    }
+    
+    private void releaseChunks(List<ChunkRef> chunks) {
+        chunks.forEach(chunk -> blobService.release(chunk.getHash()));
     }
 
     public FileMetadata shareFile(String fileId, String shareWithEmail, String ownerEmail) throws Exception {
@@ -235,21 +387,22 @@ public class FileService {
             throw new RuntimeException("You don't have permission to share this file");
         }
         
-        // Check if already shared with this user
-        if (metadata.getSharedWith().contains(shareWithEmail)) {
+        // Add to shared list atomically; saving the whole document could overwrite a concurrent
+        // enrichment or share. The filter fails if it was already shared with this user.
+        Query query = new Query(Criteria.where("_id").is(fileId).and("sharedWith").ne(shareWithEmail));
+        FileMetadata saved = mongoTemplate.findAndModify(query, new Update().addToSet("sharedWith", shareWithEmail).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), FileMetadata.class);
+        if (saved == null) {
             throw new RuntimeException("File already shared with this user");
         }
         
-        // Add to shared list
-        metadata.getSharedWith().add(shareWithEmail);
-        
-        return fileRepository.save(metadata);
+        vectorIndexService.share(fileId, shareWithEmail);
+        fullTextIndexService.refresh(fileId);
+        return saved;
     }
 
     public List<FileMetadata> getSharedFiles(String userEmail) {
-        return fileRepository.findAll().stream()
-                .filter(file -> file.getSharedWith().contains(userEmail))
-                .collect(Collectors.toList());
+        return fileRepository.findBySharedWith(userEmail);
     }
     
     // Rename File
@@ -262,9 +415,15 @@ public class FileService {
             throw new RuntimeException("You don't have permission to rename this file");
         }
         
-        // Update the original file name
-        metadata.setOriginalFileName(newFileName);
-        
-        return fileRepository.save(metadata);
+        // Set only the name; saving the whole document would overwrite what a concurrent
+        // enrichment just wrote (embedding, keywords, summary, status)
+        FileMetadata renamed = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(fileId)),
+                new Update().set("originalFileName", newFileName).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), FileMetadata.class);
+        if (renamed == null) {
+            throw new RuntimeException("File not found");
+        }
+        fullTextIndexService.refresh(fileId);
+        return renamed;
     }
 }
\ No newline at end of file
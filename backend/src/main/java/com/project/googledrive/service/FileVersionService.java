@@ -0,0 +1,297 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.model.ChunkRef;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.FileVersion;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Content versions. Replacing a file's content moves the old content, with its blob and chunk
+// references, into a FileVersion, so history costs only the chunks that actually changed.
+// The file document itself always holds the latest version, which keeps listings unchanged.
+@Service
+public class FileVersionService {
+
+    private final MongoTemplate mongoTemplate;
+    private final FileService fileService;
+    private final BlobService blobService;
+    private final StorageUsageService storageUsageService;
+    private final EnrichmentQueue enrichmentQueue;
+    private final VectorIndexService vectorIndexService;
+    private final FullTextIndexService fullTextIndexService;
+    private final int keepCount;
+    private final int keepDays;
+
+    public FileVersionService(MongoTemplate mongoTemplate,
+                              FileService fileService,
+                              BlobService blobService,
+                              StorageUsageService storageUsageService,
+                              EnrichmentQueue enrichmentQueue,
+                              VectorIndexService vectorIndexService,
+                              FullTextIndexService fullTextIndexService,
+                              @Value("${versions.keep-count:10}") int keepCount,
+                              @Value("${versions.keep-days:30}") int keepDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.fileService = fileService;
+        this.blobService = blobService;
+        this.storageUsageService = storageUsageService;
+        this.enrichmentQueue = enrichmentQueue;
+        this.vectorIndexService = vectorIndexService;
+        this.fullTextIndexService = fullTextIndexService;
+        this.keepCount = keepCount;
+        this.keepDays = keepDays;
+    }
+
+    // New content for an existing file from a regular upload
+    public FileMetadata updateContent(String fileId, MultipartFile file, String ownerEmail) throws Exception {
+        ownedFile(fileId, ownerEmail);
+        FileMetadata content = fileService.storeContent(file, ownerEmail);
+        try {
+            return replaceContent(fileId, ownerEmail, null, null, file.getContentType(), content);
+        } catch (RuntimeException e) {
+            fileService.releaseContent(content);
+            throw e;
+        }
+    }
+
+    // Makes stored content (see FileService.storeContent) the file's current version and keeps
+    // the previous content as a version. Applies only if the file's updatedAt still equals base
+    // (null: whatever is current). On failure the caller still owns the content; once the swap
+    // has committed the content is the file's, so nothing after it throws.
+    public FileMetadata replaceContent(String fileId, String ownerEmail, LocalDateTime base,
+                                       String newName, String contentType, FileMetadata content) {
+        FileMetadata current = ownedFile(fileId, ownerEmail);
+        LocalDateTime expected = base != null ? base : current.getUpdatedAt();
+        String type = contentType != null ? contentType : current.getFileType();
+        boolean enrich = fileService.isTextBasedFile(type);
+
+        // The new content is reserved in full and the old released afterwards, so the user's
+        // total can't dip below what is actually stored while both are held. Only current
+        // versions count against the quota; retention bounds what history can hold.
+        storageUsageService.reserve(ownerEmail, content.getFileSize(), FileService.STORAGE_LIMIT);
+
+        LocalDateTime now = LocalDateTime.now();
+        // Content only changes together with updatedAt, so matching the updatedAt read above
+        // means the content being replaced is exactly `current`
+        Query query = new Query(Criteria.where("_id").is(fileId).and("updatedAt").is(current.getUpdatedAt()));
+        Update update = new Update()
+                .set("fileType", type)
+                .set("fileSize", content.getFileSize())
+                .set("version", versionOf(current) + 1)
+                .set("contentUpdatedAt", now)
+                .set("updatedAt", now)
+                // Enrichment describes the old content
+                .unset("embeddingVector")
+                .unset("embeddingModel")
+                .set("keywords", List.of())
+                .set("summary", "");
+        if (newName != null) {
+            update.set("originalFileName", newName);
+        }
+        setOrUnset(update, "fileName", content.getFileName());
+        setOrUnset(update, "filePath", content.getFilePath());
+        setOrUnset(update, "encryptionKey", content.getEncryptionKey());
+        setOrUnset(update, "blobId", content.getBlobId());
+        setOrUnset(update, "wrappedKey", content.getWrappedKey());
+        setOrUnset(update, "encryptionVersion", content.getEncryptionVersion());
+        setOrUnset(update, "chunks", content.getChunks());
+        setOrUnset(update, "enrichmentStatus", enrich ? EnrichmentStatus.PENDING : null);
+
+        FileMetadata updated = expected.equals(current.getUpdatedAt())
+                ? mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), FileMetadata.class)
+                : null;
+        if (updated == null) {
+            storageUsageService.release(ownerEmail, content.getFileSize());
+            throw new RuntimeException("File changed since " + expected);
+        }
+
+        // Keeping the old content comes first, so a failure below can't leak its storage
+        keep(current, now);
+        afterSwap("release replaced storage", fileId, () -> storageUsageService.release(ownerEmail, current.getFileSize()));
+        afterSwap("remove the old embedding", fileId, () -> vectorIndexService.remove(fileId));
+        // The old text goes; the name stays findable until enrichment indexes the new text
+        afterSwap("clear the old text", fileId, () -> fullTextIndexService.index(fileId, null));
+        if (enrich) {
+            afterSwap("enqueue enrichment", fileId, () -> enrichmentQueue.enqueue(fileId));
+        }
+        afterSwap("prune versions", fileId, () -> prune(fileId));
+        return updated;
+    }
+
+    // Follow-up work after a committed swap. Failing the call here would make the caller
+    // release content the file now uses, so failures are only logged.
+    private static void afterSwap(String step, String fileId, Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            System.err.println("❌ Failed to " + step + " for " + fileId + ": " + e.getMessage());
+        }
+    }
+
+    // The replaced content becomes a version and keeps its storage references
+    private void keep(FileMetadata previous, LocalDateTime replacedAt) {
+        try {
+            mongoTemplate.insert(FileVersion.of(previous, replacedAt));
+        } catch (RuntimeException e) {
+            System.err.println("❌ Failed to keep version " + versionOf(previous) + " of " + previous.getId()
+                    + ": " + e.getMessage());
+            fileService.releaseContent(previous);
+        }
+    }
+
+    // Previous versions, newest first; the current version is the file itself
+    public List<FileVersion> listVersions(String fileId, String userEmail) {
+        readableFile(fileId, userEmail);
+        return mongoTemplate.find(byFile(fileId).with(Sort.by(Sort.Direction.DESC, "version")), FileVersion.class);
+    }
+
+    // A version's content, for downloading it
+    public FileMetadata getVersionContent(String fileId, int version, String userEmail) {
+        readableFile(fileId, userEmail);
+        return findVersion(fileId, version).toContent();
+    }
+
+    // Makes an old version current again; what is current now becomes the newest version
+    public FileMetadata restore(String fileId, int version, String ownerEmail) {
+        ownedFile(fileId, ownerEmail);
+        FileVersion restored = findVersion(fileId, version);
+        FileMetadata content = restored.toContent();
+
+        boolean moved = false;
+        if (content.getChunks() != null || content.getBlobId() != null) {
+            // Shared storage: the restored copy takes references of its own
+            takeReferences(content);
+        } else {
+            // An object owned outright (pre-dedup upload, upload session) can't be shared, so
+            // the version hands it over and leaves the history
+            Query query = new Query(Criteria.where("_id").is(restored.getId()));
+            if (mongoTemplate.remove(query, FileVersion.class).getDeletedCount() == 0) {
+                throw new RuntimeException("Version not found");
+            }
+            moved = true;
+        }
+
+        try {
+            return replaceContent(fileId, ownerEmail, null, null, restored.getFileType(), content);
+        } catch (RuntimeException e) {
+            if (moved) {
+                mongoTemplate.insert(restored);
+            } else {
+                fileService.releaseContent(content);
+            }
+            throw e;
+        }
+    }
+
+    private void takeReferences(FileMetadata content) {
+        List<String> hashes = content.getChunks() != null
+                ? content.getChunks().stream().map(ChunkRef::getHash).toList()
+                : List.of(content.getBlobId());
+        List<String> taken = new ArrayList<>();
+        for (String hash : hashes) {
+            Blob blob = blobService.addReference(hash);
+            if (blob == null) {
+                taken.forEach(blobService::release);
+                throw new RuntimeException("Version content is no longer stored");
+            }
+            taken.add(hash);
+        }
+    }
+
+    // Applies the retention policy: at most keepCount previous versions, none older than
+    // keepDays. Either limit is off when set to 0.
+    public void prune(String fileId) {
+        if (keepCount <= 0 && keepDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(keepDays);
+        List<FileVersion> versions = mongoTemplate.find(
+                byFile(fileId).with(Sort.by(Sort.Direction.DESC, "version")), FileVersion.class);
+        for (int i = 0; i < versions.size(); i++) {
+            FileVersion version = versions.get(i);
+            if ((keepCount > 0 && i >= keepCount) || (keepDays > 0 && version.getReplacedAt().isBefore(cutoff))) {
+                delete(version);
+            }
+        }
+    }
+
+    // Age-based retention for files that haven't changed since their versions expired
+    @Scheduled(cron = "${versions.prune-cron:0 30 3 * * *}")
+    public void pruneExpired() {
+        if (keepDays <= 0) {
+            return;
+        }
+        Query query = new Query(Criteria.where("replacedAt").lt(LocalDateTime.now().minusDays(keepDays)));
+        int pruned = 0;
+        for (FileVersion version : mongoTemplate.find(query, FileVersion.class)) {
+            if (delete(version)) {
+                pruned++;
+            }
+        }
+        System.out.println("✅ Pruned " + pruned + " expired file versions");
+    }
+
+    // Conditional remove, so concurrent prunes release a version's storage only once
+    private boolean delete(FileVersion version) {
+        Query query = new Query(Criteria.where("_id").is(version.getId()));
+        if (mongoTemplate.remove(query, FileVersion.class).getDeletedCount() == 0) {
+            return false;
+        }
+        fileService.releaseContent(version.toContent());
+        return true;
+    }
+
+    private FileVersion findVersion(String fileId, int version) {
+        FileVersion found = mongoTemplate.findOne(byFile(fileId).addCriteria(Criteria.where("version").is(version)),
+                FileVersion.class);
+        if (found == null) {
+            throw new RuntimeException("Version not found");
+        }
+        return found;
+    }
+
+    private FileMetadata ownedFile(String fileId, String ownerEmail) {
+        FileMetadata file = fileService.getFileMetadata(fileId);
+        if (!file.getOwnerEmail().equals(ownerEmail)) {
+            throw new RuntimeException("You don't have permission to change this file");
+        }
+        return file;
+    }
+
+    private void readableFile(String fileId, String userEmail) {
+        FileMetadata file = fileService.getFileMetadata(fileId);
+        if (!file.getOwnerEmail().equals(userEmail) && !file.getSharedWith().contains(userEmail)) {
+            throw new RuntimeException("File not found");
+        }
+    }
+
+    private static Query byFile(String fileId) {
+        return new Query(Criteria.where("fileId").is(fileId));
+    }
+
+    private static int versionOf(FileMetadata file) {
+        return file.getVersion() != null ? file.getVersion() : 1;
+    }
+
+    private static void setOrUnset(Update update, String field, Object value) {
+        if (value != null) {
+            update.set(field, value);
+        } else {
+            update.unset(field);
+        }
+    }
+}
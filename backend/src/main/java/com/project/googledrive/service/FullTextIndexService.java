@@ -0,0 +1,297 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Local full-text search over file names, keywords, summaries and extracted text, ranked with
+// BM25 (Lucene's default similarity). Every document carries the users who may read it, so a
+// query filters by access inside the index and answers in milliseconds without a network call.
+// Mongo stays the source of truth: each write re-reads the file, so the last writer for a file
+// always indexes its latest name and sharing, and only the extracted text lives here alone.
+@Service
+public class FullTextIndexService {
+
+    // Field name -> boost; a hit in the name says more than one deep in the text
+    private static final Map<String, Float> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("name", 3.0f);
+        FIELDS.put("keywords", 2.0f);
+        FIELDS.put("summary", 1.5f);
+        FIELDS.put("content", 1.0f);
+    }
+
+    private static final String ID = "id";
+    // Owner and everyone the file is shared with
+    private static final String READER = "reader";
+    private static final int LOCK_STRIPES = 64;
+
+    public record Hit(String fileId, float score) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final int maxChars;
+    // Serialises writes per file, so a read-modify-write can't interleave with another
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    @Autowired
+    public FullTextIndexService(MongoTemplate mongoTemplate,
+                                @Value("${full-text.index-path:./data/full-text-index}") String indexPath,
+                                @Value("${full-text.max-chars:100000}") int maxChars) throws IOException {
+        this(mongoTemplate, FSDirectory.open(Path.of(indexPath)), maxChars);
+    }
+
+    FullTextIndexService(MongoTemplate mongoTemplate, Directory directory, int maxChars) throws IOException {
+        this.mongoTemplate = mongoTemplate;
+        this.maxChars = maxChars;
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // How much extracted text is worth indexing per file
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    // A new or emptied index gets every file's name, keywords and summary; the text of files
+    // enriched before the index existed is added when they are next enriched
+    @PostConstruct
+    public void backfill() {
+        if (writer.getDocStats().numDocs > 0) {
+            return;
+        }
+        Query query = new Query();
+        query.fields().exclude("embedding").exclude("chunks");
+        long started = System.currentTimeMillis();
+        int indexed = 0;
+        try (Stream<FileMetadata> files = mongoTemplate.stream(query, FileMetadata.class)) {
+            for (FileMetadata file : (Iterable<FileMetadata>) files::iterator) {
+                writer.updateDocument(new Term(ID, file.getId()), document(file, null));
+                indexed++;
+            }
+            writer.commit();
+            searcherManager.maybeRefreshBlocking();
+            System.out.println("✅ Full-text index backfilled: " + indexed + " files in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to backfill full-text index: " + e.getMessage());
+        }
+    }
+
+    // Indexes the file as it is now in Mongo, with the given extracted text (null: none yet,
+    // e.g. after its content was replaced)
+    public void index(String fileId, String text) {
+        String content = text != null && text.length() > maxChars ? text.substring(0, maxChars) : text;
+        synchronized (lockFor(fileId)) {
+            write(fileId, content);
+        }
+    }
+
+    // Picks up a rename, share or new file from Mongo, keeping the text indexed so far
+    public void refresh(String fileId) {
+        synchronized (lockFor(fileId)) {
+            write(fileId, storedContent(fileId));
+        }
+    }
+
+    public void remove(String fileId) {
+        synchronized (lockFor(fileId)) {
+            try {
+                writer.deleteDocuments(new Term(ID, fileId));
+                searcherManager.maybeRefreshBlocking();
+            } catch (IOException e) {
+                System.err.println("❌ Failed to remove " + fileId + " from full-text index: " + e.getMessage());
+            }
+        }
+    }
+
+    private void write(String fileId, String content) {
+        Query query = new Query(Criteria.where("_id").is(fileId));
+        query.fields().exclude("embedding").exclude("chunks");
+        FileMetadata file = mongoTemplate.findOne(query, FileMetadata.class);
+        try {
+            if (file == null) {
+                writer.deleteDocuments(new Term(ID, fileId));
+            } else {
+                writer.updateDocument(new Term(ID, fileId), document(file, content));
+            }
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            // The file just isn't findable by text until its next write
+            System.err.println("❌ Failed to index " + fileId + " for full-text search: " + e.getMessage());
+        }
+    }
+
+    private String storedContent(String fileId) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs found = searcher.search(new TermQuery(new Term(ID, fileId)), 1);
+                if (found.scoreDocs.length == 0) {
+                    return null;
+                }
+                return searcher.storedFields().document(found.scoreDocs[0].doc).get("content");
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Document document(FileMetadata file, String content) {
+        Document document = new Document();
+        document.add(new StringField(ID, file.getId(), Field.Store.YES));
+        document.add(new StringField(READER, file.getOwnerEmail(), Field.Store.NO));
+        if (file.getSharedWith() != null) {
+            file.getSharedWith().forEach(user -> document.add(new StringField(READER, user, Field.Store.NO)));
+        }
+        if (file.getOriginalFileName() != null) {
+            // "q3_budget-final.pdf" should match "budget"
+            document.add(new TextField("name", file.getOriginalFileName().replaceAll("[_.\\-]", " "), Field.Store.NO));
+        }
+        if (file.getKeywords() != null) {
+            file.getKeywords().forEach(keyword -> document.add(new TextField("keywords", keyword, Field.Store.NO)));
+        }
+        if (file.getSummary() != null && !file.getSummary().isEmpty()) {
+            document.add(new TextField("summary", file.getSummary(), Field.Store.NO));
+        }
+        if (content != null && !content.isEmpty()) {
+            // Stored so a rename or share can rebuild the document without extracting again
+            document.add(new TextField("content", content, Field.Store.YES));
+        }
+        return document;
+    }
+
+    // Every query word must match in some field. Words match exactly, with typos (fuzzy, for
+    // longer words) and, for the last word, as a prefix so results follow the user's typing.
+    public List<Hit> search(String userEmail, String queryText, int limit) {
+        List<String> words = analyze(queryText);
+        if (words.isEmpty()) {
+            return List.of();
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+            for (Map.Entry<String, Float> field : FIELDS.entrySet()) {
+                Term term = new Term(field.getKey(), word);
+                float boost = field.getValue();
+                anyField.add(new BoostQuery(new TermQuery(term), boost), BooleanClause.Occur.SHOULD);
+                if (i == words.size() - 1 && word.length() >= 2) {
+                    anyField.add(new BoostQuery(new PrefixQuery(term), boost * 0.5f), BooleanClause.Occur.SHOULD);
+                }
+                if (word.length() >= 4) {
+                    int edits = word.length() >= 8 ? 2 : 1;
+                    anyField.add(new BoostQuery(new FuzzyQuery(term, edits), boost * 0.3f), BooleanClause.Occur.SHOULD);
+                }
+            }
+            query.add(anyField.build(), BooleanClause.Occur.MUST);
+        }
+        query.add(new TermQuery(new Term(READER, userEmail)), BooleanClause.Occur.FILTER);
+        return search(query.build(), limit);
+    }
+
+    private List<Hit> search(org.apache.lucene.search.Query query, int limit) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                List<Hit> hits = new ArrayList<>();
+                for (ScoreDoc scoreDoc : searcher.search(query, limit).scoreDocs) {
+                    hits.add(new Hit(searcher.storedFields().document(scoreDoc.doc).get(ID), scoreDoc.score));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<String> analyze(String text) {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream("content", text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return words;
+    }
+
+    private Object lockFor(String fileId) {
+        return locks[Math.floorMod(fileId.hashCode(), LOCK_STRIPES)];
+    }
+
+    // Searches see writes right away; the commit makes them durable, so a crash loses at most
+    // one interval of index updates
+    @Scheduled(fixedDelayString = "${full-text.commit-interval-ms:60000}")
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Failed to commit full-text index: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+// In-process embeddings by feature hashing: every word and every character trigram of a word is
+// hashed to one of `dimension` buckets with a hashed sign, and bucket counts are damped with a
+// square root so a word repeated all over a document doesn't drown out the rest. Deterministic,
+// needs no model files or network, and embeds thousands of documents a second on one core. It
+// matches shared words, word forms and typos ("budgets", "bugdet"), not paraphrases, so it suits
+// offline installs and tests rather than replacing a trained model.
+@Service
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "hashing")
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    // Bump when the features or the hashing change, so old vectors are re-embedded, not compared
+    private static final int VERSION = 1;
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long WORD_SEED = 0xcbf29ce484222325L;
+    // A different seed keeps the word "abc" and the trigram "abc" apart
+    private static final long TRIGRAM_SEED = 0x84222325cbf29ce4L;
+    private static final char BOUNDARY = '#';
+
+    private final int dimension;
+
+    public HashingEmbeddingProvider(@Value("${embedding.hashing.dimension:384}") int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String modelId() {
+        return "hashing-v" + VERSION + "-" + dimension;
+    }
+
+    @Override
+    public List<Embedding> embed(List<String> texts) {
+        return texts.stream().map(this::embed).toList();
+    }
+
+    public Embedding embed(String text) {
+        float[] vector = new float[dimension];
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                addWord(vector, lower, start, i);
+                start = -1;
+            }
+        }
+
+        double sumOfSquares = 0;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = Math.copySign((float) Math.sqrt(Math.abs(vector[i])), vector[i]);
+            sumOfSquares += vector[i] * vector[i];
+        }
+        if (sumOfSquares > 0) {
+            float scale = (float) (1 / Math.sqrt(sumOfSquares));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return new Embedding(vector);
+    }
+
+    private void addWord(float[] vector, String text, int start, int end) {
+        long hash = WORD_SEED;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        add(vector, hash, WORD_WEIGHT);
+
+        // Trigrams of "#word#", so a word's start and end count as features of their own
+        for (int first = start - 1; first + 3 <= end + 1; first++) {
+            hash = TRIGRAM_SEED;
+            for (int i = first; i < first + 3; i++) {
+                char c = i < start || i >= end ? BOUNDARY : text.charAt(i);
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+            add(vector, hash, TRIGRAM_WEIGHT);
+        }
+    }
+
+    private void add(float[] vector, long hash, float weight) {
+        int bucket = (int) Long.remainderUnsigned(hash, dimension);
+        vector[bucket] += hash < 0 ? -weight : weight;
+    }
+}
@@ -0,0 +1,226 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.FileListItem;
+import com.project.googledrive.dto.SearchHit;
+import com.project.googledrive.dto.SearchPage;
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.FileMetadata;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hybrid search: BM25 hits from the full-text index and nearest neighbours from the vector index,
+// fused with reciprocal rank fusion, score = sum over sources of 1 / (k + rank). RRF only looks at
+// ranks, so unbounded BM25 scores and cosine similarities need no calibration against each other,
+// and a file both sources rank well beats one only a single source likes. Both retrievals run in
+// parallel under one latency budget; a source that misses it is left out and the page is marked
+// partial instead of failing the search.
+@Service
+public class HybridSearchService {
+
+    // Best fused score first; ties by id so pages don't overlap
+    private static final Comparator<Candidate> ORDER = Comparator.comparingDouble(Candidate::score).reversed()
+            .thenComparing(Candidate::fileId);
+
+    private final FullTextIndexService fullTextIndexService;
+    private final VectorIndexService vectorIndexService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final int rrfK;
+    private final int candidates;
+    private final double minSimilarity;
+    private final long budgetMs;
+
+    public HybridSearchService(FullTextIndexService fullTextIndexService,
+                               VectorIndexService vectorIndexService,
+                               QueryEmbeddingCache queryEmbeddingCache,
+                               MongoTemplate mongoTemplate,
+                               MeterRegistry meterRegistry,
+                               @Value("${search.hybrid.rrf-k:60}") int rrfK,
+                               @Value("${search.hybrid.candidates:100}") int candidates,
+                               @Value("${search.hybrid.min-similarity:0.3}") double minSimilarity,
+                               @Value("${search.hybrid.budget-ms:800}") long budgetMs,
+                               @Value("${search.hybrid.threads:8}") int threads) {
+        this.fullTextIndexService = fullTextIndexService;
+        this.vectorIndexService = vectorIndexService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+        this.rrfK = rrfK;
+        this.candidates = candidates;
+        this.minSimilarity = minSimilarity;
+        this.budgetMs = budgetMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads * 16), runnable -> {
+                    Thread thread = new Thread(runnable, "hybrid-search-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // One page of the files the user can read that best match the query. Pages come from the
+    // top candidates of each source, so paging ends after at most two candidate lists' worth.
+    public SearchPage search(String userEmail, String queryText, int limit, String cursor) {
+        Candidate after = cursor == null ? null : decodeCursor(cursor);
+        if (queryText == null || queryText.isBlank()) {
+            return new SearchPage(List.of(), null, false);
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        Future<List<Candidate>> lexical = submit(() -> fullTextIndexService.search(userEmail, queryText, candidates).stream()
+                .map(hit -> new Candidate(hit.fileId(), hit.score()))
+                .toList());
+        Future<List<Candidate>> semantic = submit(() -> {
+            Embedding queryEmbedding = queryEmbeddingCache.getEmbedding(queryText);
+            return vectorIndexService.search(userEmail, queryEmbedding, candidates, minSimilarity).stream()
+                    .map(match -> new Candidate(match.key(), match.score()))
+                    .toList();
+        });
+
+        Map<String, Fused> fused = new HashMap<>();
+        boolean complete = collect("lexical", lexical, deadline, fused, true);
+        complete &= collect("semantic", semantic, deadline, fused, false);
+
+        List<Candidate> ranked = fused.values().stream()
+                .map(Fused::candidate)
+                .sorted(ORDER)
+                .filter(candidate -> after == null || ORDER.compare(candidate, after) > 0)
+                .toList();
+        List<Candidate> page = ranked.subList(0, Math.min(limit, ranked.size()));
+        String nextCursor = ranked.size() > page.size() ? encodeCursor(page.get(page.size() - 1)) : null;
+
+        Map<String, FileMetadata> filesById = load(page);
+        List<SearchHit> results = new ArrayList<>(page.size());
+        for (Candidate candidate : page) {
+            FileMetadata file = filesById.get(candidate.fileId());
+            // Deleted since it was indexed
+            if (file != null) {
+                Fused scores = fused.get(candidate.fileId());
+                results.add(new SearchHit(FileListItem.from(file), candidate.score(),
+                        scores.lexicalScore, scores.semanticScore));
+            }
+        }
+
+        sample.stop(meterRegistry.timer("search.hybrid", "outcome", complete ? "complete" : "partial"));
+        return new SearchPage(results, nextCursor, !complete);
+    }
+
+    private Future<List<Candidate>> submit(Callable<List<Candidate>> retrieval) {
+        try {
+            return executor.submit(retrieval);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Adds one source's ranking to the fusion; false if it missed the deadline or failed
+    private boolean collect(String source, Future<List<Candidate>> retrieval, long deadline,
+                            Map<String, Fused> fused, boolean lexical) {
+        String outcome = "failure";
+        try {
+            List<Candidate> ranking = retrieval.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            for (int i = 0; i < ranking.size(); i++) {
+                Candidate candidate = ranking.get(i);
+                Fused entry = fused.computeIfAbsent(candidate.fileId(), Fused::new);
+                entry.score += 1.0 / (rrfK + i + 1);
+                if (lexical) {
+                    entry.lexicalScore = (float) candidate.score();
+                } else {
+                    entry.semanticScore = (float) candidate.score();
+                }
+            }
+            outcome = "success";
+            return true;
+        } catch (TimeoutException e) {
+            retrieval.cancel(true);
+            outcome = "timeout";
+            System.err.println("⚠️ " + source + " search missed the " + budgetMs + " ms budget");
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("❌ " + source + " search failed: " + e.getCause().getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            meterRegistry.counter("search.hybrid.source", "source", source, "outcome", outcome).increment();
+        }
+    }
+
+    private Map<String, FileMetadata> load(List<Candidate> page) {
+        Map<String, FileMetadata> filesById = new HashMap<>();
+        if (page.isEmpty()) {
+            return filesById;
+        }
+        Query query = new Query(Criteria.where("_id").in(page.stream().map(Candidate::fileId).toList()));
+        query.fields().exclude("embedding").exclude("chunks");
+        mongoTemplate.find(query, FileMetadata.class).forEach(file -> filesById.put(file.getId(), file));
+        return filesById;
+    }
+
+    // fused score \n file id; the score round-trips exactly through Double.toString
+    private static String encodeCursor(Candidate last) {
+        String raw = last.score() + "\n" + last.fileId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Candidate decodeCursor(String cursor) {
+        String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        int separator = raw.indexOf('\n');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed search cursor");
+        }
+        return new Candidate(raw.substring(separator + 1), Double.parseDouble(raw.substring(0, separator)));
+    }
+
+    private record Candidate(String fileId, double score) {
+    }
+
+    private static final class Fused {
+
+        private final String fileId;
+        private double score;
+        private Float lexicalScore;
+        private Float semanticScore;
+
+        Fused(String fileId) {
+            this.fileId = fileId;
+        }
+
+        Candidate candidate() {
+            return new Candidate(fileId, score);
+        }
+    }
+}
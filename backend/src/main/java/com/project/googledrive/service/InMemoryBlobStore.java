@@ -0,0 +1,105 @@
+package com.project.googledrive.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Objects held on the heap, for tests and throwaway local runs. Nothing survives a restart.
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "memory")
+public class InMemoryBlobStore implements BlobStore {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    // Upload id -> "<part>.<tag>" -> bytes, with the same tag semantics as LocalBlobStore
+    private final Map<String, Map<String, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    @Override
+    public void upload(String key, InputStream inputStream, long contentLength, String contentType) throws Exception {
+        if (contentLength > Integer.MAX_VALUE - 8) {
+            throw new RuntimeException("Object too large for the in-memory store");
+        }
+        byte[] data = inputStream.readNBytes((int) contentLength);
+        if (data.length != contentLength) {
+            throw new RuntimeException("Upload stream ended " + (contentLength - data.length) + " bytes early");
+        }
+        objects.put(key, data);
+    }
+
+    @Override
+    public InputStream openRange(String key, long start, long end) throws IOException {
+        byte[] data = objects.get(key);
+        if (data == null) {
+            throw new NoSuchFileException(key);
+        }
+        if (start < 0 || start > end || start >= data.length) {
+            throw new IOException("Range " + start + "-" + end + " outside object of " + data.length + " bytes");
+        }
+        int last = (int) Math.min(end, data.length - 1);
+        return new ByteArrayInputStream(data, (int) start, last - (int) start + 1);
+    }
+
+    @Override
+    public void delete(String key) {
+        objects.remove(key);
+    }
+
+    @Override
+    public String startMultipartUpload(String key, String contentType) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length) {
+        Map<String, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            throw new RuntimeException("No such multipart upload: " + uploadId);
+        }
+        String tag = UUID.randomUUID().toString();
+        parts.put(partNumber + "." + tag, Arrays.copyOf(data, length));
+        return tag;
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> partTags) {
+        Map<String, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            throw new RuntimeException("No such multipart upload: " + uploadId);
+        }
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        for (int i = 0; i < partTags.size(); i++) {
+            byte[] part = parts.get((i + 1) + "." + partTags.get(i));
+            if (part == null) {
+                throw new RuntimeException("Part " + (i + 1) + " is missing or was replaced");
+            }
+            object.writeBytes(part);
+        }
+        objects.put(key, object.toByteArray());
+        uploads.remove(uploadId);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        uploads.remove(uploadId);
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return "memory:" + key;
+    }
+
+    public boolean contains(String key) {
+        return objects.containsKey(key);
+    }
+}
@@ -0,0 +1,92 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Envelope encryption for file data keys. Each key-encryption key is derived from the master
+// secret (file.encryption.key) with HMAC-SHA256 over a context string, so there is one KEK per
+// owner and one for blob records, and none of them is ever stored. Wrapped keys are AES-GCM
+// with the context as associated data, so a key wrapped for one owner can't be unwrapped as
+// another's.
+@Service
+public class KeyWrappingService {
+    
+    private static final String OWNER_CONTEXT = "owner:";
+    private static final String BLOB_CONTEXT = "blob:";
+    private static final int IV_SIZE = 12;
+    private static final int TAG_BITS = 128;
+    
+    private final SecretKeySpec masterKey;
+    private final SecureRandom random = new SecureRandom();
+    
+    public KeyWrappingService(@Value("${file.encryption.key}") String masterSecret) {
+        this.masterKey = new SecretKeySpec(masterSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+    
+    public String wrapForOwner(String dataKey, String ownerEmail) {
+        return wrap(dataKey, OWNER_CONTEXT + ownerEmail);
+    }
+    
+    public String unwrapForOwner(String wrappedKey, String ownerEmail) {
+        return unwrap(wrappedKey, OWNER_CONTEXT + ownerEmail);
+    }
+    
+    public String wrapForBlob(String dataKey, String blobId) {
+        return wrap(dataKey, BLOB_CONTEXT + blobId);
+    }
+    
+    public String unwrapForBlob(String wrappedKey, String blobId) {
+        return unwrap(wrappedKey, BLOB_CONTEXT + blobId);
+    }
+    
+    // The key that decrypts a file's content; files from before key wrapping still carry it directly
+    public String dataKeyFor(FileMetadata file) {
+        if (file.getWrappedKey() == null) {
+            return file.getEncryptionKey();
+        }
+        return unwrapForOwner(file.getWrappedKey(), file.getOwnerEmail());
+    }
+    
+    private String wrap(String dataKey, String context) {
+        try {
+            byte[] iv = new byte[IV_SIZE];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, deriveKek(context), new GCMParameterSpec(TAG_BITS, iv));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = cipher.doFinal(Base64.getDecoder().decode(dataKey));
+            return Base64.getEncoder().encodeToString(ByteBuffer.allocate(IV_SIZE + sealed.length).put(iv).put(sealed).array());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to wrap data key", e);
+        }
+    }
+    
+    private String unwrap(String wrappedKey, String context) {
+        try {
+            byte[] wrapped = Base64.getDecoder().decode(wrappedKey);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, deriveKek(context), new GCMParameterSpec(TAG_BITS, wrapped, 0, IV_SIZE));
+            cipher.updateAAD(context.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(cipher.doFinal(wrapped, IV_SIZE, wrapped.length - IV_SIZE));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to unwrap data key", e);
+        }
+    }
+    
+    private SecretKey deriveKek(String context) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(masterKey);
+        return new SecretKeySpec(mac.doFinal(context.getBytes(StandardCharsets.UTF_8)), "AES");
+    }
+}
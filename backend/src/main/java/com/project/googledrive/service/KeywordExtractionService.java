@@ -3,7 +3,6 @@ package com.project.googledrive.service;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.service.OpenAiService;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -16,8 +15,8 @@ public class KeywordExtractionService {
     
     private final OpenAiService openAiService;
     
-    public KeywordExtractionService(@Value("${openai.api.key}") String apiKey) {
-        this.openAiService = new OpenAiService(apiKey);
+    public KeywordExtractionService(OpenAiService openAiService) {
+        this.openAiService = openAiService;
     }
     
     public List<String> extractKeywords(String text) {
@@ -56,12 +55,7 @@ public class KeywordExtractionService {
                     .trim();
             
             // Parse keywords from response
-            List<String> keywords = Arrays.stream(response.split(","))
-                    .map(String::trim)
-                    .map(keyword -> keyword.replaceAll("[\"']", "")) // Remove quotes
-                    .filter(keyword -> !keyword.isEmpty())
-                    .limit(7) // Max 7 keywords
-                    .collect(Collectors.toList());
+            List<String> keywords = parseKeywords(response);
             
             System.out.println("✅ Extracted keywords: " + keywords);
             return keywords;
@@ -71,4 +65,14 @@ public class KeywordExtractionService {
             return new ArrayList<>();
         }
     }
-}
\ No newline at end of file
+    
+    // Comma-separated model output → at most 7 cleaned-up keywords
+    public static List<String> parseKeywords(String response) {
+        return Arrays.stream(response.split(","))
+                .map(String::trim)
+                .map(keyword -> keyword.replaceAll("[\"']", "")) // Remove quotes
+                .filter(keyword -> !keyword.isEmpty())
+                .limit(7) // Max 7 keywords
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,288 @@
+package com.project.googledrive.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Objects as files on a local disk, for single-node installs and development without S3.
+// Each key maps to root/ab/cd/<sha-256 of the key>, so directories stay small, any key is a
+// safe file name and nothing can resolve outside the root. Writes go to a temp file in the
+// target directory and are renamed into place, so readers never see a partial object.
+// Reads are memory-mapped: the bytes come straight from the page cache without a copy
+// through a read buffer, and an object deleted mid-download stays readable until closed.
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalBlobStore implements BlobStore {
+
+    private static final String TEMP_PREFIX = ".tmp-";
+
+    private final Path root;
+    private final Path uploads;
+    // Larger ranges are mapped one window at a time
+    private final long mappingSize;
+
+    public LocalBlobStore(@Value("${storage.local.root:./data/blobs}") String root) throws IOException {
+        this(Path.of(root), 64L * 1024 * 1024);
+    }
+
+    LocalBlobStore(Path root, long mappingSize) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        this.uploads = this.root.resolve("uploads");
+        this.mappingSize = mappingSize;
+        Files.createDirectories(uploads);
+    }
+
+    @Override
+    public void upload(String key, InputStream inputStream, long contentLength, String contentType) throws Exception {
+        Path target = pathFor(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, null);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                // The caller owns the stream, so the channel around it is not closed
+                var in = Channels.newChannel(inputStream);
+                long written = 0;
+                while (written < contentLength) {
+                    long transferred = out.transferFrom(in, written, contentLength - written);
+                    if (transferred == 0) {
+                        throw new RuntimeException("Upload stream ended " + (contentLength - written) + " bytes early");
+                    }
+                    written += transferred;
+                }
+                out.force(false);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream openRange(String key, long start, long end) throws IOException {
+        FileChannel channel = FileChannel.open(pathFor(key), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (start < 0 || start > end || start >= size) {
+                throw new IOException("Range " + start + "-" + end + " outside object of " + size + " bytes");
+            }
+            // Like S3, a range running past the end returns what there is
+            return new MappedRangeInputStream(channel, start, Math.min(end, size - 1) + 1, mappingSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try {
+            Files.deleteIfExists(pathFor(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // A multipart upload is a directory of part files named <part>.<tag>. Re-sending a part
+    // writes a new file under a new tag, so completing with the tags a client was given either
+    // gets exactly those bytes or fails, as with S3.
+    @Override
+    public String startMultipartUpload(String key, String contentType) {
+        String uploadId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectory(uploads.resolve(uploadId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return uploadId;
+    }
+
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length) {
+        String tag = UUID.randomUUID().toString();
+        Path dir = uploadDir(uploadId);
+        try {
+            Path temp = Files.createTempFile(dir, TEMP_PREFIX, null);
+            try {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    out.write(ByteBuffer.wrap(data, 0, length));
+                    out.force(false);
+                }
+                Files.move(temp, dir.resolve(partNumber + "." + tag), StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("No such multipart upload: " + uploadId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tag;
+    }
+
+    // The parts are concatenated with transferTo, which copies file to file inside the kernel
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> partTags) {
+        Path dir = uploadDir(uploadId);
+        Path target = pathFor(key);
+        try {
+            Files.createDirectories(target.getParent());
+            Path temp = Files.createTempFile(target.getParent(), TEMP_PREFIX, null);
+            try {
+                try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    for (int i = 0; i < partTags.size(); i++) {
+                        Path part = dir.resolve((i + 1) + "." + UUID.fromString(partTags.get(i)));
+                        if (!Files.exists(part)) {
+                            throw new RuntimeException("Part " + (i + 1) + " is missing or was replaced");
+                        }
+                        try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                            long size = in.size();
+                            for (long position = 0; position < size; ) {
+                                position += in.transferTo(position, size - position, out);
+                            }
+                        }
+                    }
+                    out.force(false);
+                }
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deleteTree(dir);
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        deleteTree(uploadDir(uploadId));
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return pathFor(key).toUri().toString();
+    }
+
+    Path pathFor(String key) {
+        String name = HexFormat.of().formatHex(sha256().digest(key.getBytes(StandardCharsets.UTF_8)));
+        return root.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    // Only ids this store could have issued resolve, so a stored id can't name another path
+    private Path uploadDir(String uploadId) {
+        return uploads.resolve(UUID.fromString(uploadId).toString());
+    }
+
+    private static void deleteTree(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (NoSuchFileException e) {
+            // Already gone
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Reads [position, end) of a file through read-only mappings of at most mappingSize bytes
+    private static final class MappedRangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private final long mappingSize;
+        private long position;
+        private MappedByteBuffer window;
+
+        MappedRangeInputStream(FileChannel channel, long start, long end, long mappingSize) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+            this.mappingSize = mappingSize;
+        }
+
+        private boolean nextWindow() throws IOException {
+            if (window != null && window.hasRemaining()) {
+                return true;
+            }
+            if (position >= end) {
+                return false;
+            }
+            long length = Math.min(mappingSize, end - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return nextWindow() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextWindow()) {
+                return -1;
+            }
+            int count = Math.min(len, window.remaining());
+            window.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            if (window != null) {
+                int inWindow = (int) Math.min(Math.max(n, 0), window.remaining());
+                window.position(window.position() + inWindow);
+                skipped = inWindow;
+            }
+            long beyond = Math.min(Math.max(n - skipped, 0), end - position);
+            position += beyond;
+            return skipped + beyond;
+        }
+
+        @Override
+        public int available() {
+            return window != null ? window.remaining() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.util.CircuitBreaker;
+import com.project.googledrive.util.TokenBucket;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Guards every request of the shared OpenAI client, so all services calling OpenAI share one set
+// of limits. A request passes, in order:
+//  - a bulkhead per call type, so a burst of slow chat completions can't take every connection
+//    and leave search queries waiting for an embedding;
+//  - token buckets for requests and (estimated) tokens per minute, which spread bursts of
+//    uploads below the account quota instead of letting them run into 429s;
+//  - a circuit breaker, which fails fast while the API is down instead of tying up threads;
+//  - retries of 429, 5xx and connection errors with jittered exponential backoff, honouring
+//    Retry-After. This is the only retry layer: callers surface what it gives up on.
+// Latency and outcome are recorded per call type as the openai.requests timer.
+public class OpenAICallInterceptor implements Interceptor {
+
+    private final Map<String, Semaphore> bulkheads;
+    private final long bulkheadWaitMs;
+    private final TokenBucket requestBudget;
+    private final TokenBucket tokenBudget;
+    private final long rateLimitWaitMs;
+    private final CircuitBreaker circuitBreaker;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private final MeterRegistry meterRegistry;
+
+    public OpenAICallInterceptor(MeterRegistry meterRegistry,
+                                 int chatConcurrency, int embeddingConcurrency, long bulkheadWaitMs,
+                                 long requestsPerMinute, long tokensPerMinute, long rateLimitWaitMs,
+                                 int failureThreshold, long circuitOpenMs,
+                                 int maxAttempts, long retryBaseMs, long retryMaxMs) {
+        this.meterRegistry = meterRegistry;
+        this.bulkheads = Map.of(
+                "chat", new Semaphore(chatConcurrency, true),
+                "embeddings", new Semaphore(embeddingConcurrency, true),
+                "other", new Semaphore(chatConcurrency, true));
+        this.bulkheadWaitMs = bulkheadWaitMs;
+        this.requestBudget = new TokenBucket(requestsPerMinute, Duration.ofMinutes(1));
+        this.tokenBudget = new TokenBucket(tokensPerMinute, Duration.ofMinutes(1));
+        this.rateLimitWaitMs = rateLimitWaitMs;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, circuitOpenMs);
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+
+        meterRegistry.gauge("openai.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal());
+        bulkheads.forEach((callType, bulkhead) -> meterRegistry.gauge("openai.bulkhead.available",
+                Tags.of("endpoint", callType), bulkhead, Semaphore::availablePermits));
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String callType = callType(request);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "io_error";
+        try {
+            Semaphore bulkhead = bulkheads.get(callType);
+            if (!bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS)) {
+                outcome = "rejected";
+                throw new IOException("Too many OpenAI " + callType + " requests in flight");
+            }
+            try {
+                Response response = send(chain, request, callType);
+                outcome = outcomeOf(response.code());
+                return response;
+            } catch (OpenAICallException e) {
+                outcome = e.outcome;
+                throw e;
+            } finally {
+                bulkhead.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call OpenAI");
+        } finally {
+            sample.stop(meterRegistry.timer("openai.requests", "endpoint", callType, "outcome", outcome));
+        }
+    }
+
+    private Response send(Chain chain, Request request, String callType) throws IOException, InterruptedException {
+        long tokens = estimateTokens(request);
+        for (int attempt = 1; ; attempt++) {
+            // Retries spend budget too: they are requests the quota counts
+            if (!requestBudget.acquire(1, rateLimitWaitMs) || !tokenBudget.acquire(tokens, rateLimitWaitMs)) {
+                throw new OpenAICallException("throttled", "OpenAI request budget exhausted, try again later");
+            }
+            if (!circuitBreaker.tryAcquire()) {
+                throw new OpenAICallException("circuit_open", "OpenAI is failing, not calling it for now");
+            }
+
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                circuitBreaker.onFailure();
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                retryAfter(callType, attempt, null);
+                continue;
+            }
+
+            // A 429 means the API is up, just busy
+            if (response.code() >= 500) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            boolean retryable = response.code() == 429 || response.code() >= 500;
+            if (!retryable || attempt >= maxAttempts) {
+                return response;
+            }
+            String retryAfterHeader = response.header("Retry-After");
+            response.close();
+            retryAfter(callType, attempt, retryAfterHeader);
+        }
+    }
+
+    // Full jitter: a random wait up to an exponentially growing cap, so clients that failed
+    // together don't retry together. The server's Retry-After, in seconds, is a lower bound.
+    private void retryAfter(String callType, int attempt, String retryAfterHeader) throws InterruptedException {
+        meterRegistry.counter("openai.retries", "endpoint", callType).increment();
+        long cap = Math.min(retryMaxMs, retryBaseMs << Math.min(attempt, 16));
+        long waitMs = ThreadLocalRandom.current().nextLong(cap + 1);
+        if (retryAfterHeader != null) {
+            try {
+                waitMs = Math.max(waitMs, Math.min(retryMaxMs, Long.parseLong(retryAfterHeader.trim()) * 1000));
+            } catch (NumberFormatException e) {
+                // An HTTP date; the jittered wait will do
+            }
+        }
+        Thread.sleep(waitMs);
+    }
+
+    private static String callType(Request request) {
+        String path = request.url().encodedPath();
+        if (path.endsWith("/embeddings")) {
+            return "embeddings";
+        }
+        if (path.endsWith("/chat/completions")) {
+            return "chat";
+        }
+        return "other";
+    }
+
+    // Rough OpenAI tokenizer estimate from the JSON body: ~4 characters per token
+    private static long estimateTokens(Request request) throws IOException {
+        long length = request.body() == null ? 0 : request.body().contentLength();
+        return Math.max(1, length / 4);
+    }
+
+    private static String outcomeOf(int code) {
+        if (code == 429) {
+            return "rate_limited";
+        }
+        if (code >= 500) {
+            return "server_error";
+        }
+        return code >= 400 ? "client_error" : "success";
+    }
+
+    // Refused before reaching the API; the outcome names why
+    private static final class OpenAICallException extends IOException {
+
+        private final String outcome;
+
+        OpenAICallException(String outcome, String message) {
+            super(message);
+            this.outcome = outcome;
+        }
+    }
+}
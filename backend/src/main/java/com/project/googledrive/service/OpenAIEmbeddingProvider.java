@@ -0,0 +1,30 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Embeddings from the OpenAI API; the model id is the configured model name, which is what
+// embeddings stored before models were tracked were made with
+@Service
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "openai", matchIfMissing = true)
+@RequiredArgsConstructor
+public class OpenAIEmbeddingProvider implements EmbeddingProvider {
+    
+    private final OpenAIService openAIService;
+    
+    @Override
+    public String modelId() {
+        return openAIService.getModel();
+    }
+    
+    @Override
+    public List<Embedding> embed(List<String> texts) {
+        return openAIService.generateEmbeddings(texts).stream()
+                .map(Embedding::of)
+                .toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.DocumentInsights;
+import com.project.googledrive.model.Embedding;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+@Component
+@RequiredArgsConstructor
+public class OpenAIEnrichmentClient implements EnrichmentClient {
+    
+    private final BatchEmbeddingService batchEmbeddingService;
+    private final EmbeddingProvider embeddingProvider;
+    private final KeywordExtractionService keywordExtractionService;
+    private final DocumentSummaryService documentSummaryService;
+    private final DocumentInsightsService documentInsightsService;
+    
+    @Override
+    public Embedding generateEmbedding(String text) {
+        // Goes through the batcher so concurrent enrichments share embedding requests
+        try {
+            return batchEmbeddingService.embed(text);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for embedding", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    @Override
+    public String embeddingModel() {
+        return embeddingProvider.modelId();
+    }
+    
+    @Override
+    public List<String> extractKeywords(String text) {
+        return keywordExtractionService.extractKeywords(text);
+    }
+    
+    @Override
+    public String generateSummary(String text) {
+        return documentSummaryService.generateSummary(text);
+    }
+    
+    @Override
+    public DocumentInsights extractInsights(String text) {
+        return documentInsightsService.extractInsights(text);
+    }
+}
@@ -1,10 +1,13 @@
 package com.project.googledrive.service;
 
+import com.project.googledrive.model.Embedding;
 import com.theokanning.openai.embedding.EmbeddingRequest;
 import com.theokanning.openai.service.OpenAiService;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -15,8 +18,12 @@ public class OpenAIService {
     @Value("${openai.model}")
     private String model;
     
-    public OpenAIService(@Value("${openai.api.key}") String apiKey) {
-        this.openAiService = new OpenAiService(apiKey);
+    public OpenAIService(OpenAiService openAiService) {
+        this.openAiService = openAiService;
+    }
+    
+    public String getModel() {
+        return model;
     }
     
     public List<Double> generateEmbedding(String text) {
@@ -31,21 +38,21 @@ public class OpenAIService {
                 .getEmbedding();
     }
     
-    public double calculateSimilarity(List<Double> embedding1, List<Double> embedding2) {
-        if (embedding1.size() != embedding2.size()) {
-            return 0.0;
-        }
-        
-        double dotProduct = 0.0;
-        double norm1 = 0.0;
-        double norm2 = 0.0;
+    // One request for many inputs; results come back tagged with their input index
+    public List<List<Double>> generateEmbeddings(List<String> texts) {
+        EmbeddingRequest request = EmbeddingRequest.builder()
+                .model(model)
+                .input(texts)
+                .build();
         
-        for (int i = 0; i < embedding1.size(); i++) {
-            dotProduct += embedding1.get(i) * embedding2.get(i);
-            norm1 += Math.pow(embedding1.get(i), 2);
-            norm2 += Math.pow(embedding2.get(i), 2);
+        List<List<Double>> embeddings = new ArrayList<>(Collections.nCopies(texts.size(), null));
+        for (com.theokanning.openai.embedding.Embedding embedding : openAiService.createEmbeddings(request).getData()) {
+            embeddings.set(embedding.getIndex(), embedding.getEmbedding());
         }
-        
-        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+        return embeddings;
+    }
+    
+    public double calculateSimilarity(Embedding embedding1, Embedding embedding2) {
+        return embedding1.cosineSimilarity(embedding2);
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.project.googledrive.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.project.googledrive.model.Embedding;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Caches search-query embeddings so a repeated query skips the embedding call. Keys combine
+// the model with a normalized query, so "Budget  Report" and "budget report" share an entry.
+// Concurrent misses for the same key wait on a single request. Entries can be written to disk on
+// shutdown and reloaded on startup, keeping their original expiry. As a MeterBinder its cache
+// metrics are registered once, by Spring, rather than by every instance that gets built.
+@Service
+public class QueryEmbeddingCache implements MeterBinder {
+    
+    private static final int FILE_FORMAT_VERSION = 1;
+    
+    private final EmbeddingProvider embeddingProvider;
+    private final Duration ttl;
+    private final String persistPath;
+    private final Cache<String, CachedEmbedding> cache;
+    
+    public QueryEmbeddingCache(EmbeddingProvider embeddingProvider,
+                               @Value("${query-cache.max-entries:10000}") long maxEntries,
+                               @Value("${query-cache.ttl-minutes:1440}") long ttlMinutes,
+                               @Value("${query-cache.persist-path:}") String persistPath) {
+        this.embeddingProvider = embeddingProvider;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.persistPath = persistPath;
+        // Size-bounded with W-TinyLFU eviction; expiry counts from when the embedding was created
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(Expiry.creating((String key, CachedEmbedding value) -> remainingLifetime(value)))
+                .recordStats()
+                .build();
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "query.embeddings");
+    }
+    
+    public Embedding getEmbedding(String query) {
+        return cache.get(key(query), key -> new CachedEmbedding(
+                embeddingProvider.embed(List.of(query)).get(0), System.currentTimeMillis())).embedding();
+    }
+    
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFKC);
+        return normalized.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+    
+    private String key(String query) {
+        return embeddingProvider.modelId() + "\n" + normalize(query);
+    }
+    
+    private Duration remainingLifetime(CachedEmbedding value) {
+        Duration age = Duration.ofMillis(System.currentTimeMillis() - value.createdAt());
+        return age.compareTo(ttl) >= 0 ? Duration.ZERO : ttl.minus(age);
+    }
+    
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+    
+    @PostConstruct
+    public void load() {
+        if (persistPath.isBlank() || !Files.exists(Path.of(persistPath))) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(persistPath))))) {
+            if (in.readInt() != FILE_FORMAT_VERSION) {
+                return;
+            }
+            int entries = in.readInt();
+            int loaded = 0;
+            for (int i = 0; i < entries; i++) {
+                String key = in.readUTF();
+                long createdAt = in.readLong();
+                byte[] vector = new byte[in.readInt()];
+                in.readFully(vector);
+                CachedEmbedding value = new CachedEmbedding(Embedding.fromBytes(vector), createdAt);
+                if (!remainingLifetime(value).isZero()) {
+                    cache.put(key, value);
+                    loaded++;
+                }
+            }
+            System.out.println("✅ Loaded " + loaded + " cached query embeddings");
+        } catch (IOException e) {
+            System.err.println("❌ Failed to load query embedding cache: " + e.getMessage());
+        }
+    }
+    
+    @PreDestroy
+    public void save() {
+        if (persistPath.isBlank()) {
+            return;
+        }
+        Path target = Path.of(persistPath);
+        try {
+            Path directory = target.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "query-cache", ".tmp");
+            Map<String, CachedEmbedding> entries = Map.copyOf(cache.asMap());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(FILE_FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, CachedEmbedding> entry : entries.entrySet()) {
+                    byte[] vector = entry.getValue().embedding().toBytes();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue().createdAt());
+                    out.writeInt(vector.length);
+                    out.write(vector);
+                }
+            }
+            // Replace atomically so a crash mid-write never leaves a truncated cache file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("❌ Failed to save query embedding cache: " + e.getMessage());
+        }
+    }
+    
+    private record CachedEmbedding(Embedding embedding, long createdAt) {
+    }
+}
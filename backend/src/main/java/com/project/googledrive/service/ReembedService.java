@@ -0,0 +1,192 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.ReembedJob;
+import com.project.googledrive.repository.ReembedJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Admin job that regenerates every document embedding, e.g. after switching embedding models.
+// It walks files in _id order and checkpoints after each page, so an interrupted run resumes
+// where it stopped instead of starting over.
+@Service
+public class ReembedService {
+    
+    private final ReembedJobRepository jobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final TextExtractionService textExtractionService;
+    private final BatchEmbeddingService batchEmbeddingService;
+    private final VectorIndexService vectorIndexService;
+    private final EmbeddingProvider embeddingProvider;
+    private final int pageSize;
+    private final Duration lease;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    
+    public ReembedService(ReembedJobRepository jobRepository,
+                          MongoTemplate mongoTemplate,
+                          TextExtractionService textExtractionService,
+                          BatchEmbeddingService batchEmbeddingService,
+                          VectorIndexService vectorIndexService,
+                          EmbeddingProvider embeddingProvider,
+                          @Value("${reembed.page-size:64}") int pageSize,
+                          @Value("${reembed.lease-ms:300000}") long leaseMs) {
+        this.jobRepository = jobRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.textExtractionService = textExtractionService;
+        this.batchEmbeddingService = batchEmbeddingService;
+        this.vectorIndexService = vectorIndexService;
+        this.embeddingProvider = embeddingProvider;
+        this.pageSize = pageSize;
+        this.lease = Duration.ofMillis(leaseMs);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public ReembedJob start(String requestedBy) {
+        if (!jobRepository.findByStatus(ReembedJob.Status.RUNNING).isEmpty()) {
+            throw new RuntimeException("A re-embedding job is already running");
+        }
+        
+        ReembedJob job = new ReembedJob();
+        job.setStatus(ReembedJob.Status.RUNNING);
+        job.setModel(embeddingProvider.modelId());
+        job.setRequestedBy(requestedBy);
+        job.setStartedAt(LocalDateTime.now());
+        job.setUpdatedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+        
+        resume(job.getId());
+        return job;
+    }
+    
+    public Optional<ReembedJob> getLatestJob() {
+        return jobRepository.findFirstByOrderByStartedAtDesc();
+    }
+    
+    // Picks up RUNNING jobs whose lease lapsed, e.g. after a restart or a crashed node
+    @Scheduled(fixedDelayString = "${reembed.resume-check-ms:60000}")
+    public void resumeInterruptedJobs() {
+        jobRepository.findByStatus(ReembedJob.Status.RUNNING)
+                .forEach(job -> resume(job.getId()));
+    }
+    
+    private void resume(String jobId) {
+        ReembedJob claimed = claim(jobId);
+        if (claimed != null) {
+            executor.execute(() -> run(claimed));
+        }
+    }
+    
+    private ReembedJob claim(String jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(Criteria.where("_id").is(jobId)
+                .and("status").is(ReembedJob.Status.RUNNING)
+                .orOperator(Criteria.where("lockedUntil").is(null), Criteria.where("lockedUntil").lt(now)));
+        return mongoTemplate.findAndModify(query, new Update().set("lockedUntil", now.plus(lease)),
+                FindAndModifyOptions.options().returnNew(true), ReembedJob.class);
+    }
+    
+    private void run(ReembedJob job) {
+        try {
+            while (true) {
+                List<FileMetadata> page = nextPage(job.getLastFileId());
+                if (page.isEmpty()) {
+                    job.setStatus(ReembedJob.Status.COMPLETED);
+                    job.setCompletedAt(LocalDateTime.now());
+                    job.setLockedUntil(null);
+                    job.setUpdatedAt(LocalDateTime.now());
+                    jobRepository.save(job);
+                    System.out.println("✅ Re-embedding complete: " + job.getProcessed() + " files, " + job.getFailed() + " failed");
+                    return;
+                }
+                
+                reembedPage(job, page);
+                
+                job.setLastFileId(page.get(page.size() - 1).getId());
+                job.setLockedUntil(LocalDateTime.now().plus(lease));
+                job.setUpdatedAt(LocalDateTime.now());
+                jobRepository.save(job);
+            }
+        } catch (Exception e) {
+            // Leave the job RUNNING with a lapsed lease so the next resume check retries from the checkpoint
+            System.err.println("❌ Re-embedding interrupted after " + job.getProcessed() + " files: " + e.getMessage());
+            job.setLastError(e.getMessage());
+            job.setLockedUntil(null);
+            jobRepository.save(job);
+        }
+    }
+    
+    private List<FileMetadata> nextPage(String afterFileId) {
+        Criteria criteria = new Criteria().orOperator(
+                Criteria.where("enrichmentStatus").is(EnrichmentStatus.DONE),
+                Criteria.where("embedding").ne(null));
+        if (afterFileId != null) {
+            criteria = new Criteria().andOperator(criteria, Criteria.where("_id").gt(afterFileId));
+        }
+        Query query = new Query(criteria).with(Sort.by("_id")).limit(pageSize);
+        query.fields().exclude("embedding");
+        return mongoTemplate.find(query, FileMetadata.class);
+    }
+    
+    private void reembedPage(ReembedJob job, List<FileMetadata> page) throws InterruptedException {
+        List<FileMetadata> files = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (FileMetadata file : page) {
+            try {
+                String text = textExtractionService.extractText(file);
+                if (!text.isEmpty()) {
+                    // Limit text to first 8000 characters to avoid token limits
+                    texts.add(text.length() > 8000 ? text.substring(0, 8000) : text);
+                    files.add(file);
+                }
+            } catch (Exception e) {
+                job.setFailed(job.getFailed() + 1);
+            }
+        }
+        
+        List<Embedding> embeddings = batchEmbeddingService.embedAll(texts);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FileMetadata.class);
+        int updates = 0;
+        for (int i = 0; i < files.size(); i++) {
+            if (embeddings.get(i) == null) {
+                job.setFailed(job.getFailed() + 1);
+                continue;
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(files.get(i).getId())),
+                    new Update().set("embedding", embeddings.get(i)).set("embeddingModel", embeddingProvider.modelId()));
+            updates++;
+        }
+        if (updates > 0) {
+            bulk.execute();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            FileMetadata file = files.get(i);
+            if (embeddings.get(i) != null) {
+                vectorIndexService.index(file.getId(), file.getOwnerEmail(), file.getSharedWith(), embeddings.get(i));
+            }
+        }
+        job.setProcessed(job.getProcessed() + updates);
+    }
+}
@@ -0,0 +1,129 @@
+package com.project.googledrive.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "s3", matchIfMissing = true)
+public class S3StorageService implements BlobStore {
+
+    // S3 rejects multipart parts smaller than 5 MB (except the last one)
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final AmazonS3 amazonS3;
+    private final String bucketName;
+    private final int partSize;
+
+    public S3StorageService(AmazonS3 amazonS3,
+                            @Value("${aws.s3.bucket.name}") String bucketName,
+                            @Value("${aws.s3.multipart.part-size:8388608}") int partSize) {
+        this.amazonS3 = amazonS3;
+        this.bucketName = bucketName;
+        this.partSize = Math.max(partSize, MIN_PART_SIZE);
+    }
+
+    @Override
+    public String locationOf(String key) {
+        return "s3://" + bucketName + "/" + key;
+    }
+
+    // Stream an object of known length to S3. Objects larger than one part go through
+    // a multipart upload so only a single part buffer is ever held in memory.
+    @Override
+    public void upload(String key, InputStream inputStream, long contentLength, String contentType) throws Exception {
+        if (contentLength <= partSize) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(contentLength);
+            metadata.setContentType(contentType);
+            amazonS3.putObject(new PutObjectRequest(bucketName, key, inputStream, metadata));
+            return;
+        }
+
+        String uploadId = startMultipartUpload(key, contentType);
+
+        try {
+            List<String> partETags = new ArrayList<>();
+            byte[] buffer = new byte[partSize];
+            long remaining = contentLength;
+            int partNumber = 1;
+
+            while (remaining > 0) {
+                int read = inputStream.readNBytes(buffer, 0, (int) Math.min(partSize, remaining));
+                if (read == 0) {
+                    throw new RuntimeException("Upload stream ended " + remaining + " bytes early");
+                }
+
+                partETags.add(uploadPart(key, uploadId, partNumber++, buffer, read));
+                remaining -= read;
+            }
+
+            completeMultipartUpload(key, uploadId, partETags);
+        } catch (Exception e) {
+            abortMultipartUpload(key, uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public String startMultipartUpload(String key, String contentType) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        return amazonS3.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucketName, key, metadata)).getUploadId();
+    }
+
+    // Returns the part's ETag, needed to complete the upload
+    @Override
+    public String uploadPart(String key, String uploadId, int partNumber, byte[] data, int length) {
+        UploadPartRequest partRequest = new UploadPartRequest()
+                .withBucketName(bucketName)
+                .withKey(key)
+                .withUploadId(uploadId)
+                .withPartNumber(partNumber)
+                .withInputStream(new ByteArrayInputStream(data, 0, length))
+                .withPartSize(length);
+        return amazonS3.uploadPart(partRequest).getPartETag().getETag();
+    }
+
+    @Override
+    public void completeMultipartUpload(String key, String uploadId, List<String> partTags) {
+        List<PartETag> partETags = new ArrayList<>();
+        for (int i = 0; i < partTags.size(); i++) {
+            partETags.add(new PartETag(i + 1, partTags.get(i)));
+        }
+        amazonS3.completeMultipartUpload(
+                new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+    }
+
+    @Override
+    public void abortMultipartUpload(String key, String uploadId) {
+        amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+    }
+
+    // Only the requested bytes are fetched from S3
+    @Override
+    public InputStream openRange(String key, long start, long end) {
+        GetObjectRequest request = new GetObjectRequest(bucketName, key).withRange(start, end);
+        return amazonS3.getObject(request).getObjectContent();
+    }
+
+    @Override
+    public void delete(String key) {
+        amazonS3.deleteObject(bucketName, key);
+    }
+}
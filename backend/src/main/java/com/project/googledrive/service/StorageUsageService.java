@@ -0,0 +1,134 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.StorageUsage;
+import com.project.googledrive.model.UploadSession;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-user storage totals. Quota checks are a single conditional $inc on one small document,
+// so concurrent uploads can't both slip under the limit, and nothing has to read the user's files.
+@Service
+public class StorageUsageService {
+    
+    private final MongoTemplate mongoTemplate;
+    private final Duration quietPeriod;
+    
+    public StorageUsageService(MongoTemplate mongoTemplate,
+                               @Value("${storage-usage.reconcile-quiet-minutes:10}") long quietMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.quietPeriod = Duration.ofMinutes(quietMinutes);
+    }
+    
+    // Adds bytes to the user's total only if the result stays within limit
+    public void reserve(String ownerEmail, long bytes, long limit) {
+        ensureExists(ownerEmail);
+        
+        Query query = new Query(Criteria.where("_id").is(ownerEmail).and("usedBytes").lte(limit - bytes));
+        StorageUsage updated = mongoTemplate.findAndModify(query,
+                new Update().inc("usedBytes", bytes).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), StorageUsage.class);
+        
+        if (updated == null) {
+            long availableSpace = Math.max(0, limit - getUsedBytes(ownerEmail));
+            throw new RuntimeException(
+                "Storage limit exceeded! You have " + 
+                (availableSpace / (1024 * 1024)) + " MB available, but file is " + 
+                (bytes / (1024 * 1024)) + " MB"
+            );
+        }
+    }
+    
+    // Returns bytes after a delete, or a reservation whose upload failed
+    public void release(String ownerEmail, long bytes) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(ownerEmail)),
+                new Update().inc("usedBytes", -bytes).set("updatedAt", LocalDateTime.now()),
+                StorageUsage.class);
+    }
+    
+    public long getUsedBytes(String ownerEmail) {
+        StorageUsage usage = mongoTemplate.findById(ownerEmail, StorageUsage.class);
+        return usage == null ? 0 : usage.getUsedBytes();
+    }
+    
+    // Users who uploaded before the counter existed start from their real total, computed once
+    private void ensureExists(String ownerEmail) {
+        if (mongoTemplate.exists(new Query(Criteria.where("_id").is(ownerEmail)), StorageUsage.class)) {
+            return;
+        }
+        StorageUsage usage = new StorageUsage();
+        usage.setOwnerEmail(ownerEmail);
+        usage.setUsedBytes(actualTotals(Criteria.where("ownerEmail").is(ownerEmail)).getOrDefault(ownerEmail, 0L));
+        usage.setUpdatedAt(LocalDateTime.now());
+        usage.setReconciledAt(usage.getUpdatedAt());
+        try {
+            mongoTemplate.insert(usage);
+        } catch (DuplicateKeyException e) {
+            // Another upload created it first
+        }
+    }
+    
+    // Repairs drift (crashes between an upload and its metadata write, manual edits) against the
+    // real sums. Users with recent activity are skipped because an upload in flight is counted in
+    // the total but not yet in the files, and a total that changes mid-check is left alone.
+    @Scheduled(cron = "${storage-usage.reconcile-cron:0 0 3 * * *}")
+    public void reconcile() {
+        Map<String, Long> actual = actualTotals(new Criteria());
+        LocalDateTime quietSince = LocalDateTime.now().minus(quietPeriod);
+        int repaired = 0;
+        
+        for (StorageUsage usage : mongoTemplate.findAll(StorageUsage.class)) {
+            long expected = actual.getOrDefault(usage.getOwnerEmail(), 0L);
+            if (usage.getUsedBytes() == expected
+                    || (usage.getUpdatedAt() != null && usage.getUpdatedAt().isAfter(quietSince))) {
+                continue;
+            }
+            Query unchanged = new Query(Criteria.where("_id").is(usage.getOwnerEmail())
+                    .and("updatedAt").is(usage.getUpdatedAt()));
+            long matched = mongoTemplate.updateFirst(unchanged,
+                    new Update().set("usedBytes", expected).set("reconciledAt", LocalDateTime.now()),
+                    StorageUsage.class).getMatchedCount();
+            if (matched > 0) {
+                System.out.println("⚠️ Storage usage for " + usage.getOwnerEmail() + " corrected from "
+                        + usage.getUsedBytes() + " to " + expected + " bytes");
+                repaired++;
+            }
+        }
+        System.out.println("✅ Storage usage reconciled (" + repaired + " corrected)");
+    }
+    
+    // Stored files plus the reservations of upload sessions that haven't finished
+    private Map<String, Long> actualTotals(Criteria criteria) {
+        Map<String, Long> totals = new HashMap<>();
+        addTotals(totals, criteria, "fileSize", FileMetadata.class);
+        addTotals(totals, new Criteria().andOperator(criteria, Criteria.where("status")
+                .in(UploadSession.Status.OPEN, UploadSession.Status.COMMITTING)), "size", UploadSession.class);
+        return totals;
+    }
+    
+    private void addTotals(Map<String, Long> totals, Criteria criteria, String field, Class<?> type) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(criteria),
+                Aggregation.group("ownerEmail").sum(field).as("total"));
+        List<Document> results = mongoTemplate.aggregate(aggregation, type, Document.class).getMappedResults();
+        
+        for (Document result : results) {
+            totals.merge(result.getString("_id"), ((Number) result.get("total")).longValue(), Long::sum);
+        }
+    }
+}
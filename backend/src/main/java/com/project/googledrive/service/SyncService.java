@@ -0,0 +1,259 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.ChunkCommitRequest;
+import com.project.googledrive.dto.ChunkManifest;
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.model.ChunkRef;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.FileVersion;
+import com.project.googledrive.model.StagedChunk;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Delta sync for desktop clients. A client splits a file with ContentDefinedChunker, asks which
+// chunks the server is missing, uploads only those, then commits the file's chunk manifest.
+// After a small edit to a large file only the chunks around the edit travel over the wire.
+@Service
+public class SyncService {
+
+    private final MongoTemplate mongoTemplate;
+    private final BlobService blobService;
+    private final FileService fileService;
+    private final StorageUsageService storageUsageService;
+    private final FileVersionService fileVersionService;
+    private final int maxChunkSize;
+    private final long stagedChunkTtlMinutes;
+
+    public SyncService(MongoTemplate mongoTemplate,
+                       BlobService blobService,
+                       FileService fileService,
+                       StorageUsageService storageUsageService,
+                       FileVersionService fileVersionService,
+                       @Value("${sync.max-chunk-size:4194304}") int maxChunkSize,
+                       @Value("${sync.staged-chunk-ttl-minutes:1440}") long stagedChunkTtlMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.blobService = blobService;
+        this.fileService = fileService;
+        this.storageUsageService = storageUsageService;
+        this.fileVersionService = fileVersionService;
+        this.maxChunkSize = maxChunkSize;
+        this.stagedChunkTtlMinutes = stagedChunkTtlMinutes;
+    }
+
+    // Thrown when a commit names chunks the user hasn't uploaded; the client sends them and retries
+    @Getter
+    public static class MissingChunksException extends RuntimeException {
+        private final List<String> missing;
+
+        public MissingChunksException(List<String> missing) {
+            super(missing.size() + " chunks missing");
+            this.missing = missing;
+        }
+    }
+
+    // The hashes the user still has to upload. A chunk only counts as present if this user
+    // already stores it; answering from every user's chunks would let anyone probe whether
+    // some content exists on the server.
+    public List<String> findMissing(String ownerEmail, Collection<String> hashes) {
+        Set<String> known = knownHashes(ownerEmail, hashes);
+        return hashes.stream()
+                .distinct()
+                .filter(hash -> !known.contains(hash))
+                .toList();
+    }
+
+    private Set<String> knownHashes(String ownerEmail, Collection<String> hashes) {
+        Set<String> requested = new HashSet<>(hashes);
+        Set<String> known = new HashSet<>();
+
+        // findDistinct returns every chunk of the matching files, so keep only the ones asked about
+        Query inManifests = new Query(Criteria.where("ownerEmail").is(ownerEmail).and("chunks.hash").in(requested));
+        mongoTemplate.findDistinct(inManifests, "chunks.hash", FileMetadata.class, String.class).stream()
+                .filter(requested::contains)
+                .forEach(known::add);
+
+        // A small file stored as a single blob is one chunk as far as sync is concerned
+        Query wholeFiles = new Query(Criteria.where("ownerEmail").is(ownerEmail).and("blobId").in(requested));
+        known.addAll(mongoTemplate.findDistinct(wholeFiles, "blobId", FileMetadata.class, String.class));
+
+        // Chunks kept by earlier versions are stored too
+        Query inVersions = new Query(Criteria.where("ownerEmail").is(ownerEmail).orOperator(
+                Criteria.where("chunks.hash").in(requested), Criteria.where("blobId").in(requested)));
+        mongoTemplate.find(inVersions, FileVersion.class).forEach(version -> {
+            if (version.getChunks() != null) {
+                version.getChunks().stream().map(ChunkRef::getHash).filter(requested::contains).forEach(known::add);
+            } else if (requested.contains(version.getBlobId())) {
+                known.add(version.getBlobId());
+            }
+        });
+
+        Query staged = new Query(Criteria.where("_id").in(requested.stream().map(hash -> stagedId(ownerEmail, hash)).toList()));
+        mongoTemplate.find(staged, StagedChunk.class).forEach(chunk -> known.add(chunk.getHash()));
+        return known;
+    }
+
+    // Stores one uploaded chunk and stages it for the user's next commit
+    public void storeChunk(String ownerEmail, String hash, InputStream body) throws Exception {
+        byte[] data = body.readNBytes(maxChunkSize + 1);
+        if (data.length > maxChunkSize) {
+            throw new RuntimeException("Chunk larger than " + maxChunkSize + " bytes");
+        }
+        if (!BlobService.sha256(new ByteArrayInputStream(data)).equals(hash)) {
+            throw new RuntimeException("Chunk content does not match its hash");
+        }
+
+        String id = stagedId(ownerEmail, hash);
+        if (mongoTemplate.exists(new Query(Criteria.where("_id").is(id)), StagedChunk.class)) {
+            return;
+        }
+
+        blobService.storeOrReference(hash, data.length, FileService.CHUNK_CONTENT_TYPE, new ByteArrayResource(data));
+        StagedChunk staged = new StagedChunk();
+        staged.setId(id);
+        staged.setOwnerEmail(ownerEmail);
+        staged.setHash(hash);
+        staged.setStagedAt(LocalDateTime.now());
+        try {
+            mongoTemplate.insert(staged);
+        } catch (DuplicateKeyException e) {
+            // Same chunk sent twice at once; the other request's staging holds the reference
+            blobService.release(hash);
+        }
+    }
+
+    // Creates a file from the manifest, or replaces the content of an existing one
+    public FileMetadata commit(String ownerEmail, ChunkCommitRequest request) {
+        List<String> missing = findMissing(ownerEmail, request.getChunks().stream().map(ChunkRef::getHash).toList());
+        if (!missing.isEmpty()) {
+            throw new MissingChunksException(missing);
+        }
+
+        // One blob reference per manifest entry; the blob's size is authoritative
+        List<ChunkRef> chunks = new ArrayList<>();
+        try {
+            long size = 0;
+            for (ChunkRef chunk : request.getChunks()) {
+                Blob blob = blobService.addReference(chunk.getHash());
+                if (blob == null) {
+                    // Expired and collected since the check above
+                    throw new MissingChunksException(List.of(chunk.getHash()));
+                }
+                chunks.add(new ChunkRef(blob.getId(), blob.getSize()));
+                size += blob.getSize();
+            }
+
+            FileMetadata saved = request.getFileId() == null
+                    ? create(ownerEmail, request, chunks, size)
+                    : replace(ownerEmail, request, chunks, size);
+            releaseStaged(ownerEmail, chunks);
+            return saved;
+        } catch (RuntimeException e) {
+            chunks.forEach(chunk -> blobService.release(chunk.getHash()));
+            throw e;
+        }
+    }
+
+    private FileMetadata create(String ownerEmail, ChunkCommitRequest request, List<ChunkRef> chunks, long size) {
+        storageUsageService.reserve(ownerEmail, size, FileService.STORAGE_LIMIT);
+        try {
+            return fileService.saveNewFile(FileService.chunkedContent(chunks, size), request.getFileName(),
+                    request.getContentType(), ownerEmail);
+        } catch (RuntimeException e) {
+            storageUsageService.release(ownerEmail, size);
+            throw e;
+        }
+    }
+
+    // The new manifest becomes the file's next version
+    private FileMetadata replace(String ownerEmail, ChunkCommitRequest request, List<ChunkRef> chunks, long size) {
+        return fileVersionService.replaceContent(request.getFileId(), ownerEmail, request.getBaseUpdatedAt(),
+                request.getFileName(), request.getContentType(), FileService.chunkedContent(chunks, size));
+    }
+
+    // Committed chunks no longer need the staging reference
+    private void releaseStaged(String ownerEmail, List<ChunkRef> chunks) {
+        chunks.stream().map(ChunkRef::getHash).distinct().forEach(hash -> {
+            Query query = new Query(Criteria.where("_id").is(stagedId(ownerEmail, hash)));
+            if (mongoTemplate.remove(query, StagedChunk.class).getDeletedCount() > 0) {
+                blobService.release(hash);
+            }
+        });
+    }
+
+    // The manifest another device diffs against its local copy to fetch only changed chunks
+    public ChunkManifest getManifest(String fileId, String userEmail) {
+        FileMetadata file = readableFile(fileId, userEmail);
+        List<ChunkRef> chunks;
+        if (file.getChunks() != null) {
+            chunks = file.getChunks();
+        } else if (file.getBlobId() != null) {
+            chunks = List.of(new ChunkRef(file.getBlobId(), file.getFileSize()));
+        } else {
+            throw new RuntimeException("File predates chunked storage; download it in full");
+        }
+        return new ChunkManifest(file.getId(), file.getFileSize(), file.getUpdatedAt(), chunks);
+    }
+
+    // A chunk is readable by anyone who can read a file containing it, or who staged it
+    public Blob getReadableChunk(String hash, String userEmail) {
+        Criteria containsChunk = new Criteria().orOperator(
+                Criteria.where("chunks.hash").is(hash), Criteria.where("blobId").is(hash));
+        Criteria canRead = new Criteria().orOperator(
+                Criteria.where("ownerEmail").is(userEmail), Criteria.where("sharedWith").is(userEmail));
+        boolean readable = mongoTemplate.exists(new Query(new Criteria().andOperator(containsChunk, canRead)), FileMetadata.class)
+                || mongoTemplate.exists(new Query(Criteria.where("_id").is(stagedId(userEmail, hash))), StagedChunk.class);
+        if (!readable) {
+            throw new RuntimeException("Chunk not found");
+        }
+        return blobService.getBlob(hash);
+    }
+
+    public InputStream openChunk(Blob blob) throws Exception {
+        return fileService.openBlobRange(blob, 0, blob.getSize() - 1);
+    }
+
+    private FileMetadata readableFile(String fileId, String userEmail) {
+        FileMetadata file = fileService.getFileMetadata(fileId);
+        if (!file.getOwnerEmail().equals(userEmail) && !file.getSharedWith().contains(userEmail)) {
+            throw new RuntimeException("File not found");
+        }
+        return file;
+    }
+
+    // Chunks uploaded for a commit that never came
+    @Scheduled(fixedDelayString = "${sync.staged-sweep-ms:3600000}")
+    public void expireStagedChunks() {
+        Query query = new Query(Criteria.where("stagedAt").lt(LocalDateTime.now().minusMinutes(stagedChunkTtlMinutes)));
+        int expired = 0;
+        for (StagedChunk staged : mongoTemplate.find(query, StagedChunk.class)) {
+            // Conditional remove, so a concurrent commit and the sweep can't both release it
+            if (mongoTemplate.remove(new Query(Criteria.where("_id").is(staged.getId())), StagedChunk.class).getDeletedCount() > 0) {
+                blobService.release(staged.getHash());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            System.out.println("🧹 Expired " + expired + " staged chunks");
+        }
+    }
+
+    private static String stagedId(String ownerEmail, String hash) {
+        return ownerEmail + ":" + hash;
+    }
+}
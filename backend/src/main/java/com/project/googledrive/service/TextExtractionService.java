@@ -0,0 +1,182 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.tika.Tika;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Extracts text with Apache Tika, streaming the decrypted file from storage. Callers only use
+// the start of a document, so parsing stops once maxChars characters are out instead of turning
+// a 300-page PDF into one huge String. Parsers run on their own small pool: a pathological file
+// can hold a parser thread, but never an enrichment worker past the timeout, and a burst of
+// uploads queues up here instead of starving the request threads of CPU.
+@Service
+public class TextExtractionService {
+
+    private final FileService fileService;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    private final int maxChars;
+    private final long timeoutMs;
+
+    private final Tika tika = new Tika();
+
+    public TextExtractionService(FileService fileService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${extraction.max-chars:8000}") int maxChars,
+                                 @Value("${extraction.threads:2}") int threads,
+                                 @Value("${extraction.queue-size:32}") int queueSize,
+                                 @Value("${extraction.timeout-ms:60000}") long timeoutMs) {
+        this.fileService = fileService;
+        this.meterRegistry = meterRegistry;
+        this.maxChars = maxChars;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "text-extraction-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // The character budget for text sent to the models
+    public int getMaxChars() {
+        return maxChars;
+    }
+
+    public String extractText(FileMetadata file) throws Exception {
+        return extractText(file, maxChars);
+    }
+
+    // At most limit characters of the file's text, from the start
+    public String extractText(FileMetadata file, int limit) throws Exception {
+        Extraction extraction = new Extraction(file, limit);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            Future<String> future;
+            try {
+                future = executor.submit(extraction);
+            } catch (RejectedExecutionException e) {
+                // The job is retried later, by which time the queue has drained
+                outcome = "rejected";
+                throw new RuntimeException("Text extraction is busy, try again later");
+            }
+
+            try {
+                String text = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+                outcome = extraction.truncated ? "truncated" : "success";
+                return text;
+            } catch (TimeoutException e) {
+                extraction.cancel();
+                future.cancel(true);
+                outcome = "timeout";
+                throw new RuntimeException("Text extraction timed out after " + timeoutMs + " ms");
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("extraction", "outcome", outcome));
+            meterRegistry.summary("extraction.bytes").record(extraction.bytesRead);
+        }
+    }
+
+    private final class Extraction implements Callable<String> {
+
+        private final FileMetadata file;
+        private final int limit;
+        private volatile boolean cancelled;
+        private volatile long bytesRead;
+        private volatile boolean truncated;
+
+        Extraction(FileMetadata file, int limit) {
+            this.file = file;
+            this.limit = limit;
+        }
+
+        @Override
+        public String call() throws Exception {
+            Metadata metadata = new Metadata();
+            // The name helps detection for formats without clear magic bytes
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, file.getOriginalFileName());
+            try (InputStream inputStream = new ParserInput(fileService.openDownloadStream(file, 0, file.getFileSize() - 1))) {
+                // The parser is stopped once limit characters are written
+                String text = tika.parseToString(inputStream, metadata, limit);
+                truncated = text.length() >= limit;
+                return text.trim();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        // Counts what the parser consumed and, once cancelled, fails its next read: parsers
+        // don't check for interrupts, but almost all of them read as they go
+        private final class ParserInput extends FilterInputStream {
+
+            ParserInput(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                checkCancelled();
+                int b = super.read();
+                if (b != -1) {
+                    bytesRead++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkCancelled();
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    bytesRead += read;
+                }
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                checkCancelled();
+                long skipped = super.skip(n);
+                bytesRead += skipped;
+                return skipped;
+            }
+
+            private void checkCancelled() throws InterruptedIOException {
+                if (cancelled) {
+                    throw new InterruptedIOException("Text extraction cancelled");
+                }
+            }
+        }
+    }
+}
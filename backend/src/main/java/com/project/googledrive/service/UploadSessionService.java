@@ -0,0 +1,290 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.UploadSessionRequest;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.UploadSession;
+import com.project.googledrive.util.EncryptionUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+// Resumable uploads. A session maps onto one multipart upload in the BlobStore: the client PUTs part-aligned
+// ranges in any order (or in parallel), can ask which ranges arrived after a dropped connection,
+// and commits once every part is in. Each part is encrypted on its own, so the finished object
+// has the same segmented format as any other upload and no part is ever held beyond its request.
+@Service
+public class UploadSessionService {
+
+    // S3 limits: at most 10,000 parts, each at least 5 MB except the last
+    private static final int MAX_PARTS = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final MongoTemplate mongoTemplate;
+    private final BlobStore blobStore;
+    private final FileService fileService;
+    private final StorageUsageService storageUsageService;
+    private final KeyWrappingService keyWrappingService;
+    private final long partSize;
+    private final Duration sessionTtl;
+
+    public UploadSessionService(MongoTemplate mongoTemplate,
+                                BlobStore blobStore,
+                                FileService fileService,
+                                StorageUsageService storageUsageService,
+                                KeyWrappingService keyWrappingService,
+                                @Value("${uploads.part-size:8388608}") long partSize,
+                                @Value("${uploads.session-ttl-minutes:1440}") long sessionTtlMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.blobStore = blobStore;
+        this.fileService = fileService;
+        this.storageUsageService = storageUsageService;
+        this.keyWrappingService = keyWrappingService;
+        this.partSize = partSize;
+        this.sessionTtl = Duration.ofMinutes(sessionTtlMinutes);
+    }
+
+    // Reserves the whole size against the quota up front, so a client can't find out at the
+    // last part that the file never fit
+    public UploadSession create(String ownerEmail, UploadSessionRequest request) throws Exception {
+        long size = request.getSize();
+        if (size <= 0) {
+            // Empty files go through a regular upload; S3 can't complete a multipart upload without parts
+            throw new RuntimeException("Upload size must be positive");
+        }
+        storageUsageService.reserve(ownerEmail, size, FileService.STORAGE_LIMIT);
+
+        String s3Key = UUID.randomUUID().toString();
+        String uploadId = null;
+        try {
+            long sessionPartSize = partSizeFor(size);
+            LocalDateTime now = LocalDateTime.now();
+
+            UploadSession session = new UploadSession();
+            session.setStatus(UploadSession.Status.OPEN);
+            session.setOwnerEmail(ownerEmail);
+            session.setFileName(request.getFileName());
+            session.setContentType(request.getContentType());
+            session.setSize(size);
+            session.setPartSize(sessionPartSize);
+            session.setPartCount((int) ((size + sessionPartSize - 1) / sessionPartSize));
+            session.setS3Key(s3Key);
+            session.setHeader(Base64.getEncoder().encodeToString(EncryptionUtil.newHeader()));
+            session.setWrappedKey(keyWrappingService.wrapForOwner(EncryptionUtil.generateKey(), ownerEmail));
+            session.setCreatedAt(now);
+            session.setExpiresAt(now.plus(sessionTtl));
+            uploadId = blobStore.startMultipartUpload(s3Key, request.getContentType());
+            session.setS3UploadId(uploadId);
+            return mongoTemplate.insert(session);
+        } catch (Exception e) {
+            if (uploadId != null) {
+                blobStore.abortMultipartUpload(s3Key, uploadId);
+            }
+            storageUsageService.release(ownerEmail, size);
+            throw e;
+        }
+    }
+
+    // The configured size, grown for very large files to stay within S3's part limit, and
+    // rounded to whole encryption segments so every part encrypts independently
+    long partSizeFor(long size) {
+        long needed = Math.max(Math.max(partSize, MIN_PART_SIZE), (size + MAX_PARTS - 1) / MAX_PARTS);
+        long segment = EncryptionUtil.SEGMENT_SIZE;
+        return (needed + segment - 1) / segment * segment;
+    }
+
+    public UploadSession getSession(String sessionId, String ownerEmail) {
+        UploadSession session = mongoTemplate.findById(sessionId, UploadSession.class);
+        if (session == null || !session.getOwnerEmail().equals(ownerEmail)) {
+            throw new RuntimeException("Upload session not found");
+        }
+        return session;
+    }
+
+    // Stores the part starting at offset. A client that isn't sure whether a part arrived can
+    // send it again, but only with the same bytes: every attempt encrypts under the session's key
+    // and nonces, so different bytes for a part are refused and need a new session.
+    public UploadSession uploadPart(String sessionId, String ownerEmail, long offset, InputStream body) throws Exception {
+        UploadSession session = getOpenSession(sessionId, ownerEmail);
+        if (offset < 0 || offset >= session.getSize() || offset % session.getPartSize() != 0) {
+            throw new RuntimeException("Offset must be a multiple of the part size " + session.getPartSize());
+        }
+        int partNumber = (int) (offset / session.getPartSize()) + 1;
+        int length = (int) Math.min(session.getPartSize(), session.getSize() - offset);
+
+        byte[] plaintext = body.readNBytes(length + 1);
+        if (plaintext.length != length) {
+            throw new RuntimeException("Part " + partNumber + " must be exactly " + length + " bytes");
+        }
+
+        String dataKey = keyWrappingService.unwrapForOwner(session.getWrappedKey(), ownerEmail);
+        String digest = partDigest(dataKey, plaintext);
+        session = claimPart(session, partNumber, digest);
+        if (session.getParts().containsKey(String.valueOf(partNumber))) {
+            // Already stored with these bytes
+            return session;
+        }
+
+        byte[] header = Base64.getDecoder().decode(session.getHeader());
+        byte[] segments = EncryptionUtil.encryptSegments(EncryptionUtil.toSecretKey(dataKey), header,
+                offset / EncryptionUtil.SEGMENT_SIZE, EncryptionUtil.segmentCount(session.getSize()) - 1,
+                plaintext, length);
+        byte[] ciphertext = segments;
+        if (partNumber == 1) {
+            // The object starts with the header, so it travels with the first part
+            ciphertext = new byte[header.length + segments.length];
+            System.arraycopy(header, 0, ciphertext, 0, header.length);
+            System.arraycopy(segments, 0, ciphertext, header.length, segments.length);
+        }
+
+        String eTag = blobStore.uploadPart(session.getS3Key(), session.getS3UploadId(), partNumber,
+                ciphertext, ciphertext.length);
+
+        UploadSession.Part part = new UploadSession.Part();
+        part.setETag(eTag);
+        part.setSize(length);
+        part.setReceivedAt(LocalDateTime.now());
+        Query query = new Query(Criteria.where("_id").is(sessionId).and("status").is(UploadSession.Status.OPEN));
+        UploadSession updated = mongoTemplate.findAndModify(query,
+                new Update().set("parts." + partNumber, part).set("expiresAt", part.getReceivedAt().plus(sessionTtl)),
+                FindAndModifyOptions.options().returnNew(true), UploadSession.class);
+        if (updated == null) {
+            throw new RuntimeException("Upload session is no longer open");
+        }
+        return updated;
+    }
+
+    // Records the part's digest before anything is encrypted, or checks it against the one
+    // recorded by an earlier attempt. Claiming first means concurrent attempts with different
+    // bytes can't both get encrypted.
+    private UploadSession claimPart(UploadSession session, int partNumber, String digest) {
+        String field = "partDigests." + partNumber;
+        Query query = new Query(Criteria.where("_id").is(session.getId()).and("status").is(UploadSession.Status.OPEN)
+                .orOperator(Criteria.where(field).exists(false), Criteria.where(field).is(digest)));
+        UploadSession claimed = mongoTemplate.findAndModify(query, new Update().set(field, digest),
+                FindAndModifyOptions.options().returnNew(true), UploadSession.class);
+        if (claimed == null) {
+            if (mongoTemplate.findById(session.getId(), UploadSession.class).getStatus() != UploadSession.Status.OPEN) {
+                throw new RuntimeException("Upload session is no longer open");
+            }
+            throw new RuntimeException("Part " + partNumber + " was already sent with different content; "
+                    + "abort the session and start a new one");
+        }
+        return claimed;
+    }
+
+    // HMAC under the data key, so the stored digest reveals nothing about the content
+    private static String partDigest(String dataKey, byte[] plaintext) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(EncryptionUtil.toSecretKey(dataKey).getEncoded(), "HmacSHA256"));
+        return Base64.getEncoder().encodeToString(mac.doFinal(plaintext));
+    }
+
+    // Completes the multipart upload and creates the file; the session's reservation becomes
+    // the file's share of the quota
+    public FileMetadata commit(String sessionId, String ownerEmail) {
+        UploadSession session = getOpenSession(sessionId, ownerEmail);
+        List<Integer> missing = IntStream.rangeClosed(1, session.getPartCount())
+                .filter(part -> !session.getParts().containsKey(String.valueOf(part)))
+                .boxed()
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new RuntimeException("Parts still missing: " + missing);
+        }
+
+        // Only one commit may proceed; a part arriving meanwhile is refused
+        if (!transition(session, UploadSession.Status.OPEN, UploadSession.Status.COMMITTING)) {
+            throw new RuntimeException("Upload session is no longer open");
+        }
+
+        try {
+            List<String> partTags = IntStream.rangeClosed(1, session.getPartCount())
+                    .mapToObj(part -> session.getParts().get(String.valueOf(part)).getETag())
+                    .toList();
+            blobStore.completeMultipartUpload(session.getS3Key(), session.getS3UploadId(), partTags);
+        } catch (RuntimeException e) {
+            // e.g. a part replaced while completing; the client can re-send parts and retry
+            transition(session, UploadSession.Status.COMMITTING, UploadSession.Status.OPEN);
+            throw e;
+        }
+
+        FileMetadata file;
+        try {
+            FileMetadata content = fileService.objectContent(session.getS3Key(), session.getWrappedKey(), session.getSize());
+            file = fileService.saveNewFile(content, session.getFileName(), session.getContentType(), ownerEmail);
+        } catch (RuntimeException e) {
+            blobStore.delete(session.getS3Key());
+            storageUsageService.release(ownerEmail, session.getSize());
+            transition(session, UploadSession.Status.COMMITTING, UploadSession.Status.ABORTED);
+            throw e;
+        }
+
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(sessionId)),
+                new Update().set("status", UploadSession.Status.COMMITTED).set("fileId", file.getId()),
+                UploadSession.class);
+        System.out.println("✅ Upload session " + sessionId + " committed as " + file.getOriginalFileName());
+        return file;
+    }
+
+    public void abort(String sessionId, String ownerEmail) {
+        abort(getOpenSession(sessionId, ownerEmail));
+    }
+
+    // Sessions nobody has touched within the TTL: their parts are dropped and the quota returned
+    @Scheduled(fixedDelayString = "${uploads.expiry-check-ms:600000}")
+    public void expireSessions() {
+        Query query = new Query(Criteria.where("status").is(UploadSession.Status.OPEN)
+                .and("expiresAt").lt(LocalDateTime.now()));
+        int expired = 0;
+        for (UploadSession session : mongoTemplate.find(query, UploadSession.class)) {
+            if (abort(session)) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            System.out.println("🧹 Expired " + expired + " upload sessions");
+        }
+    }
+
+    private boolean abort(UploadSession session) {
+        // The status change decides who aborts, so the quota is released exactly once
+        if (!transition(session, UploadSession.Status.OPEN, UploadSession.Status.ABORTED)) {
+            return false;
+        }
+        try {
+            blobStore.abortMultipartUpload(session.getS3Key(), session.getS3UploadId());
+        } catch (RuntimeException e) {
+            // A bucket lifecycle rule for incomplete multipart uploads cleans up what is left
+            System.err.println("❌ Failed to abort multipart upload for session " + session.getId() + ": " + e.getMessage());
+        }
+        storageUsageService.release(session.getOwnerEmail(), session.getSize());
+        return true;
+    }
+
+    private UploadSession getOpenSession(String sessionId, String ownerEmail) {
+        UploadSession session = getSession(sessionId, ownerEmail);
+        if (session.getStatus() != UploadSession.Status.OPEN || session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Upload session is no longer open");
+        }
+        return session;
+    }
+
+    private boolean transition(UploadSession session, UploadSession.Status from, UploadSession.Status to) {
+        Query query = new Query(Criteria.where("_id").is(session.getId()).and("status").is(from));
+        return mongoTemplate.updateFirst(query, new Update().set("status", to), UploadSession.class).getModifiedCount() > 0;
+    }
+}
@@ -0,0 +1,166 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.util.HnswIndex;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+// In-memory semantic search index. Each owner gets their own HNSW graph, so a query only walks
+// vectors the user owns; files shared with the user are few and are scored exactly against the
+// owners' graphs. Kept in step with Mongo on enrichment, delete and share, and rebuilt from Mongo
+// at startup. Only embeddings of the current model are loaded: vectors from another model live in
+// a different space even when the dimension matches, so those files wait for re-embedding.
+@Service
+@DependsOn("embeddingMigration")
+public class VectorIndexService {
+
+    private final MongoTemplate mongoTemplate;
+    private final EmbeddingProvider embeddingProvider;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double compactRatio;
+
+    // owner email -> graph of that owner's files
+    private final Map<String, HnswIndex> partitions = new ConcurrentHashMap<>();
+    // file id -> owner email, to find the partition on delete
+    private final Map<String, String> ownerByFileId = new ConcurrentHashMap<>();
+    // user email -> ids of files shared with them, and the reverse for cleanup on delete
+    private final Map<String, Set<String>> sharedFileIds = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> sharedWithByFileId = new ConcurrentHashMap<>();
+
+    public VectorIndexService(MongoTemplate mongoTemplate,
+                              EmbeddingProvider embeddingProvider,
+                              @Value("${vector-index.m:16}") int m,
+                              @Value("${vector-index.ef-construction:200}") int efConstruction,
+                              @Value("${vector-index.ef-search:64}") int efSearch,
+                              @Value("${vector-index.compact-ratio:0.25}") double compactRatio) {
+        this.mongoTemplate = mongoTemplate;
+        this.embeddingProvider = embeddingProvider;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.compactRatio = compactRatio;
+    }
+
+    // Runs before the web server starts, so searches never see a half-loaded index
+    @PostConstruct
+    public void loadIndex() {
+        Query query = new Query(Criteria.where("embedding").ne(null)
+                .and("embeddingModel").is(embeddingProvider.modelId()));
+        query.fields().include("ownerEmail").include("sharedWith").include("embedding");
+
+        long started = System.currentTimeMillis();
+        try (Stream<FileMetadata> files = mongoTemplate.stream(query, FileMetadata.class)) {
+            files.forEach(file -> index(file.getId(), file.getOwnerEmail(), file.getSharedWith(), file.getEmbedding()));
+            System.out.println("✅ Vector index loaded: " + ownerByFileId.size() + " files in "
+                    + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to load vector index: " + e.getMessage());
+        }
+    }
+
+    public void index(String fileId, String ownerEmail, Collection<String> sharedWith, Embedding embedding) {
+        float[] vector = embedding == null ? null : embedding.normalized();
+        if (vector == null) {
+            return;
+        }
+
+        // compute() serialises writers per owner, so a concurrent compaction can't drop the insert
+        partitions.compute(ownerEmail, (owner, partition) -> {
+            if (partition == null || partition.getDimension() != vector.length) {
+                // A model change alters the dimension; entries of the old size can't be compared anyway
+                partition = new HnswIndex(vector.length, m, efConstruction);
+            }
+            partition.add(fileId, vector);
+            return partition;
+        });
+        ownerByFileId.put(fileId, ownerEmail);
+        if (sharedWith != null) {
+            sharedWith.forEach(email -> share(fileId, email));
+        }
+    }
+
+    public void share(String fileId, String email) {
+        sharedFileIds.computeIfAbsent(email, key -> ConcurrentHashMap.newKeySet()).add(fileId);
+        sharedWithByFileId.computeIfAbsent(fileId, key -> ConcurrentHashMap.newKeySet()).add(email);
+    }
+
+    public void remove(String fileId) {
+        Set<String> sharedWith = sharedWithByFileId.remove(fileId);
+        if (sharedWith != null) {
+            sharedWith.forEach(email -> {
+                Set<String> ids = sharedFileIds.get(email);
+                if (ids != null) {
+                    ids.remove(fileId);
+                }
+            });
+        }
+
+        String owner = ownerByFileId.remove(fileId);
+        if (owner == null) {
+            return;
+        }
+        partitions.computeIfPresent(owner, (key, partition) -> {
+            partition.remove(fileId);
+            if (partition.size() == 0) {
+                return null;
+            }
+            // Tombstones slow searches down, so rebuild once they make up a large share of the graph
+            if (partition.getDeletedCount() > Math.max(64, partition.size() * compactRatio)) {
+                return partition.compact();
+            }
+            return partition;
+        });
+    }
+
+    // Top-k files the user can read, best first, restricted to those at or above minScore
+    public List<HnswIndex.Match> search(String userEmail, Embedding queryEmbedding, int k, double minScore) {
+        float[] query = queryEmbedding.normalized();
+        if (query == null) {
+            return List.of();
+        }
+
+        List<HnswIndex.Match> matches = new ArrayList<>();
+        HnswIndex owned = partitions.get(userEmail);
+        if (owned != null && owned.getDimension() == query.length) {
+            matches.addAll(owned.search(query, k, Math.max(efSearch, k)));
+        }
+
+        for (String fileId : sharedFileIds.getOrDefault(userEmail, Set.of())) {
+            String owner = ownerByFileId.get(fileId);
+            HnswIndex partition = owner == null ? null : partitions.get(owner);
+            if (partition != null && partition.getDimension() == query.length) {
+                float score = partition.similarity(fileId, query);
+                if (!Float.isNaN(score)) {
+                    matches.add(new HnswIndex.Match(fileId, score));
+                }
+            }
+        }
+
+        return matches.stream()
+                .filter(match -> match.score() >= minScore)
+                .sorted(Comparator.comparingDouble(HnswIndex.Match::score).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    public int size() {
+        return ownerByFileId.size();
+    }
+}
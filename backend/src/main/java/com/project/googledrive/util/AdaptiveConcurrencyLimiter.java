@@ -0,0 +1,46 @@
+package com.project.googledrive.util;
+
+// AIMD concurrency limit: grows by roughly one slot per window of successful calls and halves
+// whenever the remote side signals rate limiting, so throughput settles just below the quota.
+public class AdaptiveConcurrencyLimiter {
+
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = Math.min(Math.max(1, initialLimit), maxLimit);
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    public synchronized void onSuccess() {
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+        release();
+    }
+
+    public synchronized void onRateLimited() {
+        limit = Math.max(1, limit / 2);
+        release();
+    }
+
+    // Failures unrelated to load leave the limit alone
+    public synchronized void onFailure() {
+        release();
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    private void release() {
+        inFlight--;
+        notifyAll();
+    }
+}
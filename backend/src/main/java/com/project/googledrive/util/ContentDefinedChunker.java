@@ -0,0 +1,146 @@
+package com.project.googledrive.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Splits content into variable-size chunks whose boundaries depend only on the bytes around
+// them (gear rolling hash with FastCDC-style normalisation). Inserting or deleting bytes only
+// changes the chunks around the edit, so a modified file shares almost all chunks with its
+// previous version. Clients must use the same parameters and gear table for hashes to match.
+public class ContentDefinedChunker {
+
+    public static final int DEFAULT_MIN_SIZE = 256 * 1024;
+    public static final int DEFAULT_AVG_SIZE = 1024 * 1024;
+    public static final int DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+    // Fixed seed: the table is part of the sync protocol
+    private static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_C0DE_D15CL);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    public record Chunk(long offset, int length, String hash) {
+    }
+
+    @FunctionalInterface
+    public interface ChunkHandler {
+        // data holds exactly the chunk's bytes and may be kept by the handler
+        void accept(Chunk chunk, byte[] data) throws Exception;
+    }
+
+    private final int minSize;
+    private final int avgSize;
+    private final int maxSize;
+    // Before the average size a boundary needs more matching bits, after it fewer, which keeps
+    // chunk sizes close to the average without a hard cut at every maxSize
+    private final long strictMask;
+    private final long looseMask;
+
+    public ContentDefinedChunker() {
+        this(DEFAULT_MIN_SIZE, DEFAULT_AVG_SIZE, DEFAULT_MAX_SIZE);
+    }
+
+    public ContentDefinedChunker(int minSize, int avgSize, int maxSize) {
+        if (minSize <= 0 || minSize > avgSize || avgSize > maxSize || Integer.bitCount(avgSize) != 1) {
+            throw new IllegalArgumentException("Need 0 < min <= avg <= max with avg a power of two");
+        }
+        this.minSize = minSize;
+        this.avgSize = avgSize;
+        this.maxSize = maxSize;
+        int bits = Integer.numberOfTrailingZeros(avgSize);
+        // The top bits of a gear hash depend on the last 64 bytes, the bottom ones only on the last few
+        this.strictMask = -1L << (64 - (bits + 1));
+        this.looseMask = -1L << (64 - (bits - 1));
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Length of the first chunk in data[offset, offset + length)
+    int cutPoint(byte[] data, int offset, int length) {
+        if (length <= minSize) {
+            return length;
+        }
+        int limit = Math.min(length, maxSize);
+        int normal = Math.min(limit, avgSize);
+        long hash = 0;
+        int i = minSize;
+        for (; i < normal; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((hash & strictMask) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            hash = (hash << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((hash & looseMask) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    // Reads the whole stream, handing each chunk to the handler in order
+    public void chunk(InputStream in, ChunkHandler handler) throws Exception {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[2 * maxSize];
+        int start = 0;
+        int end = 0;
+        long offset = 0;
+        boolean eof = false;
+
+        while (true) {
+            // Keep at least maxSize bytes buffered so every cut point sees its full window
+            if (!eof && end - start < maxSize) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+                int read = in.readNBytes(buffer, end, buffer.length - end);
+                end += read;
+                eof = end < buffer.length;
+            }
+            if (start == end) {
+                return;
+            }
+
+            int length = cutPoint(buffer, start, end - start);
+            byte[] data = new byte[length];
+            System.arraycopy(buffer, start, data, 0, length);
+            String hash = HexFormat.of().formatHex(digest.digest(data));
+            handler.accept(new Chunk(offset, length, hash), data);
+            offset += length;
+            start += length;
+        }
+    }
+
+    public List<Chunk> split(InputStream in) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        try {
+            chunk(in, (chunk, data) -> chunks.add(chunk));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        return chunks;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,34 +1,225 @@
 package com.project.googledrive.util;
 
 import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
 
 public class EncryptionUtil {
-    
+
     private static final String ALGORITHM = "AES";
-    
+    private static final String SEGMENT_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String LEGACY_BLOCK_TRANSFORMATION = "AES/ECB/NoPadding";
+    private static final int LEGACY_BLOCK_SIZE = 16;
+
+    // Segmented format, version 1:
+    //   header  = "GDE" | version (1) | segment size (4) | nonce prefix (7) | reserved (1)
+    //   segment = AES-GCM ciphertext of up to SEGMENT_SIZE plaintext bytes | tag (16)
+    // A segment's nonce is the prefix, its index and a last-segment flag, and the header is
+    // authenticated with every segment. Segments decrypt independently, but cannot be
+    // reordered, dropped, truncated or swapped between files.
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int SEGMENT_SIZE = 64 * 1024;
+    public static final int TAG_SIZE = 16;
+
+    private static final byte[] MAGIC = { 'G', 'D', 'E' };
+    private static final int NONCE_PREFIX_SIZE = 7;
+    private static final int NONCE_SIZE = 12;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Cipher.getInstance is comparatively expensive, so each thread keeps its own instances
+    private static final ThreadLocal<Cipher> SEGMENT_CIPHER = ThreadLocal.withInitial(() -> newCipher(SEGMENT_TRANSFORMATION));
+    private static final ThreadLocal<Cipher> LEGACY_CIPHER = ThreadLocal.withInitial(() -> newCipher(ALGORITHM));
+
     public static String generateKey() throws Exception {
         KeyGenerator keyGen = KeyGenerator.getInstance(ALGORITHM);
         keyGen.init(256, new SecureRandom());
         SecretKey secretKey = keyGen.generateKey();
         return Base64.getEncoder().encodeToString(secretKey.getEncoded());
     }
-    
+
+    public static SecretKey toSecretKey(String key) {
+        return new SecretKeySpec(Base64.getDecoder().decode(key), ALGORITHM);
+    }
+
     public static byte[] encrypt(byte[] data, String key) throws Exception {
-        SecretKeySpec secretKey = new SecretKeySpec(Base64.getDecoder().decode(key), ALGORITHM);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-        return cipher.doFinal(data);
+        return encryptingStream(new ByteArrayInputStream(data), key).readAllBytes();
     }
-    
+
     public static byte[] decrypt(byte[] encryptedData, String key) throws Exception {
-        SecretKeySpec secretKey = new SecretKeySpec(Base64.getDecoder().decode(key), ALGORITHM);
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        cipher.init(Cipher.DECRYPT_MODE, secretKey);
+        if (encryptedData.length < HEADER_SIZE + TAG_SIZE) {
+            throw new GeneralSecurityException("Ciphertext too short");
+        }
+        byte[] header = Arrays.copyOf(encryptedData, HEADER_SIZE);
+        long plaintextLength = plaintextLength(encryptedData.length);
+        if (plaintextLength == 0) {
+            // Still authenticate the single empty segment
+            validateHeader(header);
+            return decryptSegment(toSecretKey(key), header, 0, true, encryptedData, HEADER_SIZE, TAG_SIZE);
+        }
+        InputStream segments = new ByteArrayInputStream(encryptedData, HEADER_SIZE, encryptedData.length - HEADER_SIZE);
+        return decryptingRangeStream(segments, header, key, 0, plaintextLength - 1, plaintextLength).readAllBytes();
+    }
+
+    // Objects written before the segmented format existed are AES/ECB/PKCS5 over the whole file
+    public static byte[] decryptLegacy(byte[] encryptedData, String key) throws Exception {
+        Cipher cipher = LEGACY_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, toSecretKey(key));
         return cipher.doFinal(encryptedData);
     }
-}
\ No newline at end of file
+
+    // Wraps a plaintext stream so it is encrypted segment by segment as it is read
+    public static InputStream encryptingStream(InputStream plaintext, String key) {
+        return new SegmentEncryptingInputStream(plaintext, toSecretKey(key), newHeader());
+    }
+
+    public static byte[] newHeader() {
+        byte[] noncePrefix = new byte[NONCE_PREFIX_SIZE];
+        RANDOM.nextBytes(noncePrefix);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC);
+        header.put((byte) FORMAT_VERSION);
+        header.putInt(SEGMENT_SIZE);
+        header.put(noncePrefix);
+        return header.array();
+    }
+
+    public static void validateHeader(byte[] header) throws IOException {
+        if (header.length != HEADER_SIZE || !Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Not a segmented ciphertext");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header, MAGIC.length, HEADER_SIZE - MAGIC.length);
+        int version = buffer.get();
+        int segmentSize = buffer.getInt();
+        if (version != FORMAT_VERSION || segmentSize != SEGMENT_SIZE) {
+            throw new IOException("Unsupported ciphertext version " + version + " with segment size " + segmentSize);
+        }
+    }
+
+    public static long segmentCount(long plaintextLength) {
+        return Math.max(1, (plaintextLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+    }
+
+    // Header plus one tag per segment, so the size is known before encrypting
+    public static long encryptedLength(long plaintextLength) {
+        return HEADER_SIZE + plaintextLength + segmentCount(plaintextLength) * TAG_SIZE;
+    }
+
+    public static long plaintextLength(long encryptedLength) {
+        long body = encryptedLength - HEADER_SIZE;
+        long segments = (body + SEGMENT_SIZE + TAG_SIZE - 1) / (SEGMENT_SIZE + TAG_SIZE);
+        return body - segments * TAG_SIZE;
+    }
+
+    // Byte range (inclusive) of the segments covering plaintext bytes [start, end]
+    public static long[] ciphertextRange(long plaintextStart, long plaintextEnd, long plaintextLength) {
+        long firstSegment = plaintextStart / SEGMENT_SIZE;
+        long lastSegment = plaintextEnd / SEGMENT_SIZE;
+        long lastSegmentLength = Math.min(SEGMENT_SIZE, plaintextLength - lastSegment * SEGMENT_SIZE);
+        return new long[] {
+                segmentOffset(firstSegment),
+                segmentOffset(lastSegment) + lastSegmentLength + TAG_SIZE - 1
+        };
+    }
+
+    public static long segmentOffset(long segmentIndex) {
+        return HEADER_SIZE + segmentIndex * (SEGMENT_SIZE + TAG_SIZE);
+    }
+
+    // Decrypts segments fetched with ciphertextRange() and trims them to plaintext bytes [start, end]
+    public static InputStream decryptingRangeStream(InputStream segments, byte[] header, String key,
+                                                    long plaintextStart, long plaintextEnd,
+                                                    long plaintextLength) throws IOException {
+        validateHeader(header);
+        long firstSegment = plaintextStart / SEGMENT_SIZE;
+        long finalSegment = segmentCount(plaintextLength) - 1;
+
+        InputStream plaintext = new SegmentDecryptingInputStream(segments, toSecretKey(key), header, firstSegment, finalSegment);
+        plaintext.skipNBytes(plaintextStart - firstSegment * SEGMENT_SIZE);
+        return new BoundedInputStream(plaintext, plaintextEnd - plaintextStart + 1);
+    }
+
+    // Each segment is self-contained, so callers may encrypt or decrypt segments in any order or in parallel
+    public static byte[] encryptSegment(SecretKey key, byte[] header, long segmentIndex, boolean last,
+                                        byte[] plaintext, int offset, int length) throws GeneralSecurityException {
+        Cipher cipher = SEGMENT_CIPHER.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, segmentNonce(header, segmentIndex, last));
+        cipher.updateAAD(header);
+        return cipher.doFinal(plaintext, offset, length);
+    }
+
+    // Ciphertext (without header) of plaintext[0, length) when it starts at segment firstSegment
+    // of a file whose last segment is finalSegment. Lets separately uploaded parts of one file be
+    // encrypted independently; concatenated after the header they form the usual format.
+    public static byte[] encryptSegments(SecretKey key, byte[] header, long firstSegment, long finalSegment,
+                                         byte[] plaintext, int length) throws GeneralSecurityException {
+        int segments = Math.max(1, (length + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        ByteBuffer ciphertext = ByteBuffer.allocate(length + segments * TAG_SIZE);
+        for (int i = 0; i < segments; i++) {
+            int offset = i * SEGMENT_SIZE;
+            long segmentIndex = firstSegment + i;
+            ciphertext.put(encryptSegment(key, header, segmentIndex, segmentIndex == finalSegment,
+                    plaintext, offset, Math.min(SEGMENT_SIZE, length - offset)));
+        }
+        return ciphertext.array();
+    }
+
+    public static byte[] decryptSegment(SecretKey key, byte[] header, long segmentIndex, boolean last,
+                                        byte[] ciphertext, int offset, int length) throws GeneralSecurityException {
+        Cipher cipher = SEGMENT_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, segmentNonce(header, segmentIndex, last));
+        cipher.updateAAD(header);
+        return cipher.doFinal(ciphertext, offset, length);
+    }
+
+    private static GCMParameterSpec segmentNonce(byte[] header, long segmentIndex, boolean last) {
+        if (segmentIndex < 0 || segmentIndex > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Segment index out of range: " + segmentIndex);
+        }
+        ByteBuffer nonce = ByteBuffer.allocate(NONCE_SIZE);
+        nonce.put(header, HEADER_SIZE - NONCE_PREFIX_SIZE - 1, NONCE_PREFIX_SIZE);
+        nonce.putInt((int) segmentIndex);
+        nonce.put((byte) (last ? 1 : 0));
+        return new GCMParameterSpec(TAG_SIZE * 8, nonce.array());
+    }
+
+    // ECB encrypts every 16-byte block independently, so a plaintext range of a legacy object
+    // only needs the ciphertext blocks that cover it. This returns the ciphertext range to fetch.
+    public static long[] legacyCiphertextRange(long plaintextStart, long plaintextEnd) {
+        long blockStart = plaintextStart - (plaintextStart % LEGACY_BLOCK_SIZE);
+        long blockEnd = plaintextEnd - (plaintextEnd % LEGACY_BLOCK_SIZE) + LEGACY_BLOCK_SIZE - 1;
+        return new long[] { blockStart, blockEnd };
+    }
+
+    // Decrypts legacy ciphertext fetched with legacyCiphertextRange() and trims it to the requested range
+    public static InputStream legacyDecryptingRangeStream(InputStream ciphertext, String key,
+                                                          long plaintextStart, long plaintextEnd) throws Exception {
+        Cipher cipher = Cipher.getInstance(LEGACY_BLOCK_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, toSecretKey(key));
+
+        InputStream plaintext = new CipherInputStream(ciphertext, cipher);
+        plaintext.skipNBytes(plaintextStart % LEGACY_BLOCK_SIZE);
+        return new BoundedInputStream(plaintext, plaintextEnd - plaintextStart + 1);
+    }
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher " + transformation + " unavailable", e);
+        }
+    }
+}
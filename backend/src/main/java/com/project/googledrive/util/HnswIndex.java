@@ -0,0 +1,499 @@
+package com.project.googledrive.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Hierarchical Navigable Small World graph (Malkov & Yashunin) for approximate top-k search over
+// unit-length vectors. All vectors live back to back in one float[], so scoring a node touches a
+// single contiguous slice. Removed entries stay in the graph as tombstones (they still route
+// searches but are never returned) until compact() rebuilds the graph without them.
+public class HnswIndex {
+
+    public record Match(String key, float score) {
+    }
+
+    // Mark arrays are reused across searches instead of allocating a visited set per query
+    private static final ThreadLocal<VisitedSet> VISITED = ThreadLocal.withInitial(VisitedSet::new);
+
+    private final int dimension;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> nodesByKey = new HashMap<>();
+    private float[] vectors;
+    private String[] keys;
+    private int[][][] neighbors;
+    private boolean[] deleted;
+    private int count;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int topLayer = -1;
+
+    public HnswIndex(int dimension, int m, int efConstruction) {
+        this.dimension = dimension;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1 / Math.log(m);
+
+        int initialCapacity = 16;
+        this.vectors = new float[initialCapacity * dimension];
+        this.keys = new String[initialCapacity];
+        this.neighbors = new int[initialCapacity][][];
+        this.deleted = new boolean[initialCapacity];
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return count - deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDeletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Inserts a unit-length vector; re-adding a key replaces its previous vector
+    public void add(String key, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions but got " + vector.length);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesByKey.get(key);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+
+            int node = count;
+            ensureCapacity(node + 1);
+            count++;
+            System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+            keys[node] = key;
+            nodesByKey.put(key, node);
+
+            int level = randomLevel();
+            neighbors[node] = new int[level + 1][];
+            for (int layer = 0; layer <= level; layer++) {
+                neighbors[node][layer] = new int[0];
+            }
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                topLayer = level;
+                return;
+            }
+
+            int offset = node * dimension;
+            int current = entryPoint;
+            for (int layer = topLayer; layer > level; layer--) {
+                current = greedyClosest(vectors, offset, current, layer);
+            }
+            for (int layer = Math.min(level, topLayer); layer >= 0; layer--) {
+                NodeHeap found = searchLayer(vectors, offset, current, efConstruction, layer, node);
+                if (found.size() == 0) {
+                    continue;
+                }
+                int[] ids = new int[found.size()];
+                float[] scores = new float[found.size()];
+                found.drainDescending(ids, scores);
+
+                int[] selected = selectNeighbors(ids, scores, ids.length, maxNeighbors(layer));
+                neighbors[node][layer] = selected;
+                for (int neighbor : selected) {
+                    connect(neighbor, node, layer);
+                }
+                current = ids[0];
+            }
+
+            if (level > topLayer) {
+                topLayer = level;
+                entryPoint = node;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodesByKey.remove(key);
+            if (node == null) {
+                return false;
+            }
+            markDeleted(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Exact similarity of one entry to the query; NaN if the key isn't indexed
+    public float similarity(String key, float[] query) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesByKey.get(key);
+            return node == null ? Float.NaN : VectorMath.dot(query, 0, vectors, node * dimension, dimension);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Top-k entries by cosine similarity, best first. Larger ef trades latency for recall.
+    public List<Match> search(float[] query, int k, int ef) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions but got " + query.length);
+        }
+
+        lock.readLock().lock();
+        try {
+            if (count == deletedCount || k <= 0) {
+                return List.of();
+            }
+
+            NodeHeap results;
+            if (count <= ef) {
+                // A graph walk would visit nearly everything anyway
+                results = new NodeHeap(k + 1, false);
+                for (int node = 0; node < count; node++) {
+                    if (!deleted[node]) {
+                        offerBounded(results, node, VectorMath.dot(query, 0, vectors, node * dimension, dimension), k);
+                    }
+                }
+            } else {
+                int current = entryPoint;
+                for (int layer = topLayer; layer > 0; layer--) {
+                    current = greedyClosest(query, 0, current, layer);
+                }
+                results = searchLayer(query, 0, current, Math.max(ef, k), 0, -1);
+                while (results.size() > k) {
+                    results.pop();
+                }
+            }
+
+            int[] ids = new int[results.size()];
+            float[] scores = new float[results.size()];
+            results.drainDescending(ids, scores);
+            List<Match> matches = new ArrayList<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                matches.add(new Match(keys[ids[i]], scores[i]));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A fresh graph holding only the live entries
+    public HnswIndex compact() {
+        lock.readLock().lock();
+        try {
+            HnswIndex compacted = new HnswIndex(dimension, m, efConstruction);
+            for (int node = 0; node < count; node++) {
+                if (!deleted[node]) {
+                    compacted.add(keys[node], Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension));
+                }
+            }
+            return compacted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void markDeleted(int node) {
+        if (!deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    private int maxNeighbors(int layer) {
+        return layer == 0 ? m * 2 : m;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * levelMultiplier);
+    }
+
+    private float similarity(int a, int b) {
+        return VectorMath.dot(vectors, a * dimension, vectors, b * dimension, dimension);
+    }
+
+    private int greedyClosest(float[] query, int queryOffset, int start, int layer) {
+        int current = start;
+        float best = VectorMath.dot(query, queryOffset, vectors, current * dimension, dimension);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : neighbors[current][layer]) {
+                float score = VectorMath.dot(query, queryOffset, vectors, neighbor * dimension, dimension);
+                if (score > best) {
+                    best = score;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Best-first search of one layer; returns up to ef live nodes in a min-heap (worst on top).
+    // Tombstones are expanded so the graph stays connected, but never enter the results.
+    private NodeHeap searchLayer(float[] query, int queryOffset, int start, int ef, int layer, int exclude) {
+        VisitedSet visited = VISITED.get();
+        visited.reset(count);
+
+        NodeHeap candidates = new NodeHeap(ef * 2, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+
+        float startScore = VectorMath.dot(query, queryOffset, vectors, start * dimension, dimension);
+        visited.visit(start);
+        candidates.push(start, startScore);
+        if (!deleted[start] && start != exclude) {
+            results.push(start, startScore);
+        }
+
+        while (candidates.size() > 0) {
+            if (results.size() >= ef && candidates.peekScore() < results.peekScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            for (int neighbor : neighbors[candidate][layer]) {
+                if (!visited.visit(neighbor)) {
+                    continue;
+                }
+                float score = VectorMath.dot(query, queryOffset, vectors, neighbor * dimension, dimension);
+                if (results.size() < ef || score > results.peekScore()) {
+                    candidates.push(neighbor, score);
+                    if (!deleted[neighbor] && neighbor != exclude) {
+                        offerBounded(results, neighbor, score, ef);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static void offerBounded(NodeHeap results, int node, float score, int limit) {
+        if (results.size() < limit) {
+            results.push(node, score);
+        } else if (score > results.peekScore()) {
+            results.pop();
+            results.push(node, score);
+        }
+    }
+
+    // Neighbor selection heuristic from the paper: skip a candidate that is closer to an already
+    // selected neighbor than to the base node, which keeps links spread across clusters. Pruned
+    // candidates fill any remaining slots.
+    private int[] selectNeighbors(int[] ids, float[] scores, int length, int max) {
+        int[] selected = new int[Math.min(max, length)];
+        int[] pruned = new int[length];
+        int selectedCount = 0;
+        int prunedCount = 0;
+
+        for (int i = 0; i < length && selectedCount < max; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < selectedCount; j++) {
+                if (similarity(ids[i], selected[j]) > scores[i]) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[selectedCount++] = ids[i];
+            } else {
+                pruned[prunedCount++] = ids[i];
+            }
+        }
+        for (int i = 0; i < prunedCount && selectedCount < selected.length; i++) {
+            selected[selectedCount++] = pruned[i];
+        }
+        return selectedCount == selected.length ? selected : Arrays.copyOf(selected, selectedCount);
+    }
+
+    private void connect(int from, int to, int layer) {
+        int[] current = neighbors[from][layer];
+        int max = maxNeighbors(layer);
+        if (current.length < max) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = to;
+            neighbors[from][layer] = grown;
+            return;
+        }
+
+        // Full: re-select the best max out of the existing links plus the new one
+        int length = current.length + 1;
+        int[] ids = Arrays.copyOf(current, length);
+        ids[current.length] = to;
+        float[] scores = new float[length];
+        for (int i = 0; i < length; i++) {
+            scores[i] = similarity(from, ids[i]);
+        }
+        sortDescending(ids, scores, length);
+        neighbors[from][layer] = selectNeighbors(ids, scores, length, max);
+    }
+
+    // Insertion sort; neighbor lists are only a few dozen entries long
+    private static void sortDescending(int[] ids, float[] scores, int length) {
+        for (int i = 1; i < length; i++) {
+            int id = ids[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                ids[j + 1] = ids[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            scores[j + 1] = score;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= keys.length) {
+            return;
+        }
+        int capacity = Math.max(required, keys.length * 2);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        keys = Arrays.copyOf(keys, capacity);
+        neighbors = Arrays.copyOf(neighbors, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    // Binary heap of (node, score) pairs on parallel primitive arrays
+    private static final class NodeHeap {
+        private final boolean maxHeap;
+        private int[] ids;
+        private float[] scores;
+        private int size;
+
+        NodeHeap(int capacity, boolean maxHeap) {
+            this.maxHeap = maxHeap;
+            this.ids = new int[Math.max(capacity, 4)];
+            this.scores = new float[ids.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(int id, float score) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                ids[i] = ids[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            ids[i] = id;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = ids[0];
+            size--;
+            if (size > 0) {
+                int id = ids[size];
+                float score = scores[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                        child++;
+                    }
+                    if (!before(scores[child], score)) {
+                        break;
+                    }
+                    ids[i] = ids[child];
+                    scores[i] = scores[child];
+                    i = child;
+                }
+                ids[i] = id;
+                scores[i] = score;
+            }
+            return top;
+        }
+
+        // Empties a min-heap into the arrays ordered best first
+        void drainDescending(int[] outIds, float[] outScores) {
+            for (int i = size - 1; i >= 0; i--) {
+                outScores[i] = peekScore();
+                outIds[i] = pop();
+            }
+        }
+
+        private boolean before(float a, float b) {
+            return maxHeap ? a > b : a < b;
+        }
+    }
+
+    private static final class VisitedSet {
+        private int[] marks = new int[0];
+        private int generation;
+
+        void reset(int nodes) {
+            if (marks.length < nodes) {
+                marks = new int[Math.max(nodes, marks.length * 2)];
+                generation = 0;
+            }
+            generation++;
+            if (generation == 0) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        // False if the node was already visited in this search
+        boolean visit(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.project.googledrive.util;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+// Encrypts and decrypts the segmented format on a bounded ForkJoinPool. The caller's thread
+// does the sequential I/O, runs of segments are sealed or opened concurrently, and the results
+// are handed back strictly in order, so memory stays bounded by the number of runs in flight.
+// That number comes from a fixed byte budget per stream, not the core count, so a many-core host
+// doesn't hold tens of MiB for every concurrent upload.
+@Component
+public class ParallelEncryptionEngine {
+
+    // 16 x 64 KiB = 1 MiB of plaintext per task keeps scheduling overhead negligible
+    private static final int SEGMENTS_PER_TASK = 16;
+    // A run in flight holds its input and its output
+    private static final long BYTES_PER_TASK = 2L * SEGMENTS_PER_TASK * EncryptionUtil.SEGMENT_SIZE;
+
+    private final ForkJoinPool pool;
+    private final int maxTasksInFlight;
+    private final long parallelThreshold;
+
+    public ParallelEncryptionEngine(@Value("${encryption.parallelism:0}") int parallelism,
+                                    @Value("${encryption.parallel-threshold:4194304}") long parallelThreshold,
+                                    @Value("${encryption.max-in-flight-bytes:8388608}") long maxInFlightBytes) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(threads);
+        // Never fewer than one run, and more than two per thread would only queue
+        this.maxTasksInFlight = (int) Math.max(1, Math.min(threads * 2L, maxInFlightBytes / BYTES_PER_TASK));
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    int getMaxTasksInFlight() {
+        return maxTasksInFlight;
+    }
+
+    // Same output as EncryptionUtil.encryptingStream; small payloads stay on the calling thread
+    public InputStream encryptingStream(InputStream plaintext, long plaintextLength, String key) {
+        if (plaintextLength < parallelThreshold) {
+            return EncryptionUtil.encryptingStream(plaintext, key);
+        }
+        return new ParallelEncryptingStream(plaintext, plaintextLength, EncryptionUtil.toSecretKey(key));
+    }
+
+    // Same contract as EncryptionUtil.decryptingRangeStream
+    public InputStream decryptingRangeStream(InputStream segments, byte[] header, String key,
+                                             long plaintextStart, long plaintextEnd,
+                                             long plaintextLength) throws IOException {
+        if (plaintextEnd - plaintextStart + 1 < parallelThreshold) {
+            return EncryptionUtil.decryptingRangeStream(segments, header, key, plaintextStart, plaintextEnd, plaintextLength);
+        }
+        EncryptionUtil.validateHeader(header);
+
+        long firstSegment = plaintextStart / EncryptionUtil.SEGMENT_SIZE;
+        InputStream plaintext = new ParallelDecryptingStream(segments, header, EncryptionUtil.toSecretKey(key),
+                firstSegment, plaintextEnd / EncryptionUtil.SEGMENT_SIZE, EncryptionUtil.segmentCount(plaintextLength) - 1,
+                plaintextLength);
+        plaintext.skipNBytes(plaintextStart - firstSegment * EncryptionUtil.SEGMENT_SIZE);
+        return new BoundedInputStream(plaintext, plaintextEnd - plaintextStart + 1);
+    }
+
+    // Plaintext length of a segment; only the final segment may be short (or empty)
+    private static int segmentLength(long segmentIndex, long finalSegment, long plaintextLength) {
+        return segmentIndex < finalSegment
+                ? EncryptionUtil.SEGMENT_SIZE
+                : (int) (plaintextLength - finalSegment * EncryptionUtil.SEGMENT_SIZE);
+    }
+
+    // Shared in-order draining of completed tasks
+    private abstract class OrderedTaskStream extends InputStream {
+
+        private final ArrayDeque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+        private byte[] current;
+        private int position;
+
+        // prefix is returned before any task output, e.g. the ciphertext header
+        OrderedTaskStream(byte[] prefix) {
+            this.current = prefix;
+        }
+
+        // Reads the input for the next run and submits it; returns false when there is nothing left
+        protected abstract boolean submitNext() throws IOException;
+
+        protected void submit(CallableTask task) {
+            inFlight.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.call();
+                } catch (GeneralSecurityException e) {
+                    throw new CompletionException(e);
+                }
+            }, pool));
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                while (inFlight.size() < maxTasksInFlight && submitNext()) {
+                    // keep the pool busy
+                }
+                if (inFlight.isEmpty()) {
+                    return -1;
+                }
+                current = await(inFlight.poll());
+                position = 0;
+            }
+            int n = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        protected void cancelAll() {
+            inFlight.forEach(future -> future.cancel(false));
+            inFlight.clear();
+        }
+
+        private byte[] await(CompletableFuture<byte[]> future) throws IOException {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                cancelAll();
+                throw new IOException("Parallel segment crypto failed", e.getCause());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface CallableTask {
+        byte[] call() throws GeneralSecurityException;
+    }
+
+    private class ParallelEncryptingStream extends OrderedTaskStream {
+
+        private final InputStream plaintext;
+        private final long plaintextLength;
+        private final SecretKey key;
+        private final byte[] header;
+        private final long finalSegment;
+        private long nextSegment;
+
+        ParallelEncryptingStream(InputStream plaintext, long plaintextLength, SecretKey key) {
+            this(plaintext, plaintextLength, key, EncryptionUtil.newHeader());
+        }
+
+        private ParallelEncryptingStream(InputStream plaintext, long plaintextLength, SecretKey key, byte[] header) {
+            super(header.clone());
+            this.header = header;
+            this.plaintext = plaintext;
+            this.plaintextLength = plaintextLength;
+            this.key = key;
+            this.finalSegment = EncryptionUtil.segmentCount(plaintextLength) - 1;
+        }
+
+        @Override
+        protected boolean submitNext() throws IOException {
+            if (nextSegment > finalSegment) {
+                return false;
+            }
+
+            long first = nextSegment;
+            long last = Math.min(finalSegment, first + SEGMENTS_PER_TASK - 1);
+            int length = 0;
+            for (long i = first; i <= last; i++) {
+                length += segmentLength(i, finalSegment, plaintextLength);
+            }
+            byte[] input = plaintext.readNBytes(length);
+            if (input.length != length) {
+                throw new IOException("Plaintext ended " + (length - input.length) + " bytes early");
+            }
+            nextSegment = last + 1;
+
+            submit(() -> {
+                byte[] output = new byte[input.length + (int) (last - first + 1) * EncryptionUtil.TAG_SIZE];
+                int in = 0;
+                int out = 0;
+                for (long i = first; i <= last; i++) {
+                    int segmentLength = segmentLength(i, finalSegment, plaintextLength);
+                    byte[] sealed = EncryptionUtil.encryptSegment(key, header, i, i == finalSegment, input, in, segmentLength);
+                    System.arraycopy(sealed, 0, output, out, sealed.length);
+                    in += segmentLength;
+                    out += sealed.length;
+                }
+                return output;
+            });
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            cancelAll();
+            plaintext.close();
+        }
+    }
+
+    private class ParallelDecryptingStream extends OrderedTaskStream {
+
+        private final InputStream segments;
+        private final byte[] header;
+        private final SecretKey key;
+        private final long lastNeededSegment;
+        private final long finalSegment;
+        private final long plaintextLength;
+        private long nextSegment;
+
+        ParallelDecryptingStream(InputStream segments, byte[] header, SecretKey key, long firstSegment,
+                                 long lastNeededSegment, long finalSegment, long plaintextLength) {
+            super(new byte[0]);
+            this.segments = segments;
+            this.header = header;
+            this.key = key;
+            this.nextSegment = firstSegment;
+            this.lastNeededSegment = lastNeededSegment;
+            this.finalSegment = finalSegment;
+            this.plaintextLength = plaintextLength;
+        }
+
+        @Override
+        protected boolean submitNext() throws IOException {
+            if (nextSegment > lastNeededSegment) {
+                return false;
+            }
+
+            long first = nextSegment;
+            long last = Math.min(lastNeededSegment, first + SEGMENTS_PER_TASK - 1);
+            int length = 0;
+            for (long i = first; i <= last; i++) {
+                length += segmentLength(i, finalSegment, plaintextLength) + EncryptionUtil.TAG_SIZE;
+            }
+            byte[] input = segments.readNBytes(length);
+            if (input.length != length) {
+                throw new IOException("Truncated ciphertext before segment " + last);
+            }
+            nextSegment = last + 1;
+
+            submit(() -> {
+                byte[] output = new byte[input.length - (int) (last - first + 1) * EncryptionUtil.TAG_SIZE];
+                int in = 0;
+                int out = 0;
+                for (long i = first; i <= last; i++) {
+                    int sealedLength = segmentLength(i, finalSegment, plaintextLength) + EncryptionUtil.TAG_SIZE;
+                    byte[] opened = EncryptionUtil.decryptSegment(key, header, i, i == finalSegment, input, in, sealedLength);
+                    System.arraycopy(opened, 0, output, out, opened.length);
+                    in += sealedLength;
+                    out += opened.length;
+                }
+                return output;
+            });
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            cancelAll();
+            segments.close();
+        }
+    }
+}
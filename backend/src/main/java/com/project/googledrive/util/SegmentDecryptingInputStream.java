@@ -0,0 +1,79 @@
+package com.project.googledrive.util;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+// Opens consecutive segments of a segmented ciphertext, starting at firstSegment, as a plaintext stream
+class SegmentDecryptingInputStream extends InputStream {
+
+    private final InputStream segments;
+    private final SecretKey key;
+    private final byte[] header;
+    private final long finalSegment;
+    private final byte[] segmentBuffer = new byte[EncryptionUtil.SEGMENT_SIZE + EncryptionUtil.TAG_SIZE];
+
+    private byte[] current = new byte[0];
+    private int position;
+    private long segmentIndex;
+
+    SegmentDecryptingInputStream(InputStream segments, SecretKey key, byte[] header, long firstSegment, long finalSegment) {
+        this.segments = segments;
+        this.key = key;
+        this.header = header;
+        this.segmentIndex = firstSegment;
+        this.finalSegment = finalSegment;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == current.length) {
+            if (!openNextSegment()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        if (segmentIndex > finalSegment) {
+            return false;
+        }
+        int read = segments.readNBytes(segmentBuffer, 0, segmentBuffer.length);
+        if (read == 0) {
+            // A ranged read may legitimately stop before the final segment
+            return false;
+        }
+        boolean last = segmentIndex == finalSegment;
+        if (!last && read != segmentBuffer.length) {
+            throw new IOException("Truncated ciphertext in segment " + segmentIndex);
+        }
+
+        try {
+            current = EncryptionUtil.decryptSegment(key, header, segmentIndex, last, segmentBuffer, 0, read);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Segment " + segmentIndex + " failed authentication", e);
+        }
+        position = 0;
+        segmentIndex++;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        segments.close();
+    }
+}
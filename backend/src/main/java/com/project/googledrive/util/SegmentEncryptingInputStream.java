@@ -0,0 +1,75 @@
+package com.project.googledrive.util;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+// Produces the segmented ciphertext (header, then one sealed segment at a time) of the wrapped plaintext stream
+class SegmentEncryptingInputStream extends InputStream {
+
+    private final InputStream plaintext;
+    private final SecretKey key;
+    private final byte[] header;
+    private final byte[] segmentBuffer = new byte[EncryptionUtil.SEGMENT_SIZE];
+
+    private byte[] current;
+    private int position;
+    private long segmentIndex;
+    private int lookahead = -1;
+    private boolean finished;
+
+    SegmentEncryptingInputStream(InputStream plaintext, SecretKey key, byte[] header) {
+        this.plaintext = plaintext;
+        this.key = key;
+        this.header = header;
+        this.current = header.clone();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (position == current.length) {
+            if (finished) {
+                return -1;
+            }
+            sealNextSegment();
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    // Reads one segment of plaintext plus a single byte of lookahead to learn whether it is the last one
+    private void sealNextSegment() throws IOException {
+        int filled = 0;
+        if (lookahead >= 0) {
+            segmentBuffer[filled++] = (byte) lookahead;
+        }
+        filled += plaintext.readNBytes(segmentBuffer, filled, segmentBuffer.length - filled);
+        lookahead = filled == segmentBuffer.length ? plaintext.read() : -1;
+        boolean last = lookahead < 0;
+
+        try {
+            current = EncryptionUtil.encryptSegment(key, header, segmentIndex++, last, segmentBuffer, 0, filled);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to encrypt segment " + (segmentIndex - 1), e);
+        }
+        position = 0;
+        finished = last;
+    }
+
+    @Override
+    public void close() throws IOException {
+        plaintext.close();
+    }
+}
@@ -0,0 +1,44 @@
+package com.project.googledrive.util;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Client-side rate limit: holds up to `capacity` tokens and refills continuously at `capacity`
+// per period. A caller short of tokens reserves them and sleeps until the refill covers its
+// share, so waiting callers are served in arrival order instead of all retrying at once.
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    // Negative while callers are waiting on reserved tokens
+    private double tokens;
+    private long refilledAt;
+
+    public TokenBucket(long capacity, Duration period) {
+        this.capacity = capacity;
+        this.refillPerNano = capacity / (double) period.toNanos();
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+    }
+
+    // Takes n tokens (at most a full bucket), waiting up to maxWaitMs for them. Returns false
+    // without taking any if the wait would be longer.
+    public boolean acquire(long n, long maxWaitMs) throws InterruptedException {
+        double wanted = Math.min(n, capacity);
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+            waitNanos = tokens >= wanted ? 0 : (long) Math.ceil((wanted - tokens) / refillPerNano);
+            if (waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMs)) {
+                return false;
+            }
+            tokens -= wanted;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+}
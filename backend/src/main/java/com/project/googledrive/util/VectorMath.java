@@ -0,0 +1,53 @@
+package com.project.googledrive.util;
+
+// Primitive, allocation-free vector kernels for similarity search.
+//
+// The loops keep four independent accumulators: a single running float sum forces every add to
+// wait for the previous one, while four chains let the JIT overlap them and unroll the loop.
+// (The JDK Vector API would go further, but it is still an incubator module on Java 17.)
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return dot(a, 0, b, 0, a.length);
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        float s0 = 0f;
+        float s1 = 0f;
+        float s2 = 0f;
+        float s3 = 0f;
+        int i = 0;
+        int bound = dimension & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static float norm(float[] vector) {
+        return (float) Math.sqrt(dot(vector, vector));
+    }
+
+    // Cosine similarity with both norms precomputed; 0 for mismatched or zero vectors
+    public static double cosine(float[] a, float normA, float[] b, float normB) {
+        if (a.length != b.length || normA == 0f || normB == 0f) {
+            return 0.0;
+        }
+        return dot(a, b) / ((double) normA * normB);
+    }
+
+    public static void scale(float[] vector, float factor) {
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= factor;
+        }
+    }
+}
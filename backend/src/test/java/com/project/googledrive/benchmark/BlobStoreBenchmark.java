@@ -0,0 +1,117 @@
+package com.project.googledrive.benchmark;
+
+import com.project.googledrive.service.BlobStore;
+import com.project.googledrive.service.InMemoryBlobStore;
+import com.project.googledrive.service.LocalBlobStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Write and read throughput of the BlobStore backends that run without a network (S3 needs a
+// bucket and mostly measures the link). Scores are milliseconds per operation;
+// MB/s = 1000 * sizeMb / score for write and readAll. readSegment reads one random
+// 64 KiB range, the access pattern of seeking in a video.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.BlobStoreBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class BlobStoreBenchmark {
+
+    private static final int RANGE_SIZE = 64 * 1024;
+
+    @Param({ "memory", "local" })
+    private String backend;
+
+    @Param({ "8", "256" })
+    private int sizeMb;
+
+    private Path root;
+    private BlobStore store;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        content = new byte[sizeMb * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        if (backend.equals("local")) {
+            root = Files.createTempDirectory("blobstore-bench");
+            store = new LocalBlobStore(root.toString());
+        } else {
+            store = new InMemoryBlobStore();
+        }
+        store.upload("object", new ByteArrayInputStream(content), content.length, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (root != null) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void write() throws Exception {
+        store.upload("written", new ByteArrayInputStream(content), content.length, null);
+    }
+
+    @Benchmark
+    public long readAll() throws Exception {
+        return drain(store.openRange("object", 0, content.length - 1));
+    }
+
+    @Benchmark
+    public long readSegment() throws Exception {
+        long start = ThreadLocalRandom.current().nextLong(content.length - RANGE_SIZE);
+        return drain(store.openRange("object", start, start + RANGE_SIZE - 1));
+    }
+
+    // Copies into a buffer the way the decrypting stream reads; ByteArrayInputStream would
+    // otherwise hand its array to the null stream without copying anything
+    private static long drain(InputStream inputStream) throws Exception {
+        byte[] buffer = new byte[RANGE_SIZE];
+        long total = 0;
+        try (inputStream) {
+            for (int read; (read = inputStream.read(buffer)) != -1; ) {
+                total += read;
+            }
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(BlobStoreBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
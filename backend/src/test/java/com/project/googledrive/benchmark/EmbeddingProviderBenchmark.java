@@ -0,0 +1,78 @@
+package com.project.googledrive.benchmark;
+
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.service.HashingEmbeddingProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// CPU-only throughput of the in-process embedding provider on one thread. Scores are batches per
+// second; texts per second = score * batchSize. 64 characters is a search query, 8000 the text
+// an upload is embedded from.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.EmbeddingProviderBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EmbeddingProviderBenchmark {
+
+    private static final String[] WORDS = ("budget report quarterly design team revenue forecast travel policy "
+            + "invoice payment contract migration cluster incident upload search ranking encryption key "
+            + "customer survey roadmap mobile offline photo backup hiring interview salary leave").split(" ");
+
+    @Param({ "64", "8000" })
+    private int textLength;
+
+    @Param({ "1", "64" })
+    private int batchSize;
+
+    @Param({ "384" })
+    private int dimension;
+
+    private HashingEmbeddingProvider provider;
+    private List<String> texts;
+
+    @Setup
+    public void setUp() {
+        provider = new HashingEmbeddingProvider(dimension);
+        Random random = new Random(11);
+        texts = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            StringBuilder text = new StringBuilder(textLength + 16);
+            while (text.length() < textLength) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            texts.add(text.substring(0, textLength));
+        }
+    }
+
+    @Benchmark
+    public List<Embedding> embed() {
+        return provider.embed(texts);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EmbeddingProviderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,122 @@
+package com.project.googledrive.benchmark;
+
+import com.project.googledrive.util.EncryptionUtil;
+import com.project.googledrive.util.ParallelEncryptionEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Compares the legacy single-Cipher AES/ECB path with the segmented format, sequential and parallel.
+// Scores are milliseconds per operation; MB/s = 1000 * sizeMb / score.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.EncryptionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class EncryptionBenchmark {
+
+    @Param({ "1", "100", "1024" })
+    private int sizeMb;
+
+    private String key;
+    private byte[] plaintext;
+    private byte[] legacyCiphertext;
+    private byte[] segmentedCiphertext;
+    private byte[] header;
+    private ParallelEncryptionEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        key = EncryptionUtil.generateKey();
+        plaintext = new byte[sizeMb * 1024 * 1024];
+        new Random(42).nextBytes(plaintext);
+
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, EncryptionUtil.toSecretKey(key));
+        legacyCiphertext = cipher.doFinal(plaintext);
+
+        segmentedCiphertext = EncryptionUtil.encrypt(plaintext, key);
+        header = Arrays.copyOf(segmentedCiphertext, EncryptionUtil.HEADER_SIZE);
+        engine = new ParallelEncryptionEngine(0, 0, 8 << 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public byte[] legacyEncrypt() throws Exception {
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, EncryptionUtil.toSecretKey(key));
+        return cipher.doFinal(plaintext);
+    }
+
+    @Benchmark
+    public byte[] legacyDecrypt() throws Exception {
+        return EncryptionUtil.decryptLegacy(legacyCiphertext, key);
+    }
+
+    @Benchmark
+    public long segmentedEncrypt() throws Exception {
+        return drain(EncryptionUtil.encryptingStream(new ByteArrayInputStream(plaintext), key));
+    }
+
+    @Benchmark
+    public long segmentedDecrypt() throws Exception {
+        return drain(EncryptionUtil.decryptingRangeStream(segments(), header, key,
+                0, plaintext.length - 1, plaintext.length));
+    }
+
+    @Benchmark
+    public long parallelEncrypt() throws Exception {
+        return drain(engine.encryptingStream(new ByteArrayInputStream(plaintext), plaintext.length, key));
+    }
+
+    @Benchmark
+    public long parallelDecrypt() throws Exception {
+        return drain(engine.decryptingRangeStream(segments(), header, key,
+                0, plaintext.length - 1, plaintext.length));
+    }
+
+    private InputStream segments() {
+        return new ByteArrayInputStream(segmentedCiphertext, EncryptionUtil.HEADER_SIZE,
+                segmentedCiphertext.length - EncryptionUtil.HEADER_SIZE);
+    }
+
+    private static long drain(InputStream inputStream) throws Exception {
+        try (inputStream) {
+            return inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(EncryptionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
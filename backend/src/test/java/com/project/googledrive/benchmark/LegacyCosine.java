@@ -0,0 +1,28 @@
+package com.project.googledrive.benchmark;
+
+import java.util.List;
+
+// The similarity kernel semantic search used before embeddings became float[]; kept as a baseline
+final class LegacyCosine {
+
+    private LegacyCosine() {
+    }
+
+    static double similarity(List<Double> embedding1, List<Double> embedding2) {
+        if (embedding1.size() != embedding2.size()) {
+            return 0.0;
+        }
+
+        double dotProduct = 0.0;
+        double norm1 = 0.0;
+        double norm2 = 0.0;
+
+        for (int i = 0; i < embedding1.size(); i++) {
+            dotProduct += embedding1.get(i) * embedding2.get(i);
+            norm1 += Math.pow(embedding1.get(i), 2);
+            norm2 += Math.pow(embedding2.get(i), 2);
+        }
+
+        return dotProduct / (Math.sqrt(norm1) * Math.sqrt(norm2));
+    }
+}
@@ -0,0 +1,181 @@
+package com.project.googledrive.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.googledrive.dto.SearchHit;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.service.FullTextIndexService;
+import com.project.googledrive.service.HashingEmbeddingProvider;
+import com.project.googledrive.service.HybridSearchService;
+import com.project.googledrive.service.QueryEmbeddingCache;
+import com.project.googledrive.service.VectorIndexService;
+import com.project.googledrive.util.HnswIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Offline relevance and latency of keyword, vector and hybrid search over a small judged corpus
+// (src/test/resources/search-benchmark/corpus.json). Reports MRR@10, nDCG@10 and recall@10 per
+// retriever, then p50/p95 latency per query. It runs offline, so the vector side uses the
+// in-process HashingEmbeddingProvider instead of OpenAI: it catches typos and word forms but not
+// paraphrases, so absolute numbers are a floor and the comparison is the point.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.SearchRelevanceBenchmark
+public class SearchRelevanceBenchmark {
+
+    private static final String USER = "bench@example.com";
+    private static final int DEPTH = 10;
+    private static final double MIN_SIMILARITY = 0.1;
+    private static final int LATENCY_ROUNDS = 200;
+
+    record Document(String id, String name, List<String> keywords, String summary, String text) {
+    }
+
+    record Judged(String query, List<String> relevant) {
+    }
+
+    record Corpus(List<Document> documents, List<Judged> queries) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Corpus corpus;
+        try (InputStream in = SearchRelevanceBenchmark.class.getResourceAsStream("/search-benchmark/corpus.json")) {
+            corpus = new ObjectMapper().readValue(in, Corpus.class);
+        }
+
+        Map<String, FileMetadata> files = new LinkedHashMap<>();
+        for (Document document : corpus.documents()) {
+            FileMetadata file = new FileMetadata();
+            file.setId(document.id());
+            file.setOwnerEmail(USER);
+            file.setOriginalFileName(document.name());
+            file.setKeywords(document.keywords());
+            file.setSummary(document.summary());
+            file.setSharedWith(new ArrayList<>());
+            files.put(document.id(), file);
+        }
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findOne(any(Query.class), eq(FileMetadata.class)))
+                .thenAnswer(invocation -> files.get(invocation.getArgument(0, Query.class).getQueryObject().get("_id")));
+        when(mongoTemplate.find(any(Query.class), eq(FileMetadata.class))).thenReturn(List.copyOf(files.values()));
+        HashingEmbeddingProvider embeddingProvider = new HashingEmbeddingProvider(512);
+
+        Path indexPath = Files.createTempDirectory("search-benchmark");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FullTextIndexService fullText = new FullTextIndexService(mongoTemplate, indexPath.toString(), 100_000);
+        VectorIndexService vectors = new VectorIndexService(mongoTemplate, embeddingProvider, 16, 200, 64, 0.25);
+        QueryEmbeddingCache queryEmbeddings = new QueryEmbeddingCache(embeddingProvider, 10_000, 1440, "");
+        HybridSearchService hybrid = new HybridSearchService(fullText, vectors, queryEmbeddings, mongoTemplate,
+                meterRegistry, 60, 100, MIN_SIMILARITY, 5000, 4);
+        try {
+            for (Document document : corpus.documents()) {
+                fullText.index(document.id(), document.text());
+                String all = String.join(" ", document.name(), String.join(" ", document.keywords()),
+                        document.summary(), document.text());
+                vectors.index(document.id(), USER, List.of(), embeddingProvider.embed(all));
+            }
+
+            Map<String, Function<String, List<String>>> retrievers = new LinkedHashMap<>();
+            retrievers.put("keyword", query -> fullText.search(USER, query, DEPTH).stream()
+                    .map(FullTextIndexService.Hit::fileId).toList());
+            retrievers.put("vector", query -> vectors.search(USER, queryEmbeddings.getEmbedding(query), DEPTH, MIN_SIMILARITY)
+                    .stream().map(HnswIndex.Match::key).toList());
+            retrievers.put("hybrid", query -> hybrid.search(USER, query, DEPTH, null).getResults().stream()
+                    .map(SearchHit::getFile).map(file -> file.getId()).toList());
+
+            System.out.println(corpus.documents().size() + " documents, " + corpus.queries().size() + " judged queries");
+            System.out.printf("%-8s %8s %8s %10s %10s %10s%n", "", "MRR@10", "nDCG@10", "recall@10", "p50 us", "p95 us");
+            for (Map.Entry<String, Function<String, List<String>>> retriever : retrievers.entrySet()) {
+                double mrr = 0;
+                double ndcg = 0;
+                double recall = 0;
+                for (Judged judged : corpus.queries()) {
+                    List<String> ranked = retriever.getValue().apply(judged.query());
+                    Set<String> relevant = new HashSet<>(judged.relevant());
+                    mrr += reciprocalRank(ranked, relevant);
+                    ndcg += ndcg(ranked, relevant);
+                    recall += ranked.stream().filter(relevant::contains).count() / (double) relevant.size();
+                }
+                long[] latencies = latencies(retriever.getValue(), corpus.queries());
+                int n = corpus.queries().size();
+                System.out.printf("%-8s %8.3f %8.3f %10.3f %10d %10d%n", retriever.getKey(), mrr / n, ndcg / n,
+                        recall / n, percentile(latencies, 0.50), percentile(latencies, 0.95));
+            }
+        } finally {
+            hybrid.shutdown();
+            fullText.close();
+            try (Stream<Path> paths = Files.walk(indexPath)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static double reciprocalRank(List<String> ranked, Set<String> relevant) {
+        for (int i = 0; i < ranked.size(); i++) {
+            if (relevant.contains(ranked.get(i))) {
+                return 1.0 / (i + 1);
+            }
+        }
+        return 0;
+    }
+
+    // Binary gains: every judged document counts the same
+    private static double ndcg(List<String> ranked, Set<String> relevant) {
+        double dcg = 0;
+        for (int i = 0; i < ranked.size(); i++) {
+            if (relevant.contains(ranked.get(i))) {
+                dcg += 1 / log2(i + 2);
+            }
+        }
+        double ideal = 0;
+        for (int i = 0; i < Math.min(relevant.size(), DEPTH); i++) {
+            ideal += 1 / log2(i + 2);
+        }
+        return dcg / ideal;
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    // Microseconds per query, after a warm-up round over every query
+    private static long[] latencies(Function<String, List<String>> retriever, List<Judged> queries) {
+        queries.forEach(judged -> retriever.apply(judged.query()));
+        long[] latencies = new long[LATENCY_ROUNDS * queries.size()];
+        int next = 0;
+        for (int round = 0; round < LATENCY_ROUNDS; round++) {
+            for (Judged judged : queries) {
+                long started = System.nanoTime();
+                retriever.apply(judged.query());
+                latencies[next++] = (System.nanoTime() - started) / 1000;
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))];
+    }
+}
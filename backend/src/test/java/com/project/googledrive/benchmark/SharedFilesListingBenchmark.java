@@ -0,0 +1,108 @@
+package com.project.googledrive.benchmark;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.project.googledrive.model.FileMetadata;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// "Shared with me" latency as the files collection grows: the old findAll() + Java filter
+// against the indexed sharedWith query. Needs a real MongoDB; it works in a throwaway database
+// and drops it afterwards.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.SharedFilesListingBenchmark
+//           -Dbenchmark.mongo.uri=mongodb://localhost:27017 [-Dbenchmark.sizes=10000,100000,1000000]
+public class SharedFilesListingBenchmark {
+
+    private static final String USER = "reader@example.com";
+    private static final int TENANTS = 1000;
+    // The full scan gets too slow to be worth timing past this size
+    private static final long SCAN_LIMIT = 200_000;
+
+    public static void main(String[] args) {
+        String uri = System.getProperty("benchmark.mongo.uri");
+        if (uri == null) {
+            System.err.println("Set -Dbenchmark.mongo.uri to a MongoDB connection string");
+            return;
+        }
+        long[] sizes = Arrays.stream(System.getProperty("benchmark.sizes", "10000,100000,1000000").split(","))
+                .mapToLong(Long::parseLong)
+                .toArray();
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, "sharing_benchmark_" + System.currentTimeMillis());
+            mongoTemplate.indexOps(FileMetadata.class).createIndex(new Index("sharedWith", Sort.Direction.ASC));
+            mongoTemplate.indexOps(FileMetadata.class).createIndex(new Index("ownerEmail", Sort.Direction.ASC));
+
+            try {
+                Random random = new Random(3);
+                long inserted = 0;
+                System.out.printf("%12s %14s %14s %8s%n", "files", "findAll ms", "indexed ms", "matches");
+                for (long size : sizes) {
+                    insert(mongoTemplate, random, inserted, size);
+                    inserted = size;
+
+                    Query shared = new Query(Criteria.where("sharedWith").is(USER));
+                    int matches = mongoTemplate.find(shared, FileMetadata.class).size();
+                    double indexed = medianMillis(() -> mongoTemplate.find(shared, FileMetadata.class));
+                    String scan = size <= SCAN_LIMIT
+                            ? String.format("%14.2f", medianMillis(() -> mongoTemplate.findAll(FileMetadata.class).stream()
+                                    .filter(file -> file.getSharedWith().contains(USER))
+                                    .toList()))
+                            : String.format("%14s", "skipped");
+                    System.out.printf("%12d %s %14.2f %8d%n", size, scan, indexed, matches);
+                }
+            } finally {
+                mongoTemplate.getDb().drop();
+            }
+        }
+    }
+
+    // Roughly 1 in 20 000 files is shared with the reader, so the result size stays small
+    private static void insert(MongoTemplate mongoTemplate, Random random, long from, long to) {
+        List<FileMetadata> batch = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            FileMetadata file = new FileMetadata();
+            file.setFileName("file-" + i);
+            file.setOriginalFileName("file-" + i + ".txt");
+            file.setFileSize(1024);
+            file.setOwnerEmail("owner" + random.nextInt(TENANTS) + "@example.com");
+            file.setUploadedAt(LocalDateTime.now());
+            file.getSharedWith().add("colleague" + random.nextInt(TENANTS) + "@example.com");
+            if (i % 20_000 == 0) {
+                file.getSharedWith().add(USER);
+            }
+            batch.add(file);
+            if (batch.size() == 10_000) {
+                mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FileMetadata.class).insert(batch).execute();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FileMetadata.class).insert(batch).execute();
+        }
+    }
+
+    private static double medianMillis(Runnable query) {
+        query.run();
+        double[] samples = new double[9];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            query.run();
+            samples[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
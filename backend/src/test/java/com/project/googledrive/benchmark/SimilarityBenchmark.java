@@ -0,0 +1,93 @@
+package com.project.googledrive.benchmark;
+
+import com.project.googledrive.model.Embedding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One query scored against a corpus of embeddings: boxed List<Double> with norms recomputed on
+// every comparison, versus float[] with precomputed norms. Scores are microseconds per scan.
+// Run with -prof gc to compare allocation rates.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.SimilarityBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimilarityBenchmark {
+
+    @Param({ "1536" })
+    private int dimension;
+
+    @Param({ "1000" })
+    private int corpusSize;
+
+    private List<Double> legacyQuery;
+    private List<List<Double>> legacyCorpus;
+    private Embedding query;
+    private Embedding[] corpus;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        legacyQuery = randomVector(random);
+        query = Embedding.of(legacyQuery);
+        legacyCorpus = new ArrayList<>(corpusSize);
+        corpus = new Embedding[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            List<Double> vector = randomVector(random);
+            legacyCorpus.add(vector);
+            corpus[i] = Embedding.of(vector);
+        }
+    }
+
+    @Benchmark
+    public double boxedList() {
+        double best = -1;
+        for (List<Double> embedding : legacyCorpus) {
+            best = Math.max(best, LegacyCosine.similarity(legacyQuery, embedding));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public double primitiveFloats() {
+        double best = -1;
+        for (Embedding embedding : corpus) {
+            best = Math.max(best, query.cosineSimilarity(embedding));
+        }
+        return best;
+    }
+
+    private List<Double> randomVector(Random random) {
+        List<Double> vector = new ArrayList<>(dimension);
+        for (int i = 0; i < dimension; i++) {
+            vector.add(random.nextGaussian());
+        }
+        return vector;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(SimilarityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
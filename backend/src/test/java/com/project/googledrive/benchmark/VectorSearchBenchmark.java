@@ -0,0 +1,89 @@
+package com.project.googledrive.benchmark;
+
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.util.HnswIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Top-3 semantic search: the old full scan over List<Double> embeddings versus the HNSW index.
+// Scores are microseconds per query. Building the 100k x 1536 index takes a few minutes.
+//
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.project.googledrive.benchmark.VectorSearchBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class VectorSearchBenchmark {
+
+    @Param({ "100000" })
+    private int vectors;
+
+    @Param({ "1536" })
+    private int dimension;
+
+    private final Random random = new Random(7);
+    private List<List<Double>> embeddings;
+    private HnswIndex index;
+    private List<Double> query;
+    private float[] normalizedQuery;
+
+    @Setup
+    public void setUp() {
+        embeddings = new ArrayList<>(vectors);
+        index = new HnswIndex(dimension, 16, 200);
+        for (int i = 0; i < vectors; i++) {
+            List<Double> embedding = randomEmbedding();
+            embeddings.add(embedding);
+            index.add("file-" + i, Embedding.of(embedding).normalized());
+        }
+        query = randomEmbedding();
+        normalizedQuery = Embedding.of(query).normalized();
+    }
+
+    @Benchmark
+    public double fullScan() {
+        double best = -1;
+        for (List<Double> embedding : embeddings) {
+            best = Math.max(best, LegacyCosine.similarity(query, embedding));
+        }
+        return best;
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match> hnswSearch() {
+        return index.search(normalizedQuery, 3, 64);
+    }
+
+    private List<Double> randomEmbedding() {
+        List<Double> embedding = new ArrayList<>(dimension);
+        for (int i = 0; i < dimension; i++) {
+            embedding.add(random.nextGaussian());
+        }
+        return embedding;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(VectorSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package com.project.googledrive.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EmbeddingTest {
+
+    @Test
+    void roundTripsThroughPackedBytes() {
+        Embedding embedding = Embedding.of(List.of(0.25, -1.5, 3.0, 1e-7, -0.0));
+
+        byte[] bytes = embedding.toBytes();
+        Embedding restored = Embedding.fromBytes(bytes);
+
+        assertEquals(5 * Float.BYTES, bytes.length);
+        assertArrayEquals(embedding.getValues(), restored.getValues());
+        assertEquals(embedding.getNorm(), restored.getNorm());
+    }
+
+    @Test
+    void cosineMatchesTheDoublePrecisionFormula() {
+        List<Double> a = List.of(0.1, 0.7, -0.3, 0.4, 0.9, -0.2, 0.05);
+        List<Double> b = List.of(0.3, 0.5, 0.1, -0.4, 0.8, 0.6, -0.1);
+
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.size(); i++) {
+            dot += a.get(i) * b.get(i);
+            normA += a.get(i) * a.get(i);
+            normB += b.get(i) * b.get(i);
+        }
+        double expected = dot / (Math.sqrt(normA) * Math.sqrt(normB));
+
+        assertEquals(expected, Embedding.of(a).cosineSimilarity(Embedding.of(b)), 1e-6);
+        assertEquals(1.0, Embedding.of(a).cosineSimilarity(Embedding.of(a)), 1e-6);
+    }
+
+    @Test
+    void zeroVectorsHaveNoDirection() {
+        Embedding zero = Embedding.of(List.of(0.0, 0.0));
+
+        assertNull(zero.normalized());
+        assertEquals(0.0, zero.cosineSimilarity(Embedding.of(List.of(1.0, 0.0))));
+    }
+}
@@ -0,0 +1,107 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import com.theokanning.openai.OpenAiError;
+import com.theokanning.openai.OpenAiHttpException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchEmbeddingServiceTest {
+
+    private final EmbeddingProvider embeddingProvider = mock(EmbeddingProvider.class);
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    private BatchEmbeddingService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void start(int maxInputs, int maxTokens) {
+        service = new BatchEmbeddingService(embeddingProvider, maxInputs, maxTokens, 50, 4);
+        service.start();
+    }
+
+    @Test
+    void coalescesTextsIntoBoundedBatchesAndKeepsOrder() throws Exception {
+        when(embeddingProvider.embed(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            batchSizes.add(texts.size());
+            return texts.stream().map(text -> Embedding.of(List.of((double) text.length()))).toList();
+        });
+        start(4, 1000);
+
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            texts.add("x".repeat(i + 1));
+        }
+        List<Embedding> embeddings = service.embedAll(texts);
+
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(new float[] { i + 1 }, embeddings.get(i).getValues());
+        }
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+        assertTrue(batchSizes.size() < 10);
+    }
+
+    @Test
+    void splitsBatchesOnTokenBudget() throws Exception {
+        when(embeddingProvider.embed(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            batchSizes.add(texts.size());
+            return texts.stream().map(text -> Embedding.of(List.of(1.0))).toList();
+        });
+        // Each text is ~101 tokens, so at most one fits in a 150 token batch
+        start(256, 150);
+
+        service.embedAll(List.of("a".repeat(400), "b".repeat(400), "c".repeat(400)));
+
+        assertEquals(List.of(1, 1, 1), batchSizes);
+    }
+
+    @Test
+    void rateLimitedBatchesFailOnceAndShrinkConcurrency() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(embeddingProvider.embed(anyList())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            throw new OpenAiHttpException(
+                    new OpenAiError(new OpenAiError.OpenAiErrorDetails("Rate limit reached", "requests", null, null)), null, 429);
+        });
+        start(256, 1000);
+        int before = service.getCurrentConcurrency();
+
+        // The HTTP client has already retried; a second retry loop here would multiply the attempts
+        ExecutionException e = assertThrows(ExecutionException.class, () -> service.embed("rate limited"));
+
+        assertInstanceOf(OpenAiHttpException.class, e.getCause());
+        assertEquals(1, calls.get());
+        assertTrue(service.getCurrentConcurrency() < before);
+    }
+
+    @Test
+    void failedBatchesYieldNullEntries() throws Exception {
+        when(embeddingProvider.embed(anyList())).thenThrow(new RuntimeException("boom"));
+        start(256, 1000);
+
+        List<Embedding> embeddings = service.embedAll(List.of("one", "two"));
+
+        assertNull(embeddings.get(0));
+        assertNull(embeddings.get(1));
+    }
+}
@@ -0,0 +1,106 @@
+package com.project.googledrive.service;
+
+import com.mongodb.client.result.DeleteResult;
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.util.EncryptionUtil;
+import com.project.googledrive.util.ParallelEncryptionEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BlobServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final ParallelEncryptionEngine engine = new ParallelEncryptionEngine(1, Long.MAX_VALUE, 8 << 20);
+    private final KeyWrappingService keyWrappingService = new KeyWrappingService("MySecretEncryptionKey1234567890");
+    private final BlobService blobService = new BlobService(mongoTemplate, blobStore, engine, keyWrappingService);
+
+    private final byte[] content = "same bytes, uploaded twice".getBytes(StandardCharsets.UTF_8);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void referencesExistingContentWithoutUploading() throws Exception {
+        Blob existing = new Blob();
+        existing.setId("hash");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Blob.class)))
+                .thenReturn(existing);
+
+        Blob blob = blobService.storeOrReference("hash", content.length, "text/plain", new ByteArrayResource(content));
+
+        assertSame(existing, blob);
+        verify(blobStore, never()).upload(anyString(), any(InputStream.class), anyLong(), anyString());
+    }
+
+    @Test
+    void uploadsNewContentEncryptedUnderAWrappedKey() throws Exception {
+        byte[][] uploaded = new byte[1][];
+        doAnswer(invocation -> {
+            uploaded[0] = invocation.<InputStream>getArgument(1).readAllBytes();
+            return null;
+        }).when(blobStore).upload(anyString(), any(InputStream.class), anyLong(), anyString());
+        when(mongoTemplate.insert(any(Blob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        String hash = BlobService.sha256(new ByteArrayInputStream(content));
+        Blob blob = blobService.storeOrReference(hash, content.length, "text/plain", new ByteArrayResource(content));
+
+        assertEquals(1, blob.getRefCount());
+        assertEquals(EncryptionUtil.encryptedLength(content.length), uploaded[0].length);
+        assertArrayEquals(content, EncryptionUtil.decrypt(uploaded[0], blobService.dataKey(blob)));
+    }
+
+    @Test
+    void losingAnUploadRaceDropsTheDuplicateObject() throws Exception {
+        Blob winner = new Blob();
+        winner.setId("hash");
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Blob.class)))
+                .thenReturn(null, winner);
+        when(mongoTemplate.insert(any(Blob.class))).thenThrow(new DuplicateKeyException("dup"));
+
+        Blob blob = blobService.storeOrReference("hash", content.length, "text/plain", new ByteArrayResource(content));
+
+        assertSame(winner, blob);
+        verify(blobStore).delete(any());
+    }
+
+    @Test
+    void collectsTheObjectWithTheLastReference() {
+        Blob released = new Blob();
+        released.setId("hash");
+        released.setS3Key("blobs/hash/1");
+        released.setRefCount(0);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Blob.class)))
+                .thenReturn(released);
+        when(mongoTemplate.remove(any(Query.class), eq(Blob.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        blobService.release("hash");
+
+        verify(blobStore).delete("blobs/hash/1");
+    }
+}
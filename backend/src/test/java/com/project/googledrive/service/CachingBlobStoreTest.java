@@ -0,0 +1,189 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.util.EncryptionUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingBlobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountingStore origin = new CountingStore();
+
+    @Test
+    void rangesAfterTheFirstReadComeFromDisk() throws Exception {
+        CachingBlobStore store = new CachingBlobStore(origin, directory, 1_000_000, 100_000, meterRegistry);
+        byte[] data = put("blobs/a/1", 50_000);
+
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 200), read(store, "blobs/a/1", 100, 199));
+        assertArrayEquals(Arrays.copyOfRange(data, 40_000, 50_000), read(store, "blobs/a/1", 40_000, 49_999));
+        assertArrayEquals(data, read(store, "blobs/a/1", 0, 49_999));
+
+        assertEquals(1, origin.opens.get());
+        assertEquals(50_000, store.cachedBytes());
+        assertEquals(2, counter("storage.cache.requests", "result", "hit"));
+        assertEquals(1, counter("storage.cache.requests", "result", "miss"));
+        assertEquals(100 + 10_000 + 50_000, counter("storage.cache.bytes.served", "source", "cache"));
+        assertEquals(2.0 / 3, meterRegistry.get("storage.cache.hit.ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void concurrentMissesShareOneFetch() throws Exception {
+        CachingBlobStore store = new CachingBlobStore(origin, directory, 1_000_000, 200_000, meterRegistry);
+        byte[] data = put("popular", 80_000);
+        origin.gate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(executor.submit(() -> read(store, "popular", 0, data.length - 1)));
+            }
+            // Let every reader reach the cache before the single fetch finishes
+            Thread.sleep(200);
+            origin.gate.countDown();
+            for (Future<byte[]> read : reads) {
+                assertArrayEquals(data, read.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, origin.opens.get());
+    }
+
+    @Test
+    void deleteDropsTheCachedCopy() throws Exception {
+        CachingBlobStore store = new CachingBlobStore(origin, directory, 1_000_000, 100_000, meterRegistry);
+        put("blobs/b/1", 10_000);
+        read(store, "blobs/b/1", 0, 9_999);
+        assertEquals(1, cachedFiles());
+
+        store.delete("blobs/b/1");
+
+        assertEquals(0, cachedFiles());
+        assertEquals(0, store.cachedBytes());
+        assertThrows(IOException.class, () -> read(store, "blobs/b/1", 0, 9_999));
+    }
+
+    @Test
+    void largeObjectsAreFetchedOnlyForTheBlocksARangeCovers() throws Exception {
+        CachingBlobStore store = new CachingBlobStore(origin, directory, 10_000_000, 200_000, meterRegistry);
+        long block = store.getBlockSize();
+        byte[] large = put("session-object", (int) (10 * block + 1_000));
+
+        // A range in the middle of block 4
+        int from = (int) (4 * block + 100);
+        assertArrayEquals(Arrays.copyOfRange(large, from, from + 500), read(store, "session-object", from, from + 499));
+        assertEquals(block, counter("storage.cache.bytes.fetched"));
+        assertEquals(1, origin.opens.get());
+
+        assertArrayEquals(Arrays.copyOfRange(large, from + 1_000, from + 2_000),
+                read(store, "session-object", from + 1_000, from + 1_999));
+        assertEquals(1, origin.opens.get());
+
+        // Reading to the end fetches the remaining blocks once and runs past the end like the origin
+        assertArrayEquals(Arrays.copyOfRange(large, from, large.length),
+                read(store, "session-object", from, large.length + 5_000L));
+        assertArrayEquals(large, read(store, "session-object", 0, large.length - 1));
+        assertEquals(11, origin.opens.get());
+        assertEquals(large.length, counter("storage.cache.bytes.fetched"));
+        assertEquals(0, counter("storage.cache.requests", "result", "bypass"));
+
+        store.delete("session-object");
+        assertEquals(0, cachedFiles());
+        assertEquals(0, store.cachedBytes());
+    }
+
+    @Test
+    void rangesPastTheEndOfABlockAlignedObjectStopAtTheEnd() throws Exception {
+        CachingBlobStore store = new CachingBlobStore(origin, directory, 1_000_000, 100_000, meterRegistry);
+        byte[] data = put("aligned", (int) (2 * store.getBlockSize() + EncryptionUtil.HEADER_SIZE));
+
+        assertArrayEquals(data, read(store, "aligned", 0, data.length + 100L));
+    }
+
+    @Test
+    void theTotalStaysBounded() throws Exception {
+        CachingBlobStore store = new CachingBlobStore(origin, directory, 100_000, 40_000, meterRegistry);
+
+        for (int i = 0; i < 10; i++) {
+            put("chunk-" + i, 30_000);
+            read(store, "chunk-" + i, 0, 0);
+        }
+        assertTrue(store.cachedBytes() <= 100_000);
+        assertTrue(cachedFiles() <= 3);
+    }
+
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    private byte[] put(String key, int size) throws Exception {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        origin.upload(key, new ByteArrayInputStream(data), size, null);
+        return data;
+    }
+
+    private double counter(String name, String tag, String value) {
+        return meterRegistry.get(name).tag(tag, value).counter().count();
+    }
+
+    private long cachedFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static byte[] read(BlobStore store, String key, long start, long end) throws IOException {
+        try (InputStream in = store.openRange(key, start, end)) {
+            return in.readAllBytes();
+        }
+    }
+
+    // Counts origin reads; with a gate set, reads wait until it opens
+    private static class CountingStore extends InMemoryBlobStore {
+
+        final AtomicInteger opens = new AtomicInteger();
+        volatile CountDownLatch gate;
+
+        @Override
+        public InputStream openRange(String key, long start, long end) throws IOException {
+            opens.incrementAndGet();
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            return super.openRange(key, start, end);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.DocumentInsights;
+import com.sun.net.httpserver.HttpServer;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.service.OpenAiService;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentInsightsServiceTest {
+
+    private HttpServer fakeOpenAi;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicReference<String> lastRequestBody = new AtomicReference<>();
+    private final AtomicReference<String> completion = new AtomicReference<>();
+    private DocumentInsightsService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fakeOpenAi = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        fakeOpenAi.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            lastRequestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = chatCompletion(completion.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fakeOpenAi.start();
+
+        OkHttpClient client = OpenAiService.defaultClient("test-key", Duration.ofSeconds(5));
+        OpenAiApi api = OpenAiService.defaultRetrofit(client, OpenAiService.defaultObjectMapper()).newBuilder()
+                .baseUrl("http://localhost:" + fakeOpenAi.getAddress().getPort() + "/")
+                .build()
+                .create(OpenAiApi.class);
+        service = new DocumentInsightsService(new OpenAiService(api, client.dispatcher().executorService()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fakeOpenAi.stop(0);
+    }
+
+    @Test
+    void issuesOneRequestForKeywordsAndSummary() {
+        completion.set("{\"keywords\": [\"budget\", \"Q3 forecast\"], \"summary\": \"Quarterly budget review.\"}");
+
+        DocumentInsights insights = service.extractInsights("The Q3 budget review covers forecasts. ".repeat(200));
+
+        assertEquals(1, requests.get());
+        assertEquals(List.of("budget", "Q3 forecast"), insights.getKeywords());
+        assertEquals("Quarterly budget review.", insights.getSummary());
+        assertTrue(lastRequestBody.get().contains("JSON"));
+    }
+
+    @Test
+    void toleratesCodeFencesAndProseAroundTheJson() {
+        completion.set("Sure! Here you go:\n```json\n{\"keywords\": \"budget, finance\", \"summary\": \"About money.\"}\n```");
+
+        DocumentInsights insights = service.extractInsights("Budget notes");
+
+        assertEquals(List.of("budget", "finance"), insights.getKeywords());
+        assertEquals("About money.", insights.getSummary());
+    }
+
+    @Test
+    void fallsBackToLabelledCommaSeparatedOutput() {
+        completion.set("Keywords: \"budget\", finance, Q3\nSummary: The team reviewed\nthe quarterly budget.");
+
+        DocumentInsights insights = service.extractInsights("Budget notes");
+
+        assertEquals(List.of("budget", "finance", "Q3"), insights.getKeywords());
+        assertEquals("The team reviewed the quarterly budget.", insights.getSummary());
+    }
+
+    @Test
+    void fallsBackToABareCommaSeparatedList() {
+        completion.set("budget, \"finance\", Q3 forecast");
+
+        DocumentInsights insights = service.extractInsights("Budget notes");
+
+        assertEquals(List.of("budget", "finance", "Q3 forecast"), insights.getKeywords());
+        assertEquals("", insights.getSummary());
+    }
+
+    private static String chatCompletion(String content) {
+        String escaped = content.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"id\":\"chatcmpl-test\",\"object\":\"chat.completion\",\"created\":0,\"model\":\"gpt-3.5-turbo\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + escaped + "\"},"
+                + "\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}";
+    }
+}
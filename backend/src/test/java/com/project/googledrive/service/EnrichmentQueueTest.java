@@ -0,0 +1,53 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.EnrichmentJob;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.repository.EnrichmentJobRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class EnrichmentQueueTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final EnrichmentQueue queue = new EnrichmentQueue(mock(EnrichmentJobRepository.class), mongoTemplate,
+            5, 30_000, 600_000);
+
+    @Test
+    void enqueueingAgainStartsTheFilesJobOver() {
+        queue.enqueue("file-1");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(EnrichmentJob.class));
+        assertEquals(new Document("fileId", "file-1"), query.getValue().getQueryObject());
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(EnrichmentStatus.PENDING, set.get("status"));
+        assertEquals(0, set.get("attempts"));
+        assertTrue(update.getValue().getUpdateObject().get("$unset", Document.class).containsKey("lockedUntil"));
+    }
+
+    @Test
+    void completingOnlyRemovesTheJobWhileTheLeaseIsHeld() {
+        EnrichmentJob job = new EnrichmentJob();
+        job.setId("job-1");
+        job.setLockedUntil(LocalDateTime.of(2024, 5, 1, 12, 0));
+
+        queue.complete(job);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(query.capture(), eq(EnrichmentJob.class));
+        assertEquals(job.getLockedUntil(), query.getValue().getQueryObject().get("lockedUntil"));
+    }
+}
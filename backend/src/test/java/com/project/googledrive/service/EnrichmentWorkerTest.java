@@ -0,0 +1,301 @@
+package com.project.googledrive.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.project.googledrive.dto.DocumentInsights;
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.EnrichmentJob;
+import com.project.googledrive.model.EnrichmentStatus;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.repository.FileRepository;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnrichmentWorkerTest {
+
+    private final EnrichmentQueue queue = mock(EnrichmentQueue.class);
+    private final FileRepository fileRepository = mock(FileRepository.class);
+    private final TextExtractionService textExtractionService = mock(TextExtractionService.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final StubEnrichmentClient client = new StubEnrichmentClient();
+    private final VectorIndexService vectorIndexService = mock(VectorIndexService.class);
+    private final FullTextIndexService fullTextIndexService = mock(FullTextIndexService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EnrichmentWorker worker;
+
+    private final FileMetadata file = new FileMetadata();
+    private final EnrichmentJob job = new EnrichmentJob();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        worker = newWorker("separate");
+
+        file.setId("file-1");
+        file.setOriginalFileName("report.txt");
+        job.setFileId("file-1");
+        job.setAttempts(1);
+
+        when(fileRepository.findById("file-1")).thenReturn(Optional.of(file));
+        when(fullTextIndexService.getMaxChars()).thenReturn(100_000);
+        when(textExtractionService.getMaxChars()).thenReturn(8000);
+        when(textExtractionService.extractText(file, 100_000)).thenReturn("Quarterly budget report for the design team");
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(FileMetadata.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+    }
+
+    private EnrichmentWorker newWorker(String mode) {
+        return new EnrichmentWorker(queue, fileRepository, textExtractionService, mongoTemplate, client, vectorIndexService,
+                fullTextIndexService, meterRegistry, 1, 500, mode);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void writesResultsAndCompletesJob() {
+        worker.process(job);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertArrayEquals(new float[] { 0.1f, 0.2f }, ((Embedding) set.get("embedding")).getValues());
+        assertEquals("stub-embedding-v2", set.get("embeddingModel"));
+        assertEquals(List.of("budget", "report"), set.get("keywords"));
+        assertEquals("A budget report.", set.get("summary"));
+        assertEquals(EnrichmentStatus.DONE, set.get("enrichmentStatus"));
+        verify(queue).complete(job);
+        verify(vectorIndexService).index(eq("file-1"), any(), any(), any(Embedding.class));
+        verify(fullTextIndexService).index("file-1", "Quarterly budget report for the design team");
+        assertEquals(1, meterRegistry.get("enrichment.stage").tag("stage", "summary").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void keepsPartialResultsWhenOneCallTimesOut() {
+        client.slowSummary = true;
+        when(queue.retryOrFail(eq(job), any())).thenReturn(true);
+
+        worker.process(job);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertArrayEquals(new float[] { 0.1f, 0.2f }, ((Embedding) set.get("embedding")).getValues());
+        assertEquals(List.of("budget", "report"), set.get("keywords"));
+        assertFalse(set.containsKey("summary"));
+        assertEquals(EnrichmentStatus.PENDING, set.get("enrichmentStatus"));
+        verify(queue).retryOrFail(eq(job), any());
+        assertEquals(1, meterRegistry.get("enrichment.stage.timeouts").tag("stage", "summary").counter().count());
+    }
+
+    @Test
+    void retriesOnlyTheStagesThatAreStillMissing() {
+        file.setEmbedding(Embedding.of(List.of(0.5)));
+        file.setEmbeddingModel("stub-embedding-v2");
+        file.setKeywords(List.of("existing"));
+        client.failing = true;
+
+        worker.process(job);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals("A budget report.", set.get("summary"));
+        assertEquals(EnrichmentStatus.DONE, set.get("enrichmentStatus"));
+        verify(queue).complete(job);
+    }
+
+    @Test
+    void redoesEmbeddingsFromAnotherModel() {
+        file.setEmbedding(Embedding.of(List.of(0.5)));
+        file.setEmbeddingModel("stub-embedding-v1");
+        file.setKeywords(List.of("existing"));
+        file.setSummary("Existing summary.");
+
+        worker.process(job);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertArrayEquals(new float[] { 0.1f, 0.2f }, ((Embedding) set.get("embedding")).getValues());
+        assertEquals("stub-embedding-v2", set.get("embeddingModel"));
+        assertFalse(set.containsKey("summary"));
+        verify(vectorIndexService).index(eq("file-1"), any(), any(), any(Embedding.class));
+    }
+
+    @Test
+    void reschedulesFailedCallsAndMarksFileFailedWhenOutOfAttempts() {
+        client.failing = true;
+        when(queue.retryOrFail(eq(job), any())).thenReturn(true);
+
+        worker.process(job);
+
+        verify(queue, never()).complete(job);
+
+        when(queue.retryOrFail(eq(job), any())).thenReturn(false);
+        worker.process(job);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(3)).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        assertEquals(EnrichmentStatus.FAILED,
+                update.getValue().getUpdateObject().get("$set", Document.class).get("enrichmentStatus"));
+    }
+
+    @Test
+    void retriesWhenTheOpenAIServicesSwallowTheirErrors() {
+        // Nothing listens on the port, so every chat call fails and the services return nothing
+        OkHttpClient httpClient = OpenAiService.defaultClient("test-key", Duration.ofSeconds(2));
+        OpenAiApi api = OpenAiService.defaultRetrofit(httpClient, OpenAiService.defaultObjectMapper()).newBuilder()
+                .baseUrl("http://localhost:1/")
+                .build()
+                .create(OpenAiApi.class);
+        OpenAiService openAi = new OpenAiService(api, httpClient.dispatcher().executorService());
+        EmbeddingProvider embeddingProvider = mock(EmbeddingProvider.class);
+        when(embeddingProvider.modelId()).thenReturn("stub-embedding-v2");
+        EnrichmentClient realClient = new OpenAIEnrichmentClient(mock(BatchEmbeddingService.class), embeddingProvider,
+                new KeywordExtractionService(openAi), new DocumentSummaryService(openAi), mock(DocumentInsightsService.class));
+        worker.shutdown();
+        worker = new EnrichmentWorker(queue, fileRepository, textExtractionService, mongoTemplate, realClient,
+                vectorIndexService, fullTextIndexService, meterRegistry, 1, 5000, "separate");
+        file.setEmbedding(Embedding.of(List.of(0.5)));
+        file.setEmbeddingModel("stub-embedding-v2");
+        when(queue.retryOrFail(eq(job), any())).thenReturn(true);
+
+        try {
+            worker.process(job);
+        } finally {
+            openAi.shutdownExecutor();
+        }
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertFalse(set.containsKey("keywords"));
+        assertFalse(set.containsKey("summary"));
+        assertEquals(EnrichmentStatus.PENDING, set.get("enrichmentStatus"));
+        verify(queue).retryOrFail(eq(job), any());
+        verify(queue, never()).complete(job);
+    }
+
+    @Test
+    void combinedModeUsesOneInsightsCall() {
+        worker.shutdown();
+        worker = newWorker("combined");
+
+        worker.process(job);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(List.of("combined"), set.get("keywords"));
+        assertEquals("One call.", set.get("summary"));
+        assertEquals(0, client.separateCalls);
+        verify(queue).complete(job);
+    }
+
+    @Test
+    void doesNotWriteOverContentThatWasReplacedMeanwhile() {
+        file.setVersion(3);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(FileMetadata.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        worker.process(job);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(FileMetadata.class));
+        assertEquals(3, query.getValue().getQueryObject().get("version"));
+        verify(vectorIndexService, never()).index(any(), any(), any(), any());
+        verify(fullTextIndexService, never()).index(any(), any());
+        verify(queue).complete(job);
+    }
+
+    @Test
+    void modelsGetTheExtractionBudgetAndSearchGetsTheRest() throws Exception {
+        String longText = "budget ".repeat(5000);
+        when(textExtractionService.extractText(file, 100_000)).thenReturn(longText);
+
+        worker.process(job);
+
+        assertEquals(8000, client.lastKeywordsText.length());
+        verify(fullTextIndexService).index("file-1", longText);
+    }
+
+    @Test
+    void dropsJobsForDeletedFiles() {
+        when(fileRepository.findById("file-1")).thenReturn(Optional.empty());
+
+        worker.process(job);
+
+        verify(queue).complete(job);
+    }
+
+    private static class StubEnrichmentClient implements EnrichmentClient {
+        boolean failing;
+        boolean slowSummary;
+        int separateCalls;
+        String lastKeywordsText;
+
+        @Override
+        public Embedding generateEmbedding(String text) {
+            if (failing) {
+                throw new IllegalStateException("model unavailable");
+            }
+            return Embedding.of(List.of(0.1, 0.2));
+        }
+
+        @Override
+        public String embeddingModel() {
+            return "stub-embedding-v2";
+        }
+
+        @Override
+        public List<String> extractKeywords(String text) {
+            separateCalls++;
+            lastKeywordsText = text;
+            return List.of("budget", "report");
+        }
+
+        @Override
+        public String generateSummary(String text) {
+            separateCalls++;
+            if (slowSummary) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "A budget report.";
+        }
+
+        @Override
+        public DocumentInsights extractInsights(String text) {
+            return new DocumentInsights(List.of("combined"), "One call.");
+        }
+    }
+}
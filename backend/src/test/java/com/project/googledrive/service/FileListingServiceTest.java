@@ -0,0 +1,115 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.FileListPage;
+import com.project.googledrive.model.FileMetadata;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileListingServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final FileListingService service = new FileListingService(mongoTemplate);
+
+    @Test
+    void readsOnlyListingFieldsAndReturnsACursorWhenMoreRemain() {
+        when(mongoTemplate.find(any(Query.class), eq(FileMetadata.class))).thenReturn(files(3));
+
+        FileListPage page = service.listFiles("a@example.com", FileListingService.SortField.SIZE, Sort.Direction.ASC, 2, null);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(FileMetadata.class));
+        Document fields = query.getValue().getFieldsObject();
+        assertTrue(fields.containsKey("originalFileName"));
+        assertFalse(fields.containsKey("embedding"));
+        assertFalse(fields.containsKey("encryptionKey"));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("fileSize", 1).append("_id", 1), query.getValue().getSortObject());
+
+        assertEquals(2, page.getItems().size());
+        assertNotNull(page.getNextCursor());
+    }
+
+    @Test
+    void cursorResumesAfterTheLastItem() {
+        when(mongoTemplate.find(any(Query.class), eq(FileMetadata.class))).thenReturn(files(3)).thenReturn(files(1));
+        String cursor = service.listFiles("a@example.com", FileListingService.SortField.SIZE, Sort.Direction.ASC, 2, null)
+                .getNextCursor();
+
+        FileListPage next = service.listFiles("a@example.com", FileListingService.SortField.SIZE, Sort.Direction.ASC, 2, cursor);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(FileMetadata.class));
+        String criteria = query.getValue().getQueryObject().toJson();
+        assertTrue(criteria.contains("\"fileSize\": {\"$gt\": 200}"), criteria);
+        assertTrue(criteria.contains("\"_id\": {\"$gt\": \"file-1\"}"), criteria);
+        assertNull(next.getNextCursor());
+    }
+
+    @Test
+    void rejectsCursorsFromAnotherSortOrder() {
+        when(mongoTemplate.find(any(Query.class), eq(FileMetadata.class))).thenReturn(files(3));
+        String cursor = service.listFiles("a@example.com", FileListingService.SortField.SIZE, Sort.Direction.ASC, 2, null)
+                .getNextCursor();
+
+        assertThrows(IllegalArgumentException.class, () ->
+                service.listFiles("a@example.com", FileListingService.SortField.NAME, Sort.Direction.ASC, 2, cursor));
+    }
+
+    @Test
+    void versionChangesWhenOnlyAnEnrichmentStatusDoes() {
+        LocalDateTime lastUpdated = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(FileMetadata.class), eq(Document.class)))
+                .thenReturn(summary(new Document("count", 2).append("lastUpdated", lastUpdated)
+                        .append("PENDING", 1).append("DONE", 1).append("FAILED", 0)))
+                .thenReturn(summary(new Document("count", 2).append("lastUpdated", lastUpdated)
+                        .append("PENDING", 0).append("DONE", 2).append("FAILED", 0)));
+
+        String pending = service.listingVersion("a@example.com", "name");
+        String done = service.listingVersion("a@example.com", "name");
+
+        assertNotEquals(pending, done);
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(2)).aggregate(aggregation.capture(), eq(FileMetadata.class), eq(Document.class));
+        assertTrue(aggregation.getValue().toString().contains("enrichmentStatus"));
+    }
+
+    private static AggregationResults<Document> summary(Document result) {
+        return new AggregationResults<>(List.of(result), new Document());
+    }
+
+    private static List<FileMetadata> files(int count) {
+        List<FileMetadata> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            FileMetadata file = new FileMetadata();
+            file.setId("file-" + i);
+            file.setOriginalFileName("doc-" + i + ".txt");
+            file.setFileSize((i + 1) * 100L);
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,145 @@
+package com.project.googledrive.service;
+
+import com.mongodb.client.result.DeleteResult;
+import com.project.googledrive.model.Blob;
+import com.project.googledrive.model.ChunkRef;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.FileVersion;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileVersionServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final FileService fileService = mock(FileService.class);
+    private final BlobService blobService = mock(BlobService.class);
+    private final StorageUsageService storageUsageService = mock(StorageUsageService.class);
+    private final EnrichmentQueue enrichmentQueue = mock(EnrichmentQueue.class);
+    private final FileVersionService service = new FileVersionService(mongoTemplate, fileService, blobService,
+            storageUsageService, enrichmentQueue, mock(VectorIndexService.class),
+            mock(FullTextIndexService.class), 2, 0);
+
+    private final FileMetadata current = new FileMetadata();
+
+    @BeforeEach
+    void setUp() {
+        current.setId("file-1");
+        current.setOwnerEmail("alice@example.com");
+        current.setFileSize(100);
+        current.setVersion(3);
+        current.setUpdatedAt(LocalDateTime.now().withNano(0));
+        current.setChunks(List.of(new ChunkRef("a", 60), new ChunkRef("b", 40)));
+        when(fileService.getFileMetadata("file-1")).thenReturn(current);
+        when(mongoTemplate.remove(any(Query.class), eq(FileVersion.class))).thenReturn(DeleteResult.acknowledged(1));
+    }
+
+    @Test
+    void replacedContentBecomesAVersionWithoutCopyingStorage() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FileMetadata.class)))
+                .thenReturn(current);
+
+        service.replaceContent("file-1", "alice@example.com", null, null, "text/plain",
+                FileService.chunkedContent(List.of(new ChunkRef("a", 60), new ChunkRef("c", 50)), 110));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(FileMetadata.class));
+        Document set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertEquals(4, set.get("version"));
+        assertEquals(110L, set.get("fileSize"));
+
+        ArgumentCaptor<FileVersion> kept = ArgumentCaptor.forClass(FileVersion.class);
+        verify(mongoTemplate).insert(kept.capture());
+        assertEquals(3, kept.getValue().getVersion());
+        assertEquals(current.getChunks(), kept.getValue().getChunks());
+        // The version holds the old references; nothing is released or copied
+        verify(fileService, never()).releaseContent(any());
+        verify(storageUsageService).reserve("alice@example.com", 110, FileService.STORAGE_LIMIT);
+        verify(storageUsageService).release("alice@example.com", 100);
+    }
+
+    @Test
+    void aConcurrentChangeRefusesTheUpdateAndReturnsTheReservation() {
+        assertThrows(RuntimeException.class, () -> service.replaceContent("file-1", "alice@example.com",
+                current.getUpdatedAt().minusMinutes(1), null, null, FileService.chunkedContent(List.of(), 0)));
+
+        verify(storageUsageService).release("alice@example.com", 0);
+        verify(mongoTemplate, never()).insert(any(FileVersion.class));
+    }
+
+    @Test
+    void failuresAfterTheSwapNeitherLeakTheOldContentNorFailTheCall() {
+        FileMetadata updated = new FileMetadata();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FileMetadata.class)))
+                .thenReturn(updated);
+        doThrow(new DuplicateKeyException("enrichment_jobs.fileId")).when(enrichmentQueue).enqueue("file-1");
+
+        // Throwing here would make the caller release the content the file now uses
+        assertSame(updated, service.replaceContent("file-1", "alice@example.com", null, null, "text/plain",
+                FileService.chunkedContent(List.of(new ChunkRef("c", 50)), 50)));
+
+        verify(mongoTemplate).insert(any(FileVersion.class));
+        verify(fileService, never()).releaseContent(any());
+    }
+
+    @Test
+    void keepsOnlyTheNewestVersions() {
+        when(mongoTemplate.find(any(Query.class), eq(FileVersion.class)))
+                .thenReturn(List.of(version(5), version(4), version(3), version(2)));
+
+        service.prune("file-1");
+
+        verify(mongoTemplate, times(2)).remove(any(Query.class), eq(FileVersion.class));
+        verify(fileService, times(2)).releaseContent(any(FileMetadata.class));
+    }
+
+    @Test
+    void restoringTakesNewReferencesOnTheOldContent() {
+        when(mongoTemplate.findOne(any(Query.class), eq(FileVersion.class))).thenReturn(version(2));
+        when(blobService.addReference(anyString())).thenReturn(new Blob());
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(FileMetadata.class)))
+                .thenReturn(current);
+
+        service.restore("file-1", 2, "alice@example.com");
+
+        verify(blobService).addReference("old");
+        verify(mongoTemplate, never()).remove(any(Query.class), eq(FileVersion.class));
+        verify(storageUsageService).reserve(eq("alice@example.com"), anyLong(), anyLong());
+        assertThrows(RuntimeException.class, () -> service.restore("file-1", 2, "mallory@example.com"));
+    }
+
+    private static FileVersion version(int number) {
+        FileVersion version = new FileVersion();
+        version.setId("v" + number);
+        version.setFileId("file-1");
+        version.setVersion(number);
+        version.setOwnerEmail("alice@example.com");
+        version.setFileSize(10);
+        version.setChunks(List.of(new ChunkRef("old", 10)));
+        version.setReplacedAt(LocalDateTime.now());
+        return version;
+    }
+}
@@ -0,0 +1,117 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FullTextIndexServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    // What Mongo holds, by id
+    private final Map<String, FileMetadata> files = new HashMap<>();
+    private FullTextIndexService index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(mongoTemplate.findOne(any(Query.class), eq(FileMetadata.class)))
+                .thenAnswer(invocation -> files.get(invocation.getArgument(0, Query.class).getQueryObject().get("_id")));
+        index = new FullTextIndexService(mongoTemplate, new ByteBuffersDirectory(), 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    @Test
+    void ranksNameMatchesAboveMentionsInTheText() {
+        put("a", "alice@example.com", "Holiday photos.zip", List.of(), "");
+        index.index("a", "We took budget airlines to save money on the holiday.");
+        put("b", "alice@example.com", "Q3_budget-final.pdf", List.of("finance"), "Quarterly budget for the design team");
+        index.index("b", "Totals per department.");
+        put("c", "alice@example.com", "notes.txt", List.of(), "");
+        index.index("c", "Nothing relevant here.");
+
+        assertEquals(List.of("b", "a"), ids(index.search("alice@example.com", "budget", 10)));
+        // Every word has to match somewhere
+        assertEquals(List.of("a"), ids(index.search("alice@example.com", "budget airlines", 10)));
+    }
+
+    @Test
+    void matchesPrefixesAndTypos() {
+        put("a", "alice@example.com", "report.docx", List.of("kubernetes"), "");
+        index.index("a", "Migration plan for the cluster infrastructure.");
+
+        // Last word as typed so far
+        assertEquals(List.of("a"), ids(index.search("alice@example.com", "migration infra", 10)));
+        // One or two edits away
+        assertEquals(List.of("a"), ids(index.search("alice@example.com", "kubernets", 10)));
+        assertEquals(List.of("a"), ids(index.search("alice@example.com", "infrastructrue", 10)));
+        assertTrue(index.search("alice@example.com", "kitchen", 10).isEmpty());
+    }
+
+    @Test
+    void onlyReadersFindAFile() {
+        FileMetadata file = put("a", "alice@example.com", "salaries.xlsx", List.of(), "");
+        index.index("a", "Confidential salary bands.");
+
+        assertEquals(List.of("a"), ids(index.search("alice@example.com", "salary", 10)));
+        assertTrue(index.search("bob@example.com", "salary", 10).isEmpty());
+
+        // A share picks up the new reader and keeps the text
+        file.getSharedWith().add("bob@example.com");
+        index.refresh("a");
+        assertEquals(List.of("a"), ids(index.search("bob@example.com", "confidential", 10)));
+
+        index.remove("a");
+        assertTrue(index.search("alice@example.com", "salary", 10).isEmpty());
+    }
+
+    @Test
+    void renameKeepsTheTextAndDeletedFilesDropOut() {
+        FileMetadata file = put("a", "alice@example.com", "draft.txt", List.of(), "");
+        index.index("a", "Roadmap for the mobile app.");
+
+        file.setOriginalFileName("roadmap 2027.txt");
+        index.refresh("a");
+        assertTrue(index.search("alice@example.com", "draft", 10).isEmpty());
+        assertEquals(List.of("a"), ids(index.search("alice@example.com", "mobile", 10)));
+
+        // Indexing a file Mongo no longer has removes it
+        files.remove("a");
+        index.index("a", "Roadmap for the mobile app.");
+        assertTrue(index.search("alice@example.com", "mobile", 10).isEmpty());
+    }
+
+    private FileMetadata put(String id, String owner, String name, List<String> keywords, String summary) {
+        FileMetadata file = new FileMetadata();
+        file.setId(id);
+        file.setOwnerEmail(owner);
+        file.setOriginalFileName(name);
+        file.setKeywords(keywords);
+        file.setSummary(summary);
+        file.setSharedWith(new ArrayList<>());
+        files.put(id, file);
+        return file;
+    }
+
+    private static List<String> ids(List<FullTextIndexService.Hit> hits) {
+        return hits.stream().map(FullTextIndexService.Hit::fileId).toList();
+    }
+}
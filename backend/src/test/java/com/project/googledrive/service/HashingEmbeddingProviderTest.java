@@ -0,0 +1,48 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashingEmbeddingProviderTest {
+
+    private final HashingEmbeddingProvider provider = new HashingEmbeddingProvider(256);
+
+    @Test
+    void isDeterministicAndUnitLength() {
+        List<Embedding> embeddings = provider.embed(List.of("Quarterly budget report", "Quarterly budget report"));
+
+        assertEquals(2, embeddings.size());
+        assertEquals(256, embeddings.get(0).getValues().length);
+        assertArrayEquals(embeddings.get(0).getValues(), embeddings.get(1).getValues());
+        assertEquals(1.0f, embeddings.get(0).getNorm(), 1e-5f);
+        // Same text in a new instance, as after a restart
+        assertArrayEquals(embeddings.get(0).getValues(), new HashingEmbeddingProvider(256).embed("quarterly  BUDGET report!").getValues());
+    }
+
+    @Test
+    void relatedTextsAreCloserThanUnrelatedOnes() {
+        Embedding query = provider.embed("budget report");
+
+        double sameWords = query.cosineSimilarity(provider.embed("The design team's budget report for Q3"));
+        double wordForms = query.cosineSimilarity(provider.embed("budgets and reporting"));
+        double typo = query.cosineSimilarity(provider.embed("bugdet reprot"));
+        double unrelated = query.cosineSimilarity(provider.embed("sourdough bread recipe"));
+
+        assertTrue(sameWords > unrelated + 0.2, sameWords + " vs " + unrelated);
+        assertTrue(wordForms > unrelated + 0.2, wordForms + " vs " + unrelated);
+        assertTrue(typo > unrelated, typo + " vs " + unrelated);
+    }
+
+    @Test
+    void modelIdChangesWithTheDimension() {
+        assertEquals("hashing-v1-256", provider.modelId());
+        assertNotEquals(provider.modelId(), new HashingEmbeddingProvider(384).modelId());
+    }
+}
@@ -0,0 +1,143 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.SearchHit;
+import com.project.googledrive.dto.SearchPage;
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.util.HnswIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HybridSearchServiceTest {
+
+    private static final String USER = "alice@example.com";
+
+    private final FullTextIndexService fullTextIndexService = mock(FullTextIndexService.class);
+    private final VectorIndexService vectorIndexService = mock(VectorIndexService.class);
+    private final QueryEmbeddingCache queryEmbeddingCache = mock(QueryEmbeddingCache.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HybridSearchService service = new HybridSearchService(fullTextIndexService, vectorIndexService,
+            queryEmbeddingCache, mongoTemplate, meterRegistry, 60, 100, 0.3, 300, 2);
+
+    @BeforeEach
+    void setUp() {
+        List<FileMetadata> files = Stream.of("a", "b", "c", "d", "e").map(HybridSearchServiceTest::file).toList();
+        when(mongoTemplate.find(any(Query.class), eq(FileMetadata.class))).thenReturn(files);
+        when(queryEmbeddingCache.getEmbedding("budget")).thenReturn(new Embedding(new float[] { 1, 0 }));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void filesBothSourcesLikeComeFirst() {
+        lexical(List.of(new FullTextIndexService.Hit("a", 9.5f), new FullTextIndexService.Hit("b", 7f),
+                new FullTextIndexService.Hit("c", 2f)));
+        semantic(List.of(new HnswIndex.Match("c", 0.9f), new HnswIndex.Match("d", 0.8f)));
+
+        SearchPage page = service.search(USER, "budget", 10, null);
+
+        // c is third by keywords but first by meaning; a and b lead d on rank alone
+        assertEquals(List.of("c", "a", "b", "d"), ids(page));
+        assertFalse(page.isPartial());
+        assertNull(page.getNextCursor());
+
+        SearchHit top = page.getResults().get(0);
+        assertEquals(1.0 / 63 + 1.0 / 61, top.getScore(), 1e-12);
+        assertEquals(2f, top.getLexicalScore());
+        assertEquals(0.9f, top.getSemanticScore());
+        assertNull(page.getResults().get(3).getLexicalScore());
+    }
+
+    @Test
+    void cursorWalksTheRankingWithoutOverlap() {
+        lexical(List.of(new FullTextIndexService.Hit("a", 3f), new FullTextIndexService.Hit("b", 2f)));
+        // Ties with a and b on fused score; ids break the tie
+        semantic(List.of(new HnswIndex.Match("e", 0.9f), new HnswIndex.Match("d", 0.8f), new HnswIndex.Match("c", 0.7f)));
+
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            SearchPage page = service.search(USER, "budget", 2, cursor);
+            assertTrue(page.getResults().size() <= 2);
+            seen.addAll(ids(page));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of("a", "e", "b", "d", "c"), seen);
+        assertThrows(IllegalArgumentException.class, () -> service.search(USER, "budget", 2, "not a cursor"));
+    }
+
+    @Test
+    void aSourceThatMissesTheBudgetIsLeftOut() {
+        lexical(List.of(new FullTextIndexService.Hit("a", 1f)));
+        when(queryEmbeddingCache.getEmbedding("budget")).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return new Embedding(new float[] { 1, 0 });
+        });
+
+        long started = System.nanoTime();
+        SearchPage page = service.search(USER, "budget", 10, null);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertEquals(List.of("a"), ids(page));
+        assertTrue(page.isPartial());
+        assertTrue(elapsedMs < 2000, "took " + elapsedMs + " ms");
+        assertEquals(1, meterRegistry.get("search.hybrid.source").tag("source", "semantic")
+                .tag("outcome", "timeout").counter().count());
+    }
+
+    @Test
+    void aFailedSourceStillReturnsTheOther() {
+        when(fullTextIndexService.search(eq(USER), eq("budget"), anyInt())).thenThrow(new RuntimeException("index closed"));
+        semantic(List.of(new HnswIndex.Match("d", 0.8f)));
+
+        SearchPage page = service.search(USER, "budget", 10, null);
+
+        assertEquals(List.of("d"), ids(page));
+        assertTrue(page.isPartial());
+    }
+
+    private void lexical(List<FullTextIndexService.Hit> hits) {
+        when(fullTextIndexService.search(eq(USER), eq("budget"), anyInt())).thenReturn(hits);
+    }
+
+    private void semantic(List<HnswIndex.Match> matches) {
+        when(vectorIndexService.search(eq(USER), any(Embedding.class), anyInt(), anyDouble())).thenReturn(matches);
+    }
+
+    private static List<String> ids(SearchPage page) {
+        return page.getResults().stream().map(hit -> hit.getFile().getId()).toList();
+    }
+
+    private static FileMetadata file(String id) {
+        FileMetadata file = new FileMetadata();
+        file.setId(id);
+        file.setOriginalFileName(id + ".txt");
+        file.setOwnerEmail(USER);
+        return file;
+    }
+}
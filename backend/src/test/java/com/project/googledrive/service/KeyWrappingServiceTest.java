@@ -0,0 +1,43 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.util.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeyWrappingServiceTest {
+
+    private final KeyWrappingService service = new KeyWrappingService("MySecretEncryptionKey1234567890");
+
+    @Test
+    void unwrapsOnlyForTheOwnerItWasWrappedFor() throws Exception {
+        String dataKey = EncryptionUtil.generateKey();
+
+        String wrapped = service.wrapForOwner(dataKey, "alice@example.com");
+
+        assertNotEquals(dataKey, wrapped);
+        assertEquals(dataKey, service.unwrapForOwner(wrapped, "alice@example.com"));
+        assertThrows(RuntimeException.class, () -> service.unwrapForOwner(wrapped, "bob@example.com"));
+        assertThrows(RuntimeException.class, () -> service.unwrapForBlob(wrapped, "alice@example.com"));
+    }
+
+    @Test
+    void differentMasterSecretsCannotUnwrap() throws Exception {
+        String wrapped = service.wrapForBlob(EncryptionUtil.generateKey(), "abc123");
+
+        KeyWrappingService other = new KeyWrappingService("AnotherSecretEncryptionKey12345");
+
+        assertThrows(RuntimeException.class, () -> other.unwrapForBlob(wrapped, "abc123"));
+    }
+
+    @Test
+    void legacyFilesKeepTheirPlainKey() throws Exception {
+        FileMetadata legacy = new FileMetadata();
+        legacy.setEncryptionKey(EncryptionUtil.generateKey());
+
+        assertEquals(legacy.getEncryptionKey(), service.dataKeyFor(legacy));
+    }
+}
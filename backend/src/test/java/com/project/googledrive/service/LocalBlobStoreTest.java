@@ -0,0 +1,126 @@
+package com.project.googledrive.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void readsRangesAcrossMappingWindows() throws Exception {
+        // Tiny windows, so ranges span several mappings
+        LocalBlobStore store = new LocalBlobStore(root, 1000);
+        byte[] data = randomBytes(10_000);
+        store.upload("blobs/abc/1", new ByteArrayInputStream(data), data.length, "application/octet-stream");
+
+        assertArrayEquals(Arrays.copyOfRange(data, 900, 2501), read(store, "blobs/abc/1", 900, 2500));
+        assertArrayEquals(data, read(store, "blobs/abc/1", 0, data.length - 1));
+        // Past the end returns what there is
+        assertArrayEquals(Arrays.copyOfRange(data, 9990, 10_000), read(store, "blobs/abc/1", 9990, 20_000));
+
+        try (InputStream in = store.openRange("blobs/abc/1", 0, data.length - 1)) {
+            assertEquals(2500, in.skip(2500));
+            assertEquals(data[2500] & 0xFF, in.read());
+        }
+        assertThrows(IOException.class, () -> store.openRange("blobs/abc/1", 10_000, 10_001));
+        assertThrows(IOException.class, () -> store.openRange("missing", 0, 1));
+    }
+
+    @Test
+    void failedUploadKeepsThePreviousObjectAndLeavesNoTempFiles() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(root, 1000);
+        byte[] first = randomBytes(3000);
+        store.upload("key", new ByteArrayInputStream(first), first.length, null);
+
+        byte[] truncated = randomBytes(100);
+        assertThrows(RuntimeException.class,
+                () -> store.upload("key", new ByteArrayInputStream(truncated), 5000, null));
+
+        assertArrayEquals(first, read(store, "key", 0, first.length - 1));
+        assertEquals(List.of(store.pathFor("key")), files());
+
+        store.delete("key");
+        store.delete("key");
+        assertTrue(files().isEmpty());
+    }
+
+    @Test
+    void multipartUploadUsesTheTaggedPartsInOrder() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(root, 1000);
+        byte[] part1 = randomBytes(4000);
+        byte[] part2 = randomBytes(1500);
+
+        String uploadId = store.startMultipartUpload("object", null);
+        String tag2 = store.uploadPart("object", uploadId, 2, part2, part2.length);
+        String staleTag1 = store.uploadPart("object", uploadId, 1, new byte[4000], 4000);
+        // Re-sent part: the tag decides which copy is used
+        String tag1 = store.uploadPart("object", uploadId, 1, part1, part1.length);
+
+        assertThrows(RuntimeException.class,
+                () -> store.completeMultipartUpload("object", uploadId, List.of(tag1, staleTag1)));
+        assertFalse(Files.exists(store.pathFor("object")));
+
+        store.completeMultipartUpload("object", uploadId, List.of(tag1, tag2));
+
+        byte[] expected = new byte[part1.length + part2.length];
+        System.arraycopy(part1, 0, expected, 0, part1.length);
+        System.arraycopy(part2, 0, expected, part1.length, part2.length);
+        assertArrayEquals(expected, read(store, "object", 0, expected.length - 1));
+        // The parts are gone once completed
+        assertEquals(List.of(store.pathFor("object")), files());
+
+        String aborted = store.startMultipartUpload("other", null);
+        store.uploadPart("other", aborted, 1, part1, part1.length);
+        store.abortMultipartUpload("other", aborted);
+        assertEquals(List.of(store.pathFor("object")), files());
+        assertThrows(RuntimeException.class, () -> store.uploadPart("other", aborted, 2, part2, part2.length));
+    }
+
+    @Test
+    void anyKeyStaysInsideTheRoot() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(root, 1000);
+
+        Path path = store.pathFor("../../etc/passwd");
+
+        assertTrue(path.startsWith(root.toAbsolutePath().normalize()));
+        assertEquals(root.toAbsolutePath().normalize(), path.getParent().getParent().getParent());
+        assertThrows(IllegalArgumentException.class,
+                () -> store.uploadPart("key", "../../escape", 1, new byte[1], 1));
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private static byte[] read(BlobStore store, String key, long start, long end) throws IOException {
+        try (InputStream in = store.openRange(key, start, end)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+}
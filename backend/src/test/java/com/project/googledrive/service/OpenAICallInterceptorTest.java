@@ -0,0 +1,188 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.config.OpenAIConfig;
+import com.project.googledrive.util.CircuitBreaker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.embedding.EmbeddingRequest;
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAICallInterceptorTest {
+
+    private static final String EMBEDDINGS = "{\"object\":\"list\",\"data\":[{\"object\":\"embedding\",\"index\":0,"
+            + "\"embedding\":[0.1,0.2]}],\"model\":\"m\",\"usage\":{\"prompt_tokens\":1,\"total_tokens\":1}}";
+    private static final String CHAT = "{\"id\":\"chatcmpl-test\",\"object\":\"chat.completion\",\"created\":0,"
+            + "\"model\":\"m\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"ok\"},"
+            + "\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}";
+    private static final String ERROR = "{\"error\":{\"message\":\"boom\",\"type\":\"server_error\"}}";
+
+    private HttpServer fakeOpenAi;
+    private ExecutorService serverThreads;
+    private final AtomicInteger requests = new AtomicInteger();
+    // Status codes to answer with before falling back to `defaultStatus`
+    private final Queue<Integer> scriptedStatuses = new ConcurrentLinkedQueue<>();
+    private volatile int defaultStatus = 200;
+    private volatile CountDownLatch chatGate = new CountDownLatch(0);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OpenAICallInterceptor interceptor;
+    private OpenAiService openAi;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        fakeOpenAi = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        fakeOpenAi.createContext("/v1/embeddings", exchange -> {
+            requests.incrementAndGet();
+            respond(exchange, EMBEDDINGS);
+        });
+        fakeOpenAi.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            try {
+                chatGate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, CHAT);
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        fakeOpenAi.setExecutor(serverThreads);
+        fakeOpenAi.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        chatGate.countDown();
+        openAi.shutdownExecutor();
+        fakeOpenAi.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void retriesRateLimitsAndServerErrorsUntilTheCallSucceeds() {
+        client(4, 4, 1000, 5, 60_000, 4);
+        scriptedStatuses.add(429);
+        scriptedStatuses.add(503);
+
+        assertEquals(2, openAi.createEmbeddings(embeddingRequest()).getData().get(0).getEmbedding().size());
+
+        assertEquals(3, requests.get());
+        assertEquals(2, meterRegistry.get("openai.retries").tag("endpoint", "embeddings").counter().count());
+        assertEquals(1, meterRegistry.get("openai.requests").tag("endpoint", "embeddings")
+                .tag("outcome", "success").timer().count());
+        assertEquals(CircuitBreaker.State.CLOSED, interceptor.getCircuitState());
+    }
+
+    @Test
+    void circuitOpensOnRepeatedFailuresAndClosesAfterATrialCall() throws Exception {
+        client(4, 4, 1000, 2, 300, 1);
+        defaultStatus = 500;
+
+        assertThrows(RuntimeException.class, () -> openAi.createEmbeddings(embeddingRequest()));
+        assertThrows(RuntimeException.class, () -> openAi.createEmbeddings(embeddingRequest()));
+        assertEquals(CircuitBreaker.State.OPEN, interceptor.getCircuitState());
+
+        // Fails fast without reaching the API
+        assertThrows(RuntimeException.class, () -> openAi.createEmbeddings(embeddingRequest()));
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("openai.requests").tag("outcome", "circuit_open").timer().count());
+
+        defaultStatus = 200;
+        Thread.sleep(350);
+        openAi.createEmbeddings(embeddingRequest());
+        assertEquals(CircuitBreaker.State.CLOSED, interceptor.getCircuitState());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void slowChatCallsDoNotHoldUpEmbeddings() throws Exception {
+        client(1, 4, 100, 5, 60_000, 1);
+        chatGate = new CountDownLatch(1);
+
+        CompletableFuture<Void> slowChat = CompletableFuture.runAsync(() -> openAi.createChatCompletion(chatRequest()));
+        while (requests.get() == 0) {
+            Thread.sleep(5);
+        }
+
+        // The chat bulkhead is full...
+        assertThrows(RuntimeException.class, () -> openAi.createChatCompletion(chatRequest()));
+        assertEquals(1, meterRegistry.get("openai.requests").tag("endpoint", "chat")
+                .tag("outcome", "rejected").timer().count());
+        // ...but embeddings have their own
+        openAi.createEmbeddings(embeddingRequest());
+
+        chatGate.countDown();
+        slowChat.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void requestsBeyondTheRateBudgetAreThrottledLocally() {
+        client(4, 4, 1000, 5, 60_000, 1, 2);
+
+        openAi.createEmbeddings(embeddingRequest());
+        openAi.createEmbeddings(embeddingRequest());
+        assertThrows(RuntimeException.class, () -> openAi.createEmbeddings(embeddingRequest()));
+
+        assertEquals(2, requests.get());
+        assertEquals(1, meterRegistry.get("openai.requests").tag("outcome", "throttled").timer().count());
+    }
+
+    private void client(int chatConcurrency, int embeddingConcurrency, long bulkheadWaitMs,
+                        int failureThreshold, long circuitOpenMs, int maxAttempts) {
+        client(chatConcurrency, embeddingConcurrency, bulkheadWaitMs, failureThreshold, circuitOpenMs, maxAttempts, 3000);
+    }
+
+    private void client(int chatConcurrency, int embeddingConcurrency, long bulkheadWaitMs,
+                        int failureThreshold, long circuitOpenMs, int maxAttempts, long requestsPerMinute) {
+        OpenAIConfig config = new OpenAIConfig();
+        interceptor = config.openAICallInterceptor(meterRegistry, chatConcurrency, embeddingConcurrency, bulkheadWaitMs,
+                requestsPerMinute, 1_000_000, 0, failureThreshold, circuitOpenMs, maxAttempts, 1, 5);
+        openAi = config.openAiService(interceptor, "test-key",
+                "http://localhost:" + fakeOpenAi.getAddress().getPort(), 4, 60_000, 2000, 5000);
+    }
+
+    private void respond(HttpExchange exchange, String okBody) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        Integer scripted = scriptedStatuses.poll();
+        int status = scripted != null ? scripted : defaultStatus;
+        byte[] body = (status == 200 ? okBody : ERROR).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        if (status == 429) {
+            exchange.getResponseHeaders().add("Retry-After", "0");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static EmbeddingRequest embeddingRequest() {
+        return EmbeddingRequest.builder().model("m").input(List.of("quarterly budget")).build();
+    }
+
+    private static ChatCompletionRequest chatRequest() {
+        return ChatCompletionRequest.builder().model("m").messages(List.of(new ChatMessage("user", "hi"))).build();
+    }
+}
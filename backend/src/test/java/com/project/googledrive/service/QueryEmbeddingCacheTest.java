@@ -0,0 +1,99 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryEmbeddingCacheTest {
+
+    private final EmbeddingProvider embeddingProvider = mock(EmbeddingProvider.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        when(embeddingProvider.modelId()).thenReturn("text-embedding-ada-002");
+        when(embeddingProvider.embed(anyList())).thenReturn(List.of(Embedding.of(List.of(0.5, 0.25))));
+    }
+
+    private QueryEmbeddingCache newCache(String persistPath) {
+        return new QueryEmbeddingCache(embeddingProvider, 100, 60, persistPath);
+    }
+
+    @Test
+    void normalizedQueriesShareOneEntry() {
+        QueryEmbeddingCache cache = newCache("");
+        cache.bindTo(meterRegistry);
+
+        cache.getEmbedding("Budget  Report");
+        cache.getEmbedding("  budget report ");
+
+        verify(embeddingProvider, times(1)).embed(anyList());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "query.embeddings").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void concurrentMissesShareOneRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        when(embeddingProvider.embed(anyList())).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(Embedding.of(List.of(1.0)));
+        });
+        QueryEmbeddingCache cache = newCache("");
+
+        CompletableFuture<Embedding> first = CompletableFuture.supplyAsync(() -> cache.getEmbedding("quarterly plan"));
+        CompletableFuture<Embedding> second = CompletableFuture.supplyAsync(() -> cache.getEmbedding("Quarterly plan"));
+        Thread.sleep(200);
+        release.countDown();
+
+        assertArrayEquals(first.get().getValues(), second.get().getValues());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        when(embeddingProvider.embed(anyList()))
+                .thenThrow(new RuntimeException("timeout"))
+                .thenReturn(List.of(Embedding.of(List.of(1.0))));
+        QueryEmbeddingCache cache = newCache("");
+
+        assertThrows(RuntimeException.class, () -> cache.getEmbedding("travel policy"));
+        assertEquals(1.0f, cache.getEmbedding("travel policy").getValues()[0]);
+    }
+
+    @Test
+    void persistsEntriesAcrossRestarts(@TempDir Path directory) {
+        // The directory doesn't exist until the first save
+        String path = directory.resolve("cache").resolve("query-cache.bin").toString();
+        QueryEmbeddingCache cache = newCache(path);
+        cache.getEmbedding("onboarding checklist");
+        cache.save();
+
+        QueryEmbeddingCache restarted = newCache(path);
+        restarted.load();
+
+        assertEquals(1, restarted.size());
+        assertArrayEquals(new float[] { 0.5f, 0.25f }, restarted.getEmbedding("Onboarding checklist").getValues());
+        verify(embeddingProvider, times(1)).embed(anyList());
+    }
+}
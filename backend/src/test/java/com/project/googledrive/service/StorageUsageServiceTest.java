@@ -0,0 +1,97 @@
+package com.project.googledrive.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.StorageUsage;
+import com.project.googledrive.model.UploadSession;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageUsageServiceTest {
+
+    private static final long GB = 1024L * 1024 * 1024;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final StorageUsageService service = new StorageUsageService(mongoTemplate, 10);
+
+    @Test
+    void reservesWithAConditionalIncrement() {
+        when(mongoTemplate.exists(any(Query.class), eq(StorageUsage.class))).thenReturn(true);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(StorageUsage.class)))
+                .thenReturn(usage("a@example.com", 2 * GB, LocalDateTime.now()));
+
+        service.reserve("a@example.com", GB, 15 * GB);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(StorageUsage.class));
+        assertEquals(new Document("$lte", 14 * GB), query.getValue().getQueryObject().get("usedBytes"));
+        assertEquals(GB, update.getValue().getUpdateObject().get("$inc", Document.class).get("usedBytes"));
+    }
+
+    @Test
+    void rejectsUploadsOverTheLimit() {
+        when(mongoTemplate.exists(any(Query.class), eq(StorageUsage.class))).thenReturn(true);
+        when(mongoTemplate.findById("a@example.com", StorageUsage.class))
+                .thenReturn(usage("a@example.com", 15 * GB - 10 * 1024 * 1024, LocalDateTime.now()));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.reserve("a@example.com", GB, 15 * GB));
+
+        assertTrue(e.getMessage().contains("10 MB available"));
+    }
+
+    @Test
+    void reconcileRepairsQuietUsersOnly() {
+        @SuppressWarnings("unchecked")
+        AggregationResults<Document> totals = mock(AggregationResults.class);
+        when(totals.getMappedResults()).thenReturn(List.of(
+                new Document("_id", "idle@example.com").append("total", 500L),
+                new Document("_id", "busy@example.com").append("total", 700L)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(FileMetadata.class), eq(Document.class))).thenReturn(totals);
+        // Space reserved by an unfinished upload session still counts
+        @SuppressWarnings("unchecked")
+        AggregationResults<Document> reserved = mock(AggregationResults.class);
+        when(reserved.getMappedResults()).thenReturn(List.of(new Document("_id", "idle@example.com").append("total", 200L)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(UploadSession.class), eq(Document.class))).thenReturn(reserved);
+        when(mongoTemplate.findAll(StorageUsage.class)).thenReturn(List.of(
+                usage("idle@example.com", 900, LocalDateTime.now().minusHours(2)),
+                usage("busy@example.com", 100, LocalDateTime.now())));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(StorageUsage.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        service.reconcile();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(StorageUsage.class));
+        assertEquals("idle@example.com", query.getValue().getQueryObject().get("_id"));
+        assertEquals(700L, update.getValue().getUpdateObject().get("$set", Document.class).get("usedBytes"));
+    }
+
+    private static StorageUsage usage(String email, long bytes, LocalDateTime updatedAt) {
+        StorageUsage usage = new StorageUsage();
+        usage.setOwnerEmail(email);
+        usage.setUsedBytes(bytes);
+        usage.setUpdatedAt(updatedAt);
+        return usage;
+    }
+}
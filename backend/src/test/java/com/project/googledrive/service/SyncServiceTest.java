@@ -0,0 +1,67 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.dto.ChunkCommitRequest;
+import com.project.googledrive.model.ChunkRef;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.StagedChunk;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SyncServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BlobService blobService = mock(BlobService.class);
+    private final SyncService syncService = new SyncService(mongoTemplate, blobService, mock(FileService.class),
+            mock(StorageUsageService.class), mock(FileVersionService.class), 1024, 60);
+
+    @Test
+    void onlyTheUsersOwnChunksCountAsPresent() {
+        when(mongoTemplate.findDistinct(any(Query.class), eq("chunks.hash"), eq(FileMetadata.class), eq(String.class)))
+                .thenReturn(List.of("a", "unrelated"));
+        when(mongoTemplate.findDistinct(any(Query.class), eq("blobId"), eq(FileMetadata.class), eq(String.class)))
+                .thenReturn(List.of());
+        StagedChunk staged = new StagedChunk();
+        staged.setHash("b");
+        when(mongoTemplate.find(any(Query.class), eq(StagedChunk.class))).thenReturn(List.of(staged));
+
+        assertEquals(List.of("c"), syncService.findMissing("alice@example.com", List.of("a", "b", "c", "c")));
+    }
+
+    @Test
+    void commitWithMissingChunksTakesNoReferences() {
+        ChunkCommitRequest request = new ChunkCommitRequest();
+        request.setFileName("notes.txt");
+        request.setChunks(List.of(new ChunkRef("a", 10)));
+
+        SyncService.MissingChunksException e = assertThrows(SyncService.MissingChunksException.class,
+                () -> syncService.commit("alice@example.com", request));
+
+        assertEquals(List.of("a"), e.getMissing());
+        verify(blobService, never()).addReference(anyString());
+    }
+
+    @Test
+    void rejectsChunksThatDontMatchTheirHash() {
+        assertThrows(RuntimeException.class, () -> syncService.storeChunk("alice@example.com",
+                "0".repeat(64), new ByteArrayInputStream("hello".getBytes())));
+        assertThrows(RuntimeException.class, () -> syncService.storeChunk("alice@example.com",
+                "0".repeat(64), new ByteArrayInputStream(new byte[2048])));
+
+        verifyNoInteractions(blobService);
+    }
+}
@@ -0,0 +1,118 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.FileMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TextExtractionServiceTest {
+
+    private static final long HUGE = 200L * 1024 * 1024;
+
+    private final FileService fileService = mock(FileService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TextExtractionService service = new TextExtractionService(fileService, meterRegistry, 1000, 1, 1, 2000);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void stopsReadingOnceTheBudgetIsReached() throws Exception {
+        FileMetadata file = file("notes.txt", HUGE);
+        when(fileService.openDownloadStream(eq(file), eq(0L), anyLong())).thenReturn(new Words(HUGE, 0));
+
+        String text = service.extractText(file);
+
+        assertTrue(text.startsWith("lorem ipsum"));
+        assertTrue(text.length() <= 1000);
+        // A few buffers' worth, not 200 MB
+        assertTrue(meterRegistry.get("extraction.bytes").summary().totalAmount() < 1024 * 1024);
+        assertEquals(1, meterRegistry.get("extraction").tag("outcome", "truncated").timer().count());
+    }
+
+    @Test
+    void shortDocumentsComeBackWhole() throws Exception {
+        FileMetadata file = file("short.txt", 11);
+        when(fileService.openDownloadStream(eq(file), eq(0L), anyLong()))
+                .thenReturn(new ByteArrayInputStream(" hello tika".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("hello tika", service.extractText(file));
+        assertEquals(1, meterRegistry.get("extraction").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void slowParsesTimeOutAndFreeTheirThread() throws Exception {
+        FileMetadata slow = file("slow.txt", HUGE);
+        when(fileService.openDownloadStream(eq(slow), eq(0L), anyLong())).thenReturn(new Words(HUGE, 50));
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> service.extractText(slow, Integer.MAX_VALUE));
+        assertTrue(e.getMessage().contains("timed out"));
+
+        // The only parser thread was released by the cancelled read
+        FileMetadata next = file("next.txt", 4);
+        when(fileService.openDownloadStream(eq(next), eq(0L), anyLong()))
+                .thenReturn(new ByteArrayInputStream("next".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("next", service.extractText(next));
+    }
+
+    private static FileMetadata file(String name, long size) {
+        FileMetadata file = new FileMetadata();
+        file.setId(name);
+        file.setOriginalFileName(name);
+        file.setFileSize(size);
+        return file;
+    }
+
+    // Plain text of the given length, optionally pausing on every read
+    private static final class Words extends InputStream {
+
+        private static final byte[] WORDS = "lorem ipsum dolor sit amet ".getBytes(StandardCharsets.US_ASCII);
+
+        private final long length;
+        private final long pauseMs;
+        private long position;
+
+        Words(long length, long pauseMs) {
+            this.length = length;
+            this.pauseMs = pauseMs;
+        }
+
+        @Override
+        public int read() {
+            return position < length ? WORDS[(int) (position++ % WORDS.length)] : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= length) {
+                return -1;
+            }
+            if (pauseMs > 0) {
+                try {
+                    Thread.sleep(pauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int count = (int) Math.min(len, length - position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = WORDS[(int) (position++ % WORDS.length)];
+            }
+            return count;
+        }
+    }
+}
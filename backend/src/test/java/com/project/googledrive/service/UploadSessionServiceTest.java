@@ -0,0 +1,196 @@
+package com.project.googledrive.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.project.googledrive.dto.UploadSessionRequest;
+import com.project.googledrive.dto.UploadSessionStatus;
+import com.project.googledrive.model.FileMetadata;
+import com.project.googledrive.model.UploadSession;
+import com.project.googledrive.util.EncryptionUtil;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadSessionServiceTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BlobStore blobStore = mock(BlobStore.class);
+    private final FileService fileService = mock(FileService.class);
+    private final StorageUsageService storageUsageService = mock(StorageUsageService.class);
+    private final KeyWrappingService keyWrappingService = new KeyWrappingService("MySecretEncryptionKey1234567890");
+    private final UploadSessionService service = new UploadSessionService(mongoTemplate, blobStore, fileService,
+            storageUsageService, keyWrappingService, 5 * MB, 60);
+
+    private final Map<Integer, byte[]> storedParts = new ConcurrentHashMap<>();
+    private UploadSession stored;
+
+    @BeforeEach
+    void setUp() {
+        when(blobStore.startMultipartUpload(anyString(), any())).thenReturn("upload-1");
+        when(blobStore.uploadPart(anyString(), eq("upload-1"), anyInt(), any(byte[].class), anyInt()))
+                .thenAnswer(invocation -> {
+                    int partNumber = invocation.getArgument(2);
+                    byte[] data = invocation.getArgument(3);
+                    storedParts.put(partNumber, Arrays.copyOf(data, invocation.<Integer>getArgument(4)));
+                    return "etag-" + partNumber;
+                });
+        when(mongoTemplate.insert(any(UploadSession.class))).thenAnswer(invocation -> {
+            stored = invocation.getArgument(0);
+            stored.setId("session-1");
+            return stored;
+        });
+        when(mongoTemplate.findById("session-1", UploadSession.class)).thenAnswer(invocation -> stored);
+        // Applies the part claims and parts written by uploadPart to the stored session; a claim
+        // with a digest other than the recorded one doesn't match, as in Mongo
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(UploadSession.class)))
+                .thenAnswer(invocation -> {
+                    Document set = invocation.<Update>getArgument(1).getUpdateObject().get("$set", Document.class);
+                    for (Map.Entry<String, Object> entry : set.entrySet()) {
+                        String field = entry.getKey();
+                        if (field.startsWith("partDigests.")) {
+                            String previous = stored.getPartDigests().putIfAbsent(
+                                    field.substring("partDigests.".length()), (String) entry.getValue());
+                            if (previous != null && !previous.equals(entry.getValue())) {
+                                return null;
+                            }
+                        } else if (field.startsWith("parts.")) {
+                            stored.getParts().put(field.substring("parts.".length()), (UploadSession.Part) entry.getValue());
+                        }
+                    }
+                    return stored;
+                });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(UploadSession.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(fileService.saveNewFile(any(), anyString(), any(), anyString()))
+                .thenReturn(new FileMetadata());
+    }
+
+    @Test
+    void partsSentOutOfOrderAssembleIntoTheUsualCiphertext() throws Exception {
+        byte[] content = new byte[(int) (11 * MB + 12345)];
+        new Random(3).nextBytes(content);
+        UploadSession session = service.create("alice@example.com", request(content.length));
+        long partSize = session.getPartSize();
+        assertEquals(3, session.getPartCount());
+
+        for (int part : new int[] { 3, 1, 2 }) {
+            long offset = (part - 1) * partSize;
+            int length = (int) Math.min(partSize, content.length - offset);
+            service.uploadPart("session-1", "alice@example.com", offset,
+                    new ByteArrayInputStream(content, (int) offset, length));
+        }
+        service.commit("session-1", "alice@example.com");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> partTags = ArgumentCaptor.forClass(List.class);
+        verify(blobStore).completeMultipartUpload(eq(session.getS3Key()), eq("upload-1"), partTags.capture());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"), partTags.getValue());
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        for (int part = 1; part <= 3; part++) {
+            object.write(storedParts.get(part));
+        }
+        String dataKey = keyWrappingService.unwrapForOwner(session.getWrappedKey(), "alice@example.com");
+        assertArrayEquals(content, EncryptionUtil.decrypt(object.toByteArray(), dataKey));
+    }
+
+    @Test
+    void reportsReceivedRangesAndRefusesToCommitWithGaps() throws Exception {
+        UploadSession session = service.create("alice@example.com", request(12 * MB));
+        long partSize = session.getPartSize();
+        service.uploadPart("session-1", "alice@example.com", 0, new ByteArrayInputStream(new byte[(int) partSize]));
+
+        UploadSessionStatus status = UploadSessionStatus.from(stored);
+        assertEquals(1, status.getReceivedRanges().size());
+        assertArrayEquals(new long[] { 0, partSize - 1 }, status.getReceivedRanges().get(0));
+
+        assertThrows(RuntimeException.class, () -> service.commit("session-1", "alice@example.com"));
+        assertThrows(RuntimeException.class, () -> service.uploadPart("session-1", "alice@example.com", 100,
+                new ByteArrayInputStream(new byte[10])));
+        assertThrows(RuntimeException.class, () -> service.getSession("session-1", "mallory@example.com"));
+    }
+
+    @Test
+    void aPartCanBeResentOnlyWithTheSameBytes() throws Exception {
+        UploadSession session = service.create("alice@example.com", request(12 * MB));
+        byte[] part = new byte[(int) session.getPartSize()];
+        new Random(7).nextBytes(part);
+        service.uploadPart("session-1", "alice@example.com", 0, new ByteArrayInputStream(part));
+
+        // Same bytes: already stored, nothing is encrypted again
+        service.uploadPart("session-1", "alice@example.com", 0, new ByteArrayInputStream(part));
+        verify(blobStore, times(1)).uploadPart(anyString(), eq("upload-1"), eq(1), any(byte[].class), anyInt());
+
+        // Different bytes would reuse the part's GCM nonces
+        byte[] changed = part.clone();
+        changed[0] ^= 1;
+        assertThrows(RuntimeException.class, () -> service.uploadPart("session-1", "alice@example.com", 0,
+                new ByteArrayInputStream(changed)));
+        verify(blobStore, times(1)).uploadPart(anyString(), eq("upload-1"), eq(1), any(byte[].class), anyInt());
+    }
+
+    @Test
+    void rejectsSizesThatCannotMakeAnUpload() {
+        assertThrows(RuntimeException.class, () -> service.create("alice@example.com", request(0)));
+        assertThrows(RuntimeException.class, () -> service.create("alice@example.com", request(-5)));
+
+        verify(storageUsageService, never()).reserve(anyString(), anyLong(), anyLong());
+        verify(blobStore, never()).startMultipartUpload(anyString(), any());
+    }
+
+    @Test
+    void quotaIsCheckedBeforeAnythingIsStarted() {
+        doThrow(new RuntimeException("Storage limit exceeded!"))
+                .when(storageUsageService).reserve(eq("alice@example.com"), anyLong(), anyLong());
+
+        assertThrows(RuntimeException.class, () -> service.create("alice@example.com", request(20 * MB)));
+
+        verify(blobStore, never()).startMultipartUpload(anyString(), any());
+    }
+
+    @Test
+    void partsGrowToStayWithinTheS3PartLimit() {
+        long partSize = service.partSizeFor(200L * 1024 * MB);
+
+        assertTrue(partSize * 10_000 >= 200L * 1024 * MB);
+        assertEquals(0, partSize % EncryptionUtil.SEGMENT_SIZE);
+        assertEquals(5 * MB, service.partSizeFor(1));
+    }
+
+    private static UploadSessionRequest request(long size) {
+        UploadSessionRequest request = new UploadSessionRequest();
+        request.setFileName("video.mp4");
+        request.setContentType("video/mp4");
+        request.setSize(size);
+        return request;
+    }
+}
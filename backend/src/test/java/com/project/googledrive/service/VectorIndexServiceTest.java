@@ -0,0 +1,53 @@
+package com.project.googledrive.service;
+
+import com.project.googledrive.model.Embedding;
+import com.project.googledrive.util.HnswIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class VectorIndexServiceTest {
+
+    private final VectorIndexService index = new VectorIndexService(mock(MongoTemplate.class), mock(EmbeddingProvider.class), 16, 100, 32, 0.25);
+
+    @Test
+    void searchesOwnedAndSharedFilesOnly() {
+        index.index("mine", "alice@example.com", List.of(), Embedding.of(List.of(1.0, 0.0, 0.0)));
+        index.index("theirs", "bob@example.com", List.of(), Embedding.of(List.of(0.9, 0.1, 0.0)));
+        index.index("shared", "bob@example.com", List.of("alice@example.com"), Embedding.of(List.of(0.8, 0.2, 0.0)));
+
+        List<String> keys = keys(index.search("alice@example.com", Embedding.of(List.of(1.0, 0.0, 0.0)), 10, 0.0));
+
+        assertEquals(List.of("mine", "shared"), keys);
+    }
+
+    @Test
+    void appliesShareAndDeleteIncrementally() {
+        index.index("doc", "bob@example.com", List.of(), Embedding.of(List.of(0.0, 1.0, 0.0)));
+        assertTrue(index.search("alice@example.com", Embedding.of(List.of(0.0, 1.0, 0.0)), 3, 0.0).isEmpty());
+
+        index.share("doc", "alice@example.com");
+        assertEquals(List.of("doc"), keys(index.search("alice@example.com", Embedding.of(List.of(0.0, 1.0, 0.0)), 3, 0.0)));
+
+        index.remove("doc");
+        assertTrue(index.search("alice@example.com", Embedding.of(List.of(0.0, 1.0, 0.0)), 3, 0.0).isEmpty());
+        assertTrue(index.search("bob@example.com", Embedding.of(List.of(0.0, 1.0, 0.0)), 3, 0.0).isEmpty());
+    }
+
+    @Test
+    void dropsMatchesBelowTheThreshold() {
+        index.index("close", "alice@example.com", List.of(), Embedding.of(List.of(1.0, 0.1, 0.0)));
+        index.index("far", "alice@example.com", List.of(), Embedding.of(List.of(0.0, 0.0, 1.0)));
+
+        assertEquals(List.of("close"), keys(index.search("alice@example.com", Embedding.of(List.of(1.0, 0.0, 0.0)), 3, 0.78)));
+    }
+
+    private static List<String> keys(List<HnswIndex.Match> matches) {
+        return matches.stream().map(HnswIndex.Match::key).toList();
+    }
+}
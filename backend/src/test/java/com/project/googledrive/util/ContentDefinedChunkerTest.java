@@ -0,0 +1,71 @@
+package com.project.googledrive.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContentDefinedChunkerTest {
+
+    private final ContentDefinedChunker chunker = new ContentDefinedChunker(2 * 1024, 8 * 1024, 32 * 1024);
+
+    @Test
+    void coversTheInputWithChunksWithinBounds() throws Exception {
+        byte[] data = randomBytes(1_000_003, 1);
+
+        List<ContentDefinedChunker.Chunk> chunks = chunker.split(new ByteArrayInputStream(data));
+
+        long offset = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            ContentDefinedChunker.Chunk chunk = chunks.get(i);
+            assertEquals(offset, chunk.offset());
+            assertTrue(chunk.length() <= 32 * 1024);
+            if (i < chunks.size() - 1) {
+                assertTrue(chunk.length() >= 2 * 1024);
+            }
+            offset += chunk.length();
+        }
+        assertEquals(data.length, offset);
+        // Normalised chunking keeps the average near the target
+        double average = (double) data.length / chunks.size();
+        assertTrue(average > 4 * 1024 && average < 16 * 1024, "average " + average);
+    }
+
+    @Test
+    void anInsertionOnlyChangesNearbyChunks() throws Exception {
+        byte[] original = randomBytes(2_000_000, 2);
+        byte[] edited = new byte[original.length + 10];
+        System.arraycopy(original, 0, edited, 0, 1_000_000);
+        System.arraycopy("0123456789".getBytes(), 0, edited, 1_000_000, 10);
+        System.arraycopy(original, 1_000_000, edited, 1_000_010, original.length - 1_000_000);
+
+        Set<String> before = hashes(original);
+        List<ContentDefinedChunker.Chunk> after = chunker.split(new ByteArrayInputStream(edited));
+        long changed = after.stream().filter(chunk -> !before.contains(chunk.hash())).count();
+
+        assertTrue(changed <= 2, changed + " of " + after.size() + " chunks changed");
+    }
+
+    @Test
+    void emptyInputHasNoChunks() throws Exception {
+        assertEquals(List.of(), chunker.split(new ByteArrayInputStream(new byte[0])));
+    }
+
+    private Set<String> hashes(byte[] data) throws Exception {
+        return chunker.split(new ByteArrayInputStream(data)).stream()
+                .map(ContentDefinedChunker.Chunk::hash)
+                .collect(Collectors.toSet());
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
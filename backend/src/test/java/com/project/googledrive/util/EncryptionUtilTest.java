@@ -0,0 +1,90 @@
+package com.project.googledrive.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EncryptionUtilTest {
+
+    private static final int SEGMENT = EncryptionUtil.SEGMENT_SIZE;
+
+    @Test
+    void roundTripsAcrossSegmentBoundaries() throws Exception {
+        String key = EncryptionUtil.generateKey();
+        for (int size : new int[] { 0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT + 17 }) {
+            byte[] plaintext = randomBytes(size);
+            byte[] ciphertext = EncryptionUtil.encrypt(plaintext, key);
+
+            assertEquals(EncryptionUtil.encryptedLength(size), ciphertext.length);
+            assertEquals(size, EncryptionUtil.plaintextLength(ciphertext.length));
+            assertArrayEquals(plaintext, EncryptionUtil.decrypt(ciphertext, key));
+        }
+    }
+
+    @Test
+    void decryptsArbitraryRangesFromTheirCoveringSegments() throws Exception {
+        String key = EncryptionUtil.generateKey();
+        byte[] plaintext = randomBytes(5 * SEGMENT + 123);
+        byte[] ciphertext = EncryptionUtil.encrypt(plaintext, key);
+        byte[] header = Arrays.copyOf(ciphertext, EncryptionUtil.HEADER_SIZE);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 50; i++) {
+            int start = random.nextInt(plaintext.length);
+            int end = start + random.nextInt(plaintext.length - start);
+            long[] range = EncryptionUtil.ciphertextRange(start, end, plaintext.length);
+            InputStream segments = new ByteArrayInputStream(
+                    Arrays.copyOfRange(ciphertext, (int) range[0], (int) range[1] + 1));
+
+            byte[] decrypted = EncryptionUtil.decryptingRangeStream(
+                    segments, header, key, start, end, plaintext.length).readAllBytes();
+
+            assertArrayEquals(Arrays.copyOfRange(plaintext, start, end + 1), decrypted);
+        }
+    }
+
+    @Test
+    void rejectsTamperedAndTruncatedCiphertext() throws Exception {
+        String key = EncryptionUtil.generateKey();
+        byte[] ciphertext = EncryptionUtil.encrypt(randomBytes(2 * SEGMENT + 5), key);
+
+        byte[] tampered = ciphertext.clone();
+        tampered[EncryptionUtil.HEADER_SIZE + SEGMENT + 3] ^= 1;
+        assertThrows(IOException.class, () -> EncryptionUtil.decrypt(tampered, key));
+
+        // Dropping the final segment must not look like a shorter valid file
+        byte[] truncated = Arrays.copyOf(ciphertext, (int) EncryptionUtil.segmentOffset(2));
+        assertThrows(IOException.class, () -> EncryptionUtil.decrypt(truncated, key));
+    }
+
+    @Test
+    void stillReadsLegacyEcbObjects() throws Exception {
+        String key = EncryptionUtil.generateKey();
+        byte[] plaintext = randomBytes(1000);
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, EncryptionUtil.toSecretKey(key));
+        byte[] legacy = cipher.doFinal(plaintext);
+
+        assertArrayEquals(plaintext, EncryptionUtil.decryptLegacy(legacy, key));
+
+        long[] range = EncryptionUtil.legacyCiphertextRange(100, 530);
+        InputStream blocks = new ByteArrayInputStream(Arrays.copyOfRange(legacy, (int) range[0], (int) range[1] + 1));
+        assertArrayEquals(Arrays.copyOfRange(plaintext, 100, 531),
+                EncryptionUtil.legacyDecryptingRangeStream(blocks, key, 100, 530).readAllBytes());
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
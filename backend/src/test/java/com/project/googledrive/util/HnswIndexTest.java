@@ -0,0 +1,102 @@
+package com.project.googledrive.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+    private final Random random = new Random(42);
+
+    @Test
+    void findsNearlyAllTrueNearestNeighbors() {
+        HnswIndex index = new HnswIndex(DIMENSION, 16, 100);
+        List<float[]> vectors = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            float[] vector = randomUnitVector();
+            vectors.add(vector);
+            index.add("file-" + i, vector);
+        }
+
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 50; q++) {
+            float[] query = randomUnitVector();
+            Set<String> exact = new HashSet<>(exactTopK(vectors, query, 10));
+            for (HnswIndex.Match match : index.search(query, 10, 64)) {
+                if (exact.contains(match.key())) {
+                    found++;
+                }
+            }
+            expected += exact.size();
+        }
+
+        double recall = (double) found / expected;
+        assertTrue(recall > 0.9, "recall was " + recall);
+    }
+
+    @Test
+    void removedAndReplacedEntriesAreNotReturned() {
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int i = 0; i < 500; i++) {
+            index.add("file-" + i, randomUnitVector());
+        }
+        float[] target = randomUnitVector();
+        index.add("target", target);
+        assertEquals("target", index.search(target, 1, 32).get(0).key());
+
+        index.remove("target");
+        assertFalse(index.search(target, 10, 32).stream().anyMatch(match -> match.key().equals("target")));
+
+        float[] moved = randomUnitVector();
+        index.add("file-7", moved);
+        assertEquals("file-7", index.search(moved, 1, 32).get(0).key());
+        assertEquals(500, index.size());
+        assertEquals(2, index.getDeletedCount());
+    }
+
+    @Test
+    void compactDropsTombstones() {
+        HnswIndex index = new HnswIndex(DIMENSION, 8, 50);
+        for (int i = 0; i < 200; i++) {
+            index.add("file-" + i, randomUnitVector());
+        }
+        IntStream.range(0, 100).forEach(i -> index.remove("file-" + i));
+
+        HnswIndex compacted = index.compact();
+
+        assertEquals(100, compacted.size());
+        assertEquals(0, compacted.getDeletedCount());
+        assertTrue(compacted.contains("file-150"));
+        assertFalse(compacted.contains("file-50"));
+    }
+
+    private List<String> exactTopK(List<float[]> vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.size())
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -VectorMath.dot(query, 0, vectors.get(i), 0, DIMENSION)))
+                .limit(k)
+                .map(i -> "file-" + i)
+                .toList();
+    }
+
+    private float[] randomUnitVector() {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        VectorMath.scale(vector, 1f / VectorMath.norm(vector));
+        return vector;
+    }
+}
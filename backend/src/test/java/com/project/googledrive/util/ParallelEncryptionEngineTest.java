@@ -0,0 +1,77 @@
+package com.project.googledrive.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelEncryptionEngineTest {
+
+    // Threshold 0 forces the parallel path even for small inputs
+    private final ParallelEncryptionEngine engine = new ParallelEncryptionEngine(4, 0, 8 << 20);
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void parallelOutputIsTheSequentialFormat() throws Exception {
+        String key = EncryptionUtil.generateKey();
+        for (int size : new int[] { 0, 1, EncryptionUtil.SEGMENT_SIZE, 40 * EncryptionUtil.SEGMENT_SIZE + 999 }) {
+            byte[] plaintext = randomBytes(size);
+            byte[] ciphertext = engine.encryptingStream(new ByteArrayInputStream(plaintext), size, key).readAllBytes();
+
+            assertArrayEquals(plaintext, EncryptionUtil.decrypt(ciphertext, key));
+        }
+    }
+
+    @Test
+    void decryptsRangesInParallel() throws Exception {
+        String key = EncryptionUtil.generateKey();
+        byte[] plaintext = randomBytes(37 * EncryptionUtil.SEGMENT_SIZE + 5);
+        byte[] ciphertext = EncryptionUtil.encrypt(plaintext, key);
+        byte[] header = Arrays.copyOf(ciphertext, EncryptionUtil.HEADER_SIZE);
+
+        int start = 3 * EncryptionUtil.SEGMENT_SIZE + 11;
+        int end = plaintext.length - 2;
+        long[] range = EncryptionUtil.ciphertextRange(start, end, plaintext.length);
+        InputStream segments = new ByteArrayInputStream(
+                Arrays.copyOfRange(ciphertext, (int) range[0], (int) range[1] + 1));
+
+        assertArrayEquals(Arrays.copyOfRange(plaintext, start, end + 1),
+                engine.decryptingRangeStream(segments, header, key, start, end, plaintext.length).readAllBytes());
+    }
+
+    @Test
+    void inFlightRunsFollowTheByteBudgetNotTheCoreCount() throws Exception {
+        ParallelEncryptionEngine manyCores = new ParallelEncryptionEngine(32, 0, 8 << 20);
+        ParallelEncryptionEngine tinyBudget = new ParallelEncryptionEngine(4, 0, 1);
+        try {
+            // 8 MiB of 2 MiB runs (1 MiB in, 1 MiB out)
+            assertEquals(4, manyCores.getMaxTasksInFlight());
+            assertEquals(1, tinyBudget.getMaxTasksInFlight());
+
+            String key = EncryptionUtil.generateKey();
+            byte[] plaintext = randomBytes(40 * EncryptionUtil.SEGMENT_SIZE + 7);
+            byte[] ciphertext = tinyBudget.encryptingStream(new ByteArrayInputStream(plaintext), plaintext.length, key)
+                    .readAllBytes();
+            assertArrayEquals(plaintext, EncryptionUtil.decrypt(ciphertext, key));
+        } finally {
+            manyCores.shutdown();
+            tinyBudget.shutdown();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}